@@ -0,0 +1,109 @@
+package com.incidentiq.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One embedContent call against a local HTTP server that answers instantly with a
+ * 3072-dim response, so the numbers are client cost: connection handling, request
+ * encoding and response decoding.
+ * <p>
+ * {@code restTemplatePerCall} is the previous client: a new RestTemplate per call (a new
+ * connection unless the JDK keep-alive cache has one) and a {@code Map<?, ?>} decode.
+ * {@code pooled} is GeminiEmbeddingClient on the shared OkHttp client. {@code pooledAsync16}
+ * starts 16 calls with embedAsync and waits for all of them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingClientBenchmark {
+
+    private static final String TEXT = "2024-05-01 ERROR Timeout after 3000ms calling payment-gateway";
+
+    private HttpServer server;
+    private String url;
+    private GeminiEmbeddingClient client;
+
+    @Setup
+    public void setup() throws Exception {
+        // otherwise small request writes wait on delayed ACKs (~40 ms per call)
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        byte[] response = EmbeddingDecodeBenchmark.responseBody(GeminiEmbeddingClient.FULL_DIM);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(16));
+        server.start();
+
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta";
+        url = base + "/models/gemini-embedding-001:embedContent?key=bench";
+
+        client = new GeminiEmbeddingClient(new OkHttpClient(), new SimpleMeterRegistry(), 0, 0, 64, 1, 1, 1);
+        ReflectionTestUtils.setField(client, "apiKey", "bench");
+        ReflectionTestUtils.setField(client, "baseUrl", base);
+        ReflectionTestUtils.setField(client, "dimension", GeminiEmbeddingClient.FULL_DIM);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public float[] restTemplatePerCall() {
+        RestTemplate rest = new RestTemplate();
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("content", Map.of("parts", List.of(Map.of("text", TEXT))));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Map<?, ?> resp = rest.postForObject(url, new HttpEntity<>(body, headers), Map.class);
+        return EmbeddingDecodeBenchmark.toFloats((Map<?, ?>) resp.get("embedding"));
+    }
+
+    @Benchmark
+    public float[] pooled() {
+        return client.embed(TEXT);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public List<float[]> pooledAsync16() {
+        List<CompletableFuture<float[]>> calls = new ArrayList<>(16);
+        for (int i = 0; i < 16; i++) {
+            calls.add(client.embedAsync(TEXT));
+        }
+        List<float[]> out = new ArrayList<>(16);
+        for (CompletableFuture<float[]> c : calls) {
+            out.add(c.join());
+        }
+        return out;
+    }
+}
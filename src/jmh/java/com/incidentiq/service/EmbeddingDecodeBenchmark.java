@@ -0,0 +1,71 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding an embedContent response body (3072 values) into a float[]: through
+ * {@code Map<?, ?>} as GeminiEmbeddingClient used to, and with the streaming decoder it
+ * uses now.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EmbeddingDecodeBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private byte[] responseBody;
+
+    @Setup
+    public void setup() {
+        responseBody = responseBody(GeminiEmbeddingClient.FULL_DIM);
+    }
+
+    static byte[] responseBody(int dim) {
+        Random r = new Random(42);
+        StringBuilder sb = new StringBuilder("{\"embedding\":{\"values\":[");
+        for (int i = 0; i < dim; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append((float) r.nextGaussian() * 0.02f);
+        }
+        sb.append("]}}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Before: every value boxed as a Double inside an ArrayList. */
+    @Benchmark
+    public float[] mapDecode() throws Exception {
+        Map<?, ?> resp = mapper.readValue(responseBody, Map.class);
+        return toFloats((Map<?, ?>) resp.get("embedding"));
+    }
+
+    @Benchmark
+    public float[] streamDecode() throws Exception {
+        List<float[]> values = GeminiEmbeddingClient.decodeValues(
+                new ByteArrayInputStream(responseBody), GeminiEmbeddingClient.FULL_DIM);
+        return values.get(0);
+    }
+
+    static float[] toFloats(Map<?, ?> embedding) {
+        @SuppressWarnings("unchecked")
+        List<Double> values = (List<Double>) embedding.get("values");
+
+        float[] out = new float[values.size()];
+        for (int i = 0; i < values.size(); i++) {
+            out[i] = values.get(i).floatValue();
+        }
+        return out;
+    }
+}
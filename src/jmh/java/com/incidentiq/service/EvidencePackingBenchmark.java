@@ -0,0 +1,97 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.PackedContext;
+import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.util.TokenEstimator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of packing 20 retrieved chunks (fixtures/evidence-outage.txt) into a prompt context,
+ * next to the plain concatenation it replaces. The prompt-size reduction is printed once
+ * per fork; see src/jmh/BASELINE.md.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EvidencePackingBenchmark {
+
+    private List<EvidenceHit> evidence;
+    private EvidencePacker packer;
+
+    @Setup
+    public void setup() throws IOException {
+        evidence = loadFixture("/fixtures/evidence-outage.txt");
+        packer = new EvidencePacker(4000, 3);
+
+        int before = TokenEstimator.estimate(concatenate().length());
+        PackedContext packed = packer.pack(evidence);
+        System.out.printf("%nfixture: %d hits, %d -> %d estimated tokens (%.1fx), %d near-duplicates, "
+                        + "%d lines collapsed, truncated=%s%n",
+                evidence.size(), before, packed.getPackedTokens(), (double) before / packed.getPackedTokens(),
+                packed.getNearDuplicates(), packed.getLinesCollapsed(), packed.isTruncated());
+    }
+
+    /** What IncidentInsightService sent before packing. */
+    @Benchmark
+    public String concatenate() {
+        return evidence.stream()
+                .map(e -> "### Evidence (score=" + e.getScore() + ")\n" + e.getText())
+                .collect(Collectors.joining("\n\n"));
+    }
+
+    @Benchmark
+    public PackedContext pack() {
+        return packer.pack(evidence);
+    }
+
+    static List<EvidenceHit> loadFixture(String resource) throws IOException {
+        String content;
+        try (InputStream in = EvidencePackingBenchmark.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("Fixture not found: " + resource);
+            }
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        List<EvidenceHit> hits = new ArrayList<>();
+        StringBuilder text = null;
+        double score = 0;
+        for (String line : content.split("\n")) {
+            if (line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("--- hit ")) {
+                if (text != null) {
+                    hits.add(hit(hits.size(), text, score));
+                }
+                score = Double.parseDouble(line.substring("--- hit ".length()).trim());
+                text = new StringBuilder();
+            } else if (text != null) {
+                text.append(line).append('\n');
+            }
+        }
+        if (text != null) {
+            hits.add(hit(hits.size(), text, score));
+        }
+        return hits;
+    }
+
+    private static EvidenceHit hit(int n, StringBuilder text, double score) {
+        return EvidenceHit.builder()
+                .id("emb:fixture:" + n)
+                .text(text.toString().trim())
+                .score(score)
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.SearchFilter;
+import com.incidentiq.model.SearchHit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hybrid search through {@link SearchService} against a stub index whose round trips take
+ * a fixed time: KNN 4 ms (also for the term-filtered KNN), BM25 3 ms. Shows the fused mode
+ * costing about the slower leg, where running the legs one after the other costs their sum.
+ * {@code fuse} and {@code queryTerms} are the CPU work the fused mode adds.
+ * <p>
+ * Relevance needs real embeddings; use POST /reports/hybrid against a populated index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HybridSearchBenchmark {
+
+    private static final String QUERY =
+            "why did the checkout service return 503 errors after the payment gateway timeout spike";
+    private static final long KNN_NANOS = 4_000_000;
+    private static final long BM25_NANOS = 3_000_000;
+    private static final int TOP_K = 10;
+    private static final int CANDIDATES = 40;
+
+    private SearchService filterService;
+    private SearchService rrfService;
+    private StubIndex index;
+    private List<SearchHit> knnHits;
+    private List<SearchHit> bm25Hits;
+
+    @Setup
+    public void setup() {
+        knnHits = hits(0);
+        bm25Hits = hits(CANDIDATES / 2); // half of the candidates in common
+        index = new StubIndex(knnHits, bm25Hits);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TemplateService templates = new TemplateService(null, registry, "off", "redis", 4, 0.4, 100, 5000, 50);
+        filterService = new SearchService(index, registry, templates, "filter", 60, 1.0, 1.0, 4, 8);
+        rrfService = new SearchService(index, registry, templates, "rrf", 60, 1.0, 1.0, 4, 8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        filterService.shutdown();
+        rrfService.shutdown();
+    }
+
+    @Benchmark
+    public List<SearchHit> filterMode() {
+        return filterService.hybridSearch(QUERY, TOP_K);
+    }
+
+    @Benchmark
+    public List<SearchHit> rrfMode() {
+        return rrfService.hybridSearch(QUERY, TOP_K);
+    }
+
+    /** The fused mode with its legs run one after the other. */
+    @Benchmark
+    public List<SearchHit> rrfSequential() {
+        List<String> terms = SearchService.queryTerms(QUERY);
+        List<SearchHit> text = index.fullTextSearch(terms, CANDIDATES, null);
+        List<SearchHit> knn = index.knnSearch(QUERY, CANDIDATES, null, null);
+        return SearchService.fuse(knn, text, 1.0, 1.0, 60, TOP_K);
+    }
+
+    @Benchmark
+    public List<SearchHit> fuse() {
+        return SearchService.fuse(knnHits, bm25Hits, 1.0, 1.0, 60, TOP_K);
+    }
+
+    @Benchmark
+    public List<String> queryTerms() {
+        return SearchService.queryTerms(QUERY);
+    }
+
+    private static List<SearchHit> hits(int offset) {
+        List<SearchHit> out = new ArrayList<>();
+        for (int i = 0; i < CANDIDATES; i++) {
+            out.add(new SearchHit("emb:" + (offset + i),
+                    "2024-05-01 ERROR Timeout after 3000ms calling payment-gateway attempt=" + i,
+                    0.1 + i * 0.01, "checkout.log"));
+        }
+        return out;
+    }
+
+    static final class StubIndex implements VectorIndex {
+        private final List<SearchHit> knn;
+        private final List<SearchHit> bm25;
+
+        StubIndex(List<SearchHit> knn, List<SearchHit> bm25) {
+            this.knn = knn;
+            this.bm25 = bm25;
+        }
+
+        @Override
+        public String name() {
+            return "stub";
+        }
+
+        @Override
+        public List<SearchHit> knnSearch(String query, int topK, Integer efRuntime, SearchFilter filter) {
+            LockSupport.parkNanos(KNN_NANOS);
+            return knn.subList(0, Math.min(topK, knn.size()));
+        }
+
+        @Override
+        public List<SearchHit> hybridKnnSearch(String query, List<String> terms, int topK, Integer efRuntime,
+                                               SearchFilter filter) {
+            LockSupport.parkNanos(KNN_NANOS);
+            return knn.subList(0, Math.min(topK, knn.size()));
+        }
+
+        @Override
+        public boolean supportsFullText() {
+            return true;
+        }
+
+        @Override
+        public List<SearchHit> fullTextSearch(List<String> terms, int topK, SearchFilter filter) {
+            LockSupport.parkNanos(BM25_NANOS);
+            return bm25.subList(0, Math.min(topK, bm25.size()));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incidentiq.model.LogChunk;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trip of a full-size chunk through the ingest queue.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogChunkSerializationBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private LogChunk chunk;
+    private String json;
+
+    @Setup
+    public void setup() throws Exception {
+        StringBuilder text = new StringBuilder();
+        int i = 0;
+        while (text.length() < 4000) {
+            text.append("2024-05-01T10:15:").append(i % 60)
+                    .append(" ERROR [order-service] Timeout after 3000ms calling payment-gateway id=")
+                    .append(i++).append('\n');
+        }
+        chunk = new LogChunk("file", "app.log", 7, text.toString());
+        chunk.setJobId("6f1c2d1e-8d8b-4f5e-9a59-0c1d2e3f4a5b");
+        json = mapper.writeValueAsString(chunk);
+    }
+
+    @Benchmark
+    public String serialize() throws Exception {
+        return mapper.writeValueAsString(chunk);
+    }
+
+    @Benchmark
+    public LogChunk deserialize() throws Exception {
+        return mapper.readValue(json, LogChunk.class);
+    }
+}
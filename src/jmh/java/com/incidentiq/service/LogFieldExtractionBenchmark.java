@@ -0,0 +1,55 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.util.LogFieldExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the ingest-time field extraction (time range, level, service, trace ids) per
+ * chunk, over the 20 chunks of the outage fixture. The fields of the first chunk are
+ * printed once per fork.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogFieldExtractionBenchmark {
+
+    private List<LogChunk> chunks;
+    private LogFieldExtractor extractor;
+
+    @Setup
+    public void setup() throws IOException {
+        chunks = new ArrayList<>();
+        for (EvidenceHit hit : EvidencePackingBenchmark.loadFixture("/fixtures/evidence-outage.txt")) {
+            chunks.add(new LogChunk("file", "payment.log", chunks.size(), hit.getText()));
+        }
+        extractor = new LogFieldExtractor(ZoneOffset.UTC);
+
+        LogChunk first = chunks.get(0);
+        extractor.extract(first, System.currentTimeMillis());
+        System.out.printf("%nchunk 0 (%d chars): tsStart=%d tsEnd=%d severity=%d services=%s traceIds=%d%n",
+                first.getText().length(), first.getTsStart(), first.getTsEnd(), first.getSeverity(),
+                first.getServices(), first.getTraceIds() == null ? 0 : first.getTraceIds().split("\\|").length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(20)
+    public void extract(Blackhole bh) {
+        long now = System.currentTimeMillis();
+        for (LogChunk chunk : chunks) {
+            extractor.extract(chunk, now);
+            bh.consume(chunk.getTsEnd());
+        }
+    }
+}
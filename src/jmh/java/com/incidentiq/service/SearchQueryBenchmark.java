@@ -0,0 +1,49 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.SearchHit;
+import org.openjdk.jmh.annotations.*;
+import redis.clients.jedis.search.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query-side CPU work around FT.SEARCH: hybrid filter construction and result mapping.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchQueryBenchmark {
+
+    private static final String QUERY =
+            "why did the checkout service return 503 errors after the payment gateway timeout spike";
+
+    private List<Document> documents;
+
+    @Setup
+    public void setup() {
+        documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(new Document("emb:" + i, Map.of(
+                    "text", "2024-05-01 ERROR Timeout after 3000ms calling payment-gateway attempt=" + i,
+                    "fileName", "checkout.log",
+                    "score", String.valueOf(0.1 + i * 0.01))));
+        }
+    }
+
+    /** What SearchService.hybridSearch builds before the KNN call. */
+    @Benchmark
+    public String hybridFilter() {
+        return RediSearchKnnService.textFilter(SearchService.queryTerms(QUERY));
+    }
+
+    @Benchmark
+    public List<SearchHit> convertResults() {
+        return RediSearchKnnService.convert(documents);
+    }
+}
@@ -0,0 +1,62 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.util.DrainTemplateMiner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template mining throughput in lines per second over the outage fixture, against a miner
+ * that has already seen the corpus (the steady state during ingestion). The template count
+ * and resulting embedding reduction are printed once per fork.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateMinerBenchmark {
+
+    /** Lines in the fixture; JMH divides by this so the score is lines/sec. */
+    private static final int LINES = 1000;
+
+    private List<String> lines;
+    private DrainTemplateMiner miner;
+
+    @Setup
+    public void setup() throws IOException {
+        List<String> all = new ArrayList<>();
+        for (EvidenceHit hit : EvidencePackingBenchmark.loadFixture("/fixtures/evidence-outage.txt")) {
+            for (String line : hit.getText().split("\n")) {
+                if (!line.isBlank()) {
+                    all.add(line);
+                }
+            }
+        }
+        lines = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++) {
+            lines.add(all.get(i % all.size()));
+        }
+
+        miner = new DrainTemplateMiner(4, 0.4, 100, 5000);
+        for (String line : all) {
+            miner.add(line);
+        }
+        System.out.printf("%nfixture: %d lines -> %d templates (%.0fx fewer texts to embed)%n",
+                all.size(), miner.size(), (double) all.size() / miner.size());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void mine(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(miner.add(line));
+        }
+    }
+}
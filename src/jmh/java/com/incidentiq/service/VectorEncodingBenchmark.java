@@ -0,0 +1,87 @@
+package com.incidentiq.service;
+
+import com.incidentiq.util.VectorCodec;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+import redis.clients.jedis.JedisPooled;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Float-to-little-endian encoding of one 3072-dim embedding, as done on every stored chunk
+ * and every query.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorEncodingBenchmark {
+
+    private float[] vector;
+    private byte[] float32Bytes;
+    private GeminiEmbeddingClient client;
+    private EmbeddingService embeddingService;
+    private JedisPooled jedis;
+
+    @Setup
+    public void setup() {
+        vector = new float[GeminiEmbeddingClient.FULL_DIM];
+        Random r = new Random(42);
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) r.nextGaussian() * 0.02f;
+        }
+        float32Bytes = VectorCodec.toFloat32Bytes(vector);
+
+        client = new GeminiEmbeddingClient(new OkHttpClient(), new SimpleMeterRegistry(), 0, 0, 1, 1, 1, 1) {
+            @Override
+            public float[] embed(String text) {
+                return vector;
+            }
+
+            @Override
+            public int getConfiguredDim() {
+                return FULL_DIM;
+            }
+        };
+
+        // cache disabled: the pool never opens a connection
+        jedis = new JedisPooled("localhost", 6379);
+        EmbeddingCache cache = new EmbeddingCache(jedis, new SimpleMeterRegistry(), false, 0, 0);
+        embeddingService = new EmbeddingService(client, cache, new SimpleMeterRegistry(), VectorCodec.FLOAT32);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jedis.close();
+    }
+
+    /** Full getEmbeddingAsBytes path minus the provider call: cache key hash + encode. */
+    @Benchmark
+    public byte[] embeddingServiceGetEmbeddingAsBytes() {
+        return embeddingService.getEmbeddingAsBytes("ERROR Connection refused to db-primary:5432");
+    }
+
+    @Benchmark
+    public byte[] clientToFloat32Bytes() {
+        return client.toFloat32Bytes(vector);
+    }
+
+    @Benchmark
+    public byte[] codecToFloat32Bytes() {
+        return VectorCodec.toFloat32Bytes(vector);
+    }
+
+    @Benchmark
+    public byte[] codecToFloat16Bytes() {
+        return VectorCodec.toFloat16Bytes(vector);
+    }
+
+    @Benchmark
+    public float[] codecFromFloat32Bytes() {
+        return VectorCodec.fromFloat32Bytes(float32Bytes);
+    }
+}
@@ -0,0 +1,262 @@
+package com.incidentiq.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the Gemini endpoints the application calls:
+ * <ul>
+ *   <li>{@code POST .../models/<model>:embedContent}</li>
+ *   <li>{@code POST .../models/<model>:batchEmbedContents}</li>
+ *   <li>{@code POST .../openai/chat/completions} (OpenAI-compatible, plain and {@code stream=true})</li>
+ * </ul>
+ * Embeddings are derived from a hash of the text, so the same text always gets the same
+ * unit vector. Chat returns a canned root-cause JSON. Every request can be delayed and
+ * randomly failed with 429 / 500 to exercise the retry and error paths.
+ * <p>
+ * Point the application at it with {@code GEMINI_BASE_URL=http://localhost:<port>/v1beta}.
+ */
+public class GeminiStandIn implements AutoCloseable {
+
+    private static final int FULL_DIM = 3072;
+
+    private static final String CANNED_ANSWER = """
+            {"summary": "Requests fail after the database connection pool is exhausted.",
+             "root_cause": "Connection leak in the retry path keeps pool connections checked out.",
+             "impact": "Payment requests time out while the pool is drained.",
+             "actions": "Close connections in the retry handler and cap retries.",
+             "confidence": "MEDIUM"}""";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+
+    private final AtomicLong embedRequests = new AtomicLong();
+    private final AtomicLong embeddedTexts = new AtomicLong();
+    private final AtomicLong chatRequests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    /**
+     * @param port      0 picks a free port
+     * @param latencyMs fixed delay added to every response
+     * @param jitterMs  additional uniformly random delay in [0, jitterMs)
+     * @param errorRate fraction of requests answered with 429 or 500
+     */
+    public GeminiStandIn(int port, long latencyMs, long jitterMs, double errorRate) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "gemini-standin");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public GeminiStandIn start() {
+        server.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port() + "/v1beta";
+    }
+
+    public String stats() {
+        return "embedRequests=%d embeddedTexts=%d chatRequests=%d injectedErrors=%d"
+                .formatted(embedRequests.get(), embeddedTexts.get(), chatRequests.get(), injectedErrors.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            if (!"POST".equals(ex.getRequestMethod())) {
+                send(ex, 405, "{}");
+                return;
+            }
+            JsonNode body = mapper.readTree(ex.getRequestBody());
+
+            delay();
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                injectedErrors.incrementAndGet();
+                boolean throttle = ThreadLocalRandom.current().nextBoolean();
+                if (throttle) {
+                    ex.getResponseHeaders().add("Retry-After", "1");
+                }
+                send(ex, throttle ? 429 : 500, "{\"error\":{\"message\":\"injected\"}}");
+                return;
+            }
+
+            if (path.endsWith(":embedContent")) {
+                embedRequests.incrementAndGet();
+                ObjectNode out = mapper.createObjectNode();
+                out.set("embedding", embedding(body));
+                send(ex, 200, mapper.writeValueAsString(out));
+            } else if (path.endsWith(":batchEmbedContents")) {
+                embedRequests.incrementAndGet();
+                ObjectNode out = mapper.createObjectNode();
+                ArrayNode list = out.putArray("embeddings");
+                for (JsonNode r : body.path("requests")) {
+                    list.add(embedding(r));
+                }
+                send(ex, 200, mapper.writeValueAsString(out));
+            } else if (path.endsWith("/chat/completions")) {
+                chatRequests.incrementAndGet();
+                if (body.path("stream").asBoolean(false)) {
+                    streamChat(ex, body);
+                } else {
+                    send(ex, 200, mapper.writeValueAsString(chatCompletion(body)));
+                }
+            } else {
+                send(ex, 404, "{\"error\":{\"message\":\"unknown path " + path + "\"}}");
+            }
+        } catch (Exception e) {
+            send(ex, 500, "{\"error\":{\"message\":\"stand-in failure\"}}");
+        }
+    }
+
+    /**
+     * Deterministic unit vector seeded from the text hash, honouring outputDimensionality.
+     */
+    private ObjectNode embedding(JsonNode request) {
+        embeddedTexts.incrementAndGet();
+        String text = request.path("content").path("parts").path(0).path("text").asText("");
+        int dim = request.path("outputDimensionality").asInt(FULL_DIM);
+
+        SplittableRandom rnd = new SplittableRandom(seed(text));
+        float[] v = new float[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            v[i] = (float) (rnd.nextDouble() * 2 - 1);
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+
+        ObjectNode out = mapper.createObjectNode();
+        ArrayNode values = out.putArray("values");
+        for (float f : v) {
+            values.add(f * inv);
+        }
+        return out;
+    }
+
+    private ObjectNode chatCompletion(JsonNode request) {
+        ObjectNode out = mapper.createObjectNode();
+        out.put("id", "standin-" + chatRequests.get());
+        out.put("object", "chat.completion");
+        out.put("created", System.currentTimeMillis() / 1000);
+        out.put("model", request.path("model").asText("stand-in"));
+        ObjectNode choice = out.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.put("finish_reason", "stop");
+        ObjectNode message = choice.putObject("message");
+        message.put("role", "assistant");
+        message.put("content", CANNED_ANSWER);
+        ObjectNode usage = out.putObject("usage");
+        int promptTokens = request.toString().length() / 4;
+        int completionTokens = CANNED_ANSWER.length() / 4;
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return out;
+    }
+
+    /**
+     * OpenAI-style SSE: one delta per ~16 chars of the canned answer, then [DONE].
+     */
+    private void streamChat(HttpExchange ex, JsonNode request) throws IOException {
+        ex.getResponseHeaders().add("Content-Type", "text/event-stream");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        String id = "standin-" + chatRequests.get();
+        String model = request.path("model").asText("stand-in");
+        for (int i = 0; i < CANNED_ANSWER.length(); i += 16) {
+            String piece = CANNED_ANSWER.substring(i, Math.min(i + 16, CANNED_ANSWER.length()));
+            ObjectNode chunk = mapper.createObjectNode();
+            chunk.put("id", id);
+            chunk.put("object", "chat.completion.chunk");
+            chunk.put("created", System.currentTimeMillis() / 1000);
+            chunk.put("model", model);
+            ObjectNode choice = chunk.putArray("choices").addObject();
+            choice.put("index", 0);
+            choice.putObject("delta").put("content", piece);
+            if (i + 16 >= CANNED_ANSWER.length()) {
+                choice.put("finish_reason", "stop");
+            } else {
+                choice.putNull("finish_reason");
+            }
+            out.write(("data: " + mapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void delay() throws InterruptedException {
+        long ms = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs) : 0);
+        if (ms > 0) {
+            Thread.sleep(ms);
+        }
+    }
+
+    private static long seed(String text) {
+        // FNV-1a 64
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static void send(HttpExchange ex, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        ex.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Runs the stand-in on its own, for when the load driver is pointed at it separately.
+     * Args: [port] [latencyMs] [jitterMs] [errorRate]
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8090;
+        long latency = args.length > 1 ? Long.parseLong(args[1]) : 50;
+        long jitter = args.length > 2 ? Long.parseLong(args[2]) : 20;
+        double errors = args.length > 3 ? Double.parseDouble(args[3]) : 0;
+        GeminiStandIn standIn = new GeminiStandIn(port, latency, jitter, errors).start();
+        System.out.println("Gemini stand-in listening on " + standIn.baseUrl());
+        Thread.currentThread().join();
+    }
+}
@@ -0,0 +1,373 @@
+package com.incidentiq.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop load driver for a running IncidentIQ instance.
+ * <p>
+ * Uploads synthetic logs to {@code /logs/upload}, polls {@code /jobs/{id}} until each job
+ * finishes, and issues {@code /search/semantic}, {@code /search/hybrid} and
+ * {@code /insights/root-cause} requests, and optionally {@code /search/batch}, each at a fixed rate. Requests are fired on
+ * schedule whether or not earlier ones have returned, so a slow server shows up as
+ * latency rather than as a lower request rate.
+ * <p>
+ * At the end it prints p50/p99/max latency per endpoint, the end-to-end job latency
+ * (upload until SUCCESS) and the ingestion rate in chunks/sec.
+ * <p>
+ * With {@code --standin=true} (the default) a {@link GeminiStandIn} is started in this
+ * process; run the application with {@code GEMINI_BASE_URL} pointing at it.
+ */
+public class LoadTest {
+
+    private static final List<String> QUERIES = List.of(
+            "database connection timeout",
+            "payment service failing",
+            "OutOfMemoryError in worker",
+            "connection pool exhausted",
+            "upstream gateway 502",
+            "kafka consumer lag",
+            "NullPointerException in order handler",
+            "disk full on node"
+    );
+
+    private static final String[] SERVICES = {"payment", "orders", "gateway", "inventory", "auth"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] MESSAGES = {
+            "Request completed in %d ms",
+            "Connection acquired from pool after %d ms",
+            "Retrying call to downstream, attempt %d",
+            "Timeout waiting for database after %d ms",
+            "Cache miss for key order-%d",
+            "Consumer lag is %d messages",
+            "Heap usage at %d percent"
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient http;
+    private final String target;
+    private final Map<String, String> opts;
+
+    private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingJobs = new ConcurrentHashMap<>();
+    private final Recorder jobLatency = new Recorder();
+    private final AtomicLong completedChunks = new AtomicLong();
+    private final AtomicInteger failedJobs = new AtomicInteger();
+    private final AtomicInteger uploadSeq = new AtomicInteger();
+    private final AtomicInteger batchSeq = new AtomicInteger();
+    private final AtomicLong batchQueries = new AtomicLong();
+    private final AtomicLong lastCompletionNanos = new AtomicLong();
+    private final List<CompletableFuture<?>> inFlight = new ArrayList<>();
+
+    private long startNanos;
+
+    public LoadTest(Map<String, String> opts) {
+        this.opts = opts;
+        this.target = opts.getOrDefault("target", "http://localhost:8080");
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(intOpt("client-threads", 32)))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = new HashMap<>();
+        for (String a : args) {
+            if (a.startsWith("--") && a.contains("=")) {
+                opts.put(a.substring(2, a.indexOf('=')), a.substring(a.indexOf('=') + 1));
+            }
+        }
+        new LoadTest(opts).run();
+    }
+
+    public void run() throws Exception {
+        GeminiStandIn standIn = null;
+        if (Boolean.parseBoolean(opts.getOrDefault("standin", "true"))) {
+            standIn = new GeminiStandIn(
+                    intOpt("standin-port", 8090),
+                    intOpt("standin-latency-ms", 50),
+                    intOpt("standin-jitter-ms", 20),
+                    doubleOpt("standin-error-rate", 0)).start();
+            System.out.println("Gemini stand-in on " + standIn.baseUrl()
+                    + " (start the app with GEMINI_BASE_URL=" + standIn.baseUrl() + ")");
+        }
+
+        int durationS = intOpt("duration-s", 60);
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+        startNanos = System.nanoTime();
+
+        schedule(scheduler, doubleOpt("upload-rate", 0.5), this::upload);
+        schedule(scheduler, doubleOpt("search-rate", 5), this::search);
+        schedule(scheduler, doubleOpt("insight-rate", 0.2), this::insight);
+        schedule(scheduler, doubleOpt("batch-rate", 0), this::batchSearch);
+        scheduler.scheduleWithFixedDelay(this::pollJobs, 250, intOpt("poll-ms", 500), TimeUnit.MILLISECONDS);
+
+        System.out.printf("Driving %s for %ds%n", target, durationS);
+        Thread.sleep(durationS * 1000L);
+
+        // stop issuing new load; keep polling until the uploaded jobs drain
+        scheduler.shutdownNow();
+        CompletableFuture<?>[] pending;
+        synchronized (inFlight) {
+            pending = inFlight.toArray(CompletableFuture[]::new);
+        }
+        CompletableFuture.allOf(pending).exceptionally(t -> null).join();
+
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(intOpt("drain-timeout-s", 300));
+        while (!pendingJobs.isEmpty() && System.nanoTime() < drainDeadline) {
+            pollJobs();
+            Thread.sleep(intOpt("poll-ms", 500));
+        }
+
+        report(durationS, standIn);
+        if (standIn != null) {
+            standIn.close();
+        }
+        System.exit(0);
+    }
+
+    private void schedule(ScheduledExecutorService scheduler, double perSecond, Runnable task) {
+        if (perSecond <= 0) {
+            return;
+        }
+        long periodNanos = (long) (1_000_000_000L / perSecond);
+        scheduler.scheduleAtFixedRate(task, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void upload() {
+        int seq = uploadSeq.getAndIncrement();
+        String boundary = "----incidentiq" + System.nanoTime();
+        String fileName = "load-" + seq + ".log";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + syntheticLog(seq, intOpt("upload-lines", 2000)) + "\r\n"
+                + "--" + boundary + "--\r\n";
+
+        HttpRequest req = HttpRequest.newBuilder(URI.create(target + "/logs/upload"))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        long sent = System.nanoTime();
+        send("upload", req, resp -> {
+            String jobId = mapper.readTree(resp).path("jobId").asText(null);
+            if (jobId != null) {
+                pendingJobs.put(jobId, sent);
+            }
+        });
+    }
+
+    private void search() {
+        Random r = new Random();
+        String query = QUERIES.get(r.nextInt(QUERIES.size()));
+        String kind = r.nextBoolean() ? "semantic" : "hybrid";
+        URI uri = URI.create(target + "/search/" + kind + "?k=5&query="
+                + URLEncoder.encode(query, StandardCharsets.UTF_8));
+        send("search/" + kind, HttpRequest.newBuilder(uri).GET().build(), null);
+    }
+
+    /**
+     * Every query in every batch is distinct, so each one costs an embedding like a fresh
+     * alert would; {@code search-rate} traffic instead repeats a small cached set.
+     */
+    private void batchSearch() {
+        int seq = batchSeq.getAndIncrement();
+        int size = intOpt("batch-size", 50);
+        List<String> queries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            queries.add(QUERIES.get(i % QUERIES.size()) + " incident " + seq + "-" + i);
+        }
+        String json;
+        try {
+            json = mapper.writeValueAsString(Map.of("queries", queries, "k", 5));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        HttpRequest req = HttpRequest.newBuilder(URI.create(target + "/search/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        send("search/batch", req, resp -> batchQueries.addAndGet(size));
+    }
+
+    private void insight() {
+        String query = QUERIES.get(new Random().nextInt(QUERIES.size()));
+        String json = "{\"query\":\"" + query + "\",\"topK\":5}";
+        HttpRequest req = HttpRequest.newBuilder(URI.create(target + "/insights/root-cause"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        send("insights/root-cause", req, null);
+    }
+
+    private void pollJobs() {
+        for (Map.Entry<String, Long> e : pendingJobs.entrySet()) {
+            String jobId = e.getKey();
+            HttpRequest req = HttpRequest.newBuilder(URI.create(target + "/jobs/" + jobId)).GET().build();
+            send("jobs/{id}", req, resp -> {
+                JsonNode job = mapper.readTree(resp);
+                String status = job.path("status").asText();
+                if (("SUCCESS".equals(status) || "FAILED".equals(status))
+                        && pendingJobs.remove(jobId) != null) {
+                    long now = System.nanoTime();
+                    lastCompletionNanos.accumulateAndGet(now, Math::max);
+                    if ("SUCCESS".equals(status)) {
+                        jobLatency.record(now - e.getValue());
+                        completedChunks.addAndGet(job.path("processedChunks").asLong());
+                    } else {
+                        failedJobs.incrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    private void send(String name, HttpRequest req, BodyHandler onOk) {
+        Recorder rec = recorders.computeIfAbsent(name, k -> new Recorder());
+        long t0 = System.nanoTime();
+        CompletableFuture<?> f = http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+                .handle((resp, err) -> {
+                    long took = System.nanoTime() - t0;
+                    if (err != null || resp.statusCode() >= 400) {
+                        rec.error();
+                        return null;
+                    }
+                    rec.record(took);
+                    if (onOk != null) {
+                        try {
+                            onOk.accept(resp.body());
+                        } catch (Exception ex) {
+                            rec.error();
+                        }
+                    }
+                    return null;
+                });
+        synchronized (inFlight) {
+            inFlight.removeIf(CompletableFuture::isDone);
+            inFlight.add(f);
+        }
+    }
+
+    private void report(int durationS, GeminiStandIn standIn) {
+        System.out.println();
+        System.out.printf("%-22s %8s %7s %10s %10s %10s %9s%n",
+                "endpoint", "ok", "errors", "p50 ms", "p99 ms", "max ms", "req/s");
+        recorders.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> e.getValue().print(e.getKey(), durationS));
+        jobLatency.print("job upload->done", durationS);
+
+        long ingestNanos = lastCompletionNanos.get() - startNanos;
+        double chunksPerSec = ingestNanos > 0 ? completedChunks.get() / (ingestNanos / 1e9) : 0;
+        System.out.println();
+        System.out.printf("ingestion: %d chunks in %d jobs, %.1f chunks/sec (%d failed, %d unfinished)%n",
+                completedChunks.get(), jobLatency.count(), chunksPerSec, failedJobs.get(), pendingJobs.size());
+        if (batchQueries.get() > 0) {
+            System.out.printf("batch search: %d queries answered, %.1f queries/sec%n",
+                    batchQueries.get(), (double) batchQueries.get() / durationS);
+        }
+        if (standIn != null) {
+            System.out.println("stand-in: " + standIn.stats());
+        }
+    }
+
+    /**
+     * Varied per upload so the embedding cache does not turn later uploads into no-ops.
+     */
+    static String syntheticLog(int seq, int lines) {
+        Random r = new Random(seq);
+        StringBuilder sb = new StringBuilder(lines * 100);
+        long ts = 1_700_000_000_000L + seq * 1_000_000L;
+        for (int i = 0; i < lines; i++) {
+            ts += r.nextInt(500);
+            String level = LEVELS[r.nextInt(LEVELS.length)];
+            sb.append(java.time.Instant.ofEpochMilli(ts)).append(' ')
+                    .append(level).append(' ')
+                    .append('[').append(SERVICES[r.nextInt(SERVICES.length)]).append("] ")
+                    .append("trace=").append(Long.toHexString(r.nextLong())).append(' ')
+                    .append(MESSAGES[r.nextInt(MESSAGES.length)].formatted(r.nextInt(10_000)))
+                    .append('\n');
+            if ("ERROR".equals(level) && r.nextInt(3) == 0) {
+                sb.append("java.sql.SQLTransientConnectionException: pool-").append(seq)
+                        .append(" - Connection is not available, request timed out after 30000ms.\n")
+                        .append("\tat com.zaxxer.hikari.pool.HikariPool.createTimeoutException(HikariPool.java:696)\n")
+                        .append("\tat com.example.payment.PaymentRepository.save(PaymentRepository.java:")
+                        .append(40 + r.nextInt(60)).append(")\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    private int intOpt(String key, int def) {
+        return opts.containsKey(key) ? Integer.parseInt(opts.get(key)) : def;
+    }
+
+    private double doubleOpt(String key, double def) {
+        return opts.containsKey(key) ? Double.parseDouble(opts.get(key)) : def;
+    }
+
+    @FunctionalInterface
+    private interface BodyHandler {
+        void accept(String body) throws Exception;
+    }
+
+    /**
+     * Collects raw latencies; percentiles are computed once at the end.
+     */
+    private static class Recorder {
+
+        private final ConcurrentLinkedQueue<Long> nanos = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger errors = new AtomicInteger();
+
+        void record(long n) {
+            nanos.add(n);
+        }
+
+        void error() {
+            errors.incrementAndGet();
+        }
+
+        int count() {
+            return nanos.size();
+        }
+
+        void print(String name, int durationS) {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-22s %8d %7d %10.1f %10.1f %10.1f %9.2f%n",
+                    name, sorted.length, errors.get(),
+                    percentile(sorted, 0.50) / 1e6,
+                    percentile(sorted, 0.99) / 1e6,
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6,
+                    (double) sorted.length / durationS);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int idx = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+        }
+    }
+}
@@ -1,9 +1,20 @@
 package com.incidentiq.config;
 
+import com.incidentiq.util.LogFieldExtractor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class Config {
 
@@ -11,4 +22,40 @@ public class Config {
     public ChatClient chatClient(ChatClient.Builder builder) {
         return builder.build();
     }
+
+    /**
+     * @param zone zone for log timestamps that carry no offset
+     */
+    @Bean
+    public LogFieldExtractor logFieldExtractor(@Value("${app.ingest.fields.zone:UTC}") String zone) {
+        return new LogFieldExtractor(ZoneId.of(zone));
+    }
+
+    /**
+     * Shared client for the embedding provider. HTTP/2 is negotiated over TLS, so calls to
+     * the same host multiplex on one connection; the dispatcher bounds calls in flight.
+     */
+    @Bean
+    public OkHttpClient embeddingHttpClient(
+            @Value("${app.embedding.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+            @Value("${app.embedding.http.read-timeout-ms:30000}") long readTimeoutMs,
+            @Value("${app.embedding.http.write-timeout-ms:10000}") long writeTimeoutMs,
+            @Value("${app.embedding.http.call-timeout-ms:60000}") long callTimeoutMs,
+            @Value("${app.embedding.http.max-idle-connections:8}") int maxIdleConnections,
+            @Value("${app.embedding.http.keep-alive-ms:300000}") long keepAliveMs,
+            @Value("${app.embedding.http.max-requests:128}") int maxRequests) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        return new OkHttpClient.Builder()
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveMs, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .readTimeout(Duration.ofMillis(readTimeoutMs))
+                .writeTimeout(Duration.ofMillis(writeTimeoutMs))
+                .callTimeout(Duration.ofMillis(callTimeoutMs))
+                .retryOnConnectionFailure(true)
+                .build();
+    }
 }
@@ -1,18 +1,44 @@
 package com.incidentiq.config;
 
+import com.incidentiq.service.IngestionWorker;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import redis.clients.jedis.ConnectionPoolConfig;
 import redis.clients.jedis.JedisPooled;
 
+import java.time.Duration;
+
 @Configuration
+@Slf4j
 public class RedisConfig {
 
+    /**
+     * Every ingestion worker holds a connection while it blocks on BRPOP / XREADGROUP, so the
+     * pool is sized to the worker count plus headroom for search, job status, the embedding
+     * cache and the progress subscription. app.redis.pool.max-total overrides the sum.
+     */
     @Bean
     public JedisPooled jedis(
             @Value("${spring.data.redis.host}") String host,
-            @Value("${spring.data.redis.port}") int port
+            @Value("${spring.data.redis.port}") int port,
+            @Value("${app.ingest.workers.count:0}") int workerCount,
+            @Value("${app.redis.pool.headroom:16}") int headroom,
+            @Value("${app.redis.pool.max-total:0}") int maxTotal,
+            @Value("${app.redis.pool.max-wait-ms:2000}") long maxWaitMs
     ) {
-        return new JedisPooled(host, port);
+        int workers = IngestionWorker.resolveWorkerCount(workerCount);
+        int size = maxTotal > 0 ? maxTotal : workers + Math.max(1, headroom);
+        if (size <= workers) {
+            log.warn("Redis pool max-total={} leaves no connections beside {} ingestion workers", size, workers);
+        }
+
+        ConnectionPoolConfig pool = new ConnectionPoolConfig();
+        pool.setMaxTotal(size);
+        pool.setMaxIdle(size);
+        // fail a borrow instead of hanging the request thread when the pool is exhausted
+        pool.setMaxWait(Duration.ofMillis(maxWaitMs));
+        return new JedisPooled(pool, host, port);
     }
 }
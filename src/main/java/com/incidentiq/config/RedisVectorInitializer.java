@@ -5,10 +5,16 @@ import com.incidentiq.util.RedisSearchCommand;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import redis.clients.jedis.JedisPooled;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
+@ConditionalOnProperty(name = "app.vector.backend", havingValue = "redis", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class RedisVectorInitializer {
@@ -16,44 +22,134 @@ public class RedisVectorInitializer {
     private final JedisPooled jedis;
     private final EmbeddingService embeddingService;
 
-    private static final String INDEX_NAME = "idx:logs";
-    private static final String PREFIX = "emb:";
+    @Value("${app.redis.index-name:idx:logs}")
+    private String indexName;
+
+    @Value("${app.redis.prefix:emb:}")
+    private String prefix;
+
+    /** FLAT (exact, brute force) or HNSW (approximate graph). */
+    @Value("${app.redis.index.algorithm:FLAT}")
+    private String algorithm;
+
+    @Value("${app.redis.index.hnsw.m:16}")
+    private int hnswM;
+
+    @Value("${app.redis.index.hnsw.ef-construction:200}")
+    private int hnswEfConstruction;
+
+    @Value("${app.redis.index.hnsw.ef-runtime:10}")
+    private int hnswEfRuntime;
+
+    @Value("${app.redis.index.initial-cap:0}")
+    private int initialCap;
+
+    /** Also maintain an exact FLAT index over the same keys, used as ground truth by the index report. */
+    @Value("${app.redis.index.shadow-flat:false}")
+    private boolean shadowFlat;
 
     @PostConstruct
     public void init() {
-        String indexName = INDEX_NAME;
+        createIfMissing(indexName, algorithm);
+        if (shadowFlat && !"FLAT".equalsIgnoreCase(algorithm)) {
+            createIfMissing(shadowIndexName(indexName), "FLAT");
+        }
+    }
+
+    /**
+     * Structured fields written by VectorStoreService and used as KNN pre-filters.
+     */
+    static final List<List<String>> FILTER_FIELDS = List.of(
+            List.of("tsStart", "NUMERIC"),
+            List.of("tsEnd", "NUMERIC"),
+            List.of("severity", "NUMERIC"),
+            List.of("service", "TAG", "SEPARATOR", "|"),
+            List.of("traceId", "TAG", "SEPARATOR", "|")
+    );
 
+    public static String shadowIndexName(String indexName) {
+        return indexName + ":flat";
+    }
+
+    private void createIfMissing(String name, String algo) {
         // Check if index already exists
         try {
-            jedis.sendCommand(RedisSearchCommand.FT_INFO, indexName);
-            log.info("RediSearch index '{}' already exists", indexName);
+            jedis.sendCommand(RedisSearchCommand.FT_INFO, name);
+            log.info("RediSearch index '{}' already exists", name);
+            addMissingFilterFields(name);
             return;
         } catch (Exception e) {
-            log.info("Index '{}' not found, creating...", indexName);
+            log.info("Index '{}' not found, creating...", name);
         }
 
         int dim = embeddingService.getEmbeddingDim();
 
         try {
-            // FT.CREATE idx:logs ON HASH PREFIX 1 emb: SCHEMA text TEXT fileName TAG SEPARATOR "|" vector VECTOR FLAT 6 TYPE FLOAT32 DIM {dim} DISTANCE_METRIC COSINE
-            jedis.sendCommand(
-                    RedisSearchCommand.FT_CREATE,
-                    INDEX_NAME,
+            // FT.CREATE idx:logs ON HASH PREFIX 1 emb: SCHEMA text TEXT fileName TAG SEPARATOR "|" tsStart NUMERIC ... vector VECTOR {algo} {n} TYPE {type} DIM {dim} DISTANCE_METRIC COSINE [...]
+            List<String> args = new ArrayList<>(List.of(
+                    name,
                     "ON", "HASH",
-                    "PREFIX", "1", PREFIX,
+                    "PREFIX", "1", prefix,
                     "SCHEMA",
                     "text", "TEXT",
-                    "fileName", "TAG", "SEPARATOR", "|",
-                    "vector", "VECTOR", "FLAT", "6",
-                    "TYPE", "FLOAT32",
-                    "DIM", String.valueOf(dim),
-                    "DISTANCE_METRIC", "COSINE"
-            );
-
-            log.info("RediSearch vector index '{}' created successfully with DIM={}", indexName, dim);
+                    "fileName", "TAG", "SEPARATOR", "|"
+            ));
+            FILTER_FIELDS.forEach(args::addAll);
+            args.add("vector");
+            args.add("VECTOR");
+            List<String> attrs = vectorAttributes(algo, dim);
+            args.add(algo.toUpperCase());
+            args.add(String.valueOf(attrs.size()));
+            args.addAll(attrs);
+
+            jedis.sendCommand(RedisSearchCommand.FT_CREATE, args.toArray(String[]::new));
+
+            log.info("RediSearch vector index '{}' created successfully with {} {} DIM={}",
+                    name, algo, embeddingService.getVectorType(), dim);
         } catch (Exception e) {
-            log.error("Failed to create RediSearch index '{}'", indexName, e);
+            log.error("Failed to create RediSearch index '{}'", name, e);
             throw new IllegalStateException("Could not create Redis vector index", e);
         }
     }
+
+    /**
+     * Indexes created before the filter fields existed get them with FT.ALTER. Redis then
+     * re-scans the existing hashes; chunks stored before extraction simply lack the fields
+     * and do not match time or level filters.
+     */
+    private void addMissingFilterFields(String name) {
+        for (List<String> field : FILTER_FIELDS) {
+            List<String> args = new ArrayList<>(List.of(name, "SCHEMA", "ADD"));
+            args.addAll(field);
+            try {
+                jedis.sendCommand(RedisSearchCommand.FT_ALTER, args.toArray(String[]::new));
+                log.info("Added filter field '{}' to index '{}'", field.get(0), name);
+            } catch (Exception e) {
+                if (!String.valueOf(e.getMessage()).toLowerCase().contains("duplicate")) {
+                    log.warn("Could not add filter field '{}' to index '{}': {}", field.get(0), name, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<String> vectorAttributes(String algo, int dim) {
+        List<String> attrs = new ArrayList<>(List.of(
+                "TYPE", embeddingService.getVectorType(),
+                "DIM", String.valueOf(dim),
+                "DISTANCE_METRIC", "COSINE"
+        ));
+        if ("HNSW".equalsIgnoreCase(algo)) {
+            attrs.addAll(List.of(
+                    "M", String.valueOf(hnswM),
+                    "EF_CONSTRUCTION", String.valueOf(hnswEfConstruction),
+                    "EF_RUNTIME", String.valueOf(hnswEfRuntime)
+            ));
+        } else if (!"FLAT".equalsIgnoreCase(algo)) {
+            throw new IllegalArgumentException("Unsupported vector index algorithm: " + algo);
+        }
+        if (initialCap > 0) {
+            attrs.addAll(List.of("INITIAL_CAP", String.valueOf(initialCap)));
+        }
+        return attrs;
+    }
 }
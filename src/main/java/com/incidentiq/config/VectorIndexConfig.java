@@ -0,0 +1,33 @@
+package com.incidentiq.config;
+
+import com.incidentiq.service.MmapVectorIndex;
+import com.incidentiq.service.RediSearchKnnService;
+import com.incidentiq.service.VectorIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class VectorIndexConfig {
+
+    /**
+     * The retrieval backend injected wherever a {@link VectorIndex} is needed.
+     */
+    @Bean
+    @Primary
+    public VectorIndex vectorIndex(
+            @Value("${app.vector.backend:redis}") String backend,
+            RediSearchKnnService rediSearch,
+            ObjectProvider<MmapVectorIndex> mmap
+    ) {
+        if ("mmap".equalsIgnoreCase(backend)) {
+            return mmap.getObject();
+        }
+        if (!"redis".equalsIgnoreCase(backend)) {
+            throw new IllegalArgumentException("Unknown app.vector.backend: " + backend);
+        }
+        return rediSearch;
+    }
+}
@@ -1,17 +1,26 @@
 package com.incidentiq.controller;
 
 import com.incidentiq.model.RootCauseInsight;
+import com.incidentiq.model.SearchFilter;
 import com.incidentiq.service.IncidentInsightService;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/insights")
-@RequiredArgsConstructor
 public class InsightController {
 
     private final IncidentInsightService incidentInsightService;
+    private final long streamTimeoutMs;
+
+    public InsightController(IncidentInsightService incidentInsightService,
+                             @Value("${app.insights.stream-timeout-ms:120000}") long streamTimeoutMs) {
+        this.incidentInsightService = incidentInsightService;
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
 
     @GetMapping("/ping")
     public String ping() {
@@ -21,12 +30,36 @@ public class InsightController {
     @PostMapping("/root-cause")
     public RootCauseInsight getRootCause(@RequestBody RootCauseRequest request) {
         int topK = request.getTopK() != null ? request.getTopK() : 5;
-        return incidentInsightService.analyzeRootCause(request.getQuery(), topK);
+        return incidentInsightService.analyzeRootCause(request.getQuery(), topK, request.filter());
+    }
+
+    /**
+     * Server-sent events: evidence, then LLM tokens, then the parsed insight and timings.
+     */
+    @PostMapping(value = "/root-cause/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRootCause(@RequestBody RootCauseRequest request) {
+        int topK = request.getTopK() != null ? request.getTopK() : 5;
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        incidentInsightService.streamRootCause(request.getQuery(), topK, request.filter(), emitter);
+        return emitter;
     }
 
+    /**
+     * Filter fields are optional and mean the same as on /search/*.
+     */
     @Data
     public static class RootCauseRequest {
         private String query;
         private Integer topK;
+        private String from;
+        private String to;
+        private String since;
+        private String level;
+        private String service;
+        private String traceId;
+
+        SearchFilter filter() {
+            return SearchController.filter(from, to, since, level, service, traceId);
+        }
     }
 }
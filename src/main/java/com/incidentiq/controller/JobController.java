@@ -2,8 +2,11 @@ package com.incidentiq.controller;
 
 import com.incidentiq.model.IngestionJob;
 import com.incidentiq.service.IngestionService;
+import com.incidentiq.service.JobProgressBroadcaster;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Map;
 
@@ -12,9 +15,11 @@ import java.util.Map;
 public class JobController {
 
     private final IngestionService ingestionService;
+    private final JobProgressBroadcaster progressBroadcaster;
 
-    public JobController(IngestionService ingestionService) {
+    public JobController(IngestionService ingestionService, JobProgressBroadcaster progressBroadcaster) {
         this.ingestionService = ingestionService;
+        this.progressBroadcaster = progressBroadcaster;
     }
 
     @PostMapping(value = "/ingestText", consumes = MediaType.TEXT_PLAIN_VALUE)
@@ -53,7 +58,20 @@ public class JobController {
                 "status", job.getStatus(),
                 "processedChunks", job.getProcessedChunks(),
                 "totalChunks", job.getTotalChunks(),
+                "bytesRead", job.getBytesRead(),
+                "bytesPerSec", job.getBytesPerSec(),
+                "peakBufferedBytes", job.getPeakBufferedBytes(),
                 "message", job.getMessage() == null ? "" : job.getMessage()
         );
     }
+
+    /**
+     * Server-sent "progress" events (status, chunk counts, chunksPerSec, etaSeconds) until
+     * the job succeeds or fails. Replaces polling GET /jobs/{jobId}.
+     */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String jobId) {
+        SseEmitter emitter = progressBroadcaster.watch(jobId);
+        return emitter == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(emitter);
+    }
 }
@@ -1,17 +1,28 @@
 package com.incidentiq.controller;
 
+import com.incidentiq.model.IngestionJob;
 import com.incidentiq.model.LogChunk;
+import com.incidentiq.service.BulkIngestionService;
 import com.incidentiq.service.IngestionService;
 import com.incidentiq.service.LogChunkService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/logs")
@@ -19,30 +30,29 @@ public class LogUploadController {
 
     private final LogChunkService chunkService;
     private final IngestionService ingestionService;
+    private final BulkIngestionService bulkIngestionService;
+    private final Path spillDir;
 
     public LogUploadController(LogChunkService chunkService,
-                               IngestionService ingestionService) {
+                               IngestionService ingestionService,
+                               BulkIngestionService bulkIngestionService,
+                               @Value("${app.ingest.spill-dir:${java.io.tmpdir}}") String spillDir) {
         this.chunkService = chunkService;
         this.ingestionService = ingestionService;
+        this.bulkIngestionService = bulkIngestionService;
+        this.spillDir = Path.of(spillDir);
     }
 
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public Map<String, String> uploadFile(@RequestPart("file") MultipartFile file) throws Exception {
-        StringBuilder sb = new StringBuilder();
+        // The part is moved to a spill file and read back by the job, never buffered in heap
+        Path spill = newSpillFile();
+        file.transferTo(spill);
 
-        try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
-        }
-
-        var job = ingestionService.createAndStartJobFromText(
+        var job = ingestionService.createAndStartJobFromFile(
                 "file",
                 file.getOriginalFilename(),
-                sb.toString()
+                spill
         );
 
         return Map.of(
@@ -52,6 +62,92 @@ public class LogUploadController {
         );
     }
 
+    /**
+     * Raw-body upload. By default the request stream is chunked and enqueued while it is
+     * still arriving and the response is sent once the body is consumed. With spill=true
+     * the body is copied to a temp file and ingested in the background instead.
+     */
+    @PostMapping(value = "/upload/stream",
+            consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public Map<String, Object> uploadStream(
+            HttpServletRequest request,
+            @RequestParam(name = "fileName", defaultValue = "stream") String fileName,
+            @RequestParam(name = "spill", defaultValue = "false") boolean spill
+    ) throws Exception {
+
+        IngestionJob job;
+        try (InputStream in = request.getInputStream()) {
+            if (spill) {
+                Path file = newSpillFile();
+                Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+                job = ingestionService.createAndStartJobFromFile("stream", fileName, file);
+            } else {
+                job = ingestionService.ingestStream("stream", fileName, in);
+            }
+        }
+
+        return Map.of(
+                "jobId", job.getId(),
+                "status", job.getStatus(),
+                "totalChunks", job.getTotalChunks(),
+                "bytesRead", job.getBytesRead(),
+                "bytesPerSec", job.getBytesPerSec(),
+                "peakBufferedBytes", job.getPeakBufferedBytes()
+        );
+    }
+
+    /**
+     * Bulk upload: gzip or zstd (or uncompressed) body holding plain logs, NDJSON, or a
+     * tar/zip of many files. Each file gets a sub-job under the returned parent job; the
+     * body is streamed into the chunker and the response is sent once it is consumed.
+     * {@code format} forces how files are read (auto, text or ndjson).
+     */
+    @PostMapping(value = "/bulk", consumes = {
+            MediaType.APPLICATION_OCTET_STREAM_VALUE, MediaType.TEXT_PLAIN_VALUE, "application/gzip",
+            "application/zstd", "application/x-ndjson", "application/x-tar", "application/zip"})
+    public Map<String, Object> uploadBulk(
+            HttpServletRequest request,
+            @RequestParam(name = "fileName", defaultValue = "bulk") String fileName,
+            @RequestParam(name = "format", defaultValue = "auto") String format
+    ) throws Exception {
+
+        BulkIngestionService.Format bulkFormat = parseFormat(format);
+        BulkIngestionService.BulkResult result;
+        try (InputStream in = request.getInputStream()) {
+            result = bulkIngestionService.ingest(fileName, bulkFormat, in);
+        }
+
+        List<Map<String, Object>> files = result.files().stream()
+                .map(f -> Map.<String, Object>of(
+                        "fileName", f.fileName(),
+                        "jobId", f.job().getId(),
+                        "status", f.job().getStatus(),
+                        "totalChunks", f.job().getTotalChunks(),
+                        "bytesRead", f.job().getBytesRead()))
+                .toList();
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("jobId", result.parent().getId());
+        out.put("status", result.parent().getStatus());
+        out.put("message", result.parent().getMessage() == null ? "" : result.parent().getMessage());
+        out.put("totalChunks", result.parent().getTotalChunks());
+        out.put("wireBytes", result.wireBytes());
+        out.put("decompressedBytes", result.decompressedBytes());
+        out.put("files", files);
+        return out;
+    }
+
+    private static BulkIngestionService.Format parseFormat(String format) {
+        try {
+            return BulkIngestionService.Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format must be one of "
+                    + Arrays.stream(BulkIngestionService.Format.values())
+                    .map(f -> f.name().toLowerCase(Locale.ROOT))
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
     @PostMapping(value = "/uploadTextAsync", consumes = MediaType.TEXT_PLAIN_VALUE)
     public Map<String, String> uploadTextAsync(@RequestBody String text) {
 
@@ -73,4 +169,9 @@ public class LogUploadController {
         return "Chunks prepared: " + chunks.size() +
                 " (embedding & DB storage is only supported in async mode)";
     }
+
+    private Path newSpillFile() throws Exception {
+        Files.createDirectories(spillDir);
+        return Files.createTempFile(spillDir, "upload-", ".log");
+    }
 }
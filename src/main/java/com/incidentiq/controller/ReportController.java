@@ -0,0 +1,97 @@
+package com.incidentiq.controller;
+
+import com.incidentiq.model.HybridReport;
+import com.incidentiq.model.IndexReport;
+import com.incidentiq.model.VectorProfileReport;
+import com.incidentiq.service.IndexReportService;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/reports")
+@RequiredArgsConstructor
+public class ReportController {
+
+    private final IndexReportService indexReportService;
+
+    /**
+     * Recall@k and latency of the live index versus the shadow FLAT index.
+     * Requires app.redis.index.shadow-flat=true.
+     */
+    @PostMapping("/index")
+    public IndexReport indexReport(@RequestBody IndexReportRequest request) {
+        List<String> queries = request.getQueries();
+        if (queries == null || queries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "queries must not be empty");
+        }
+        if (queries.stream().anyMatch(q -> q == null || q.isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "queries must not be blank");
+        }
+        int k = request.getK() != null ? request.getK() : 10;
+        return indexReportService.compare(queries, k, request.getEfRuntime());
+    }
+
+    /**
+     * Memory per million chunks and recall@k for each dimension / element type profile.
+     * Uses the given texts, or samples stored chunks when none are given.
+     */
+    @PostMapping("/vector-profiles")
+    public VectorProfileReport vectorProfiles(@RequestBody ProfileReportRequest request) {
+        int k = request.getK() != null ? request.getK() : 10;
+        int sampleSize = request.getSampleSize() != null ? request.getSampleSize() : 200;
+        return indexReportService.compareProfiles(request.getTexts(), sampleSize, k);
+    }
+
+    /**
+     * Latency and relevance of the filter and rrf hybrid modes, and of the bm25 and knn legs
+     * on their own. Cases may list the chunk ids that should be found for recall@k and MRR.
+     */
+    @PostMapping("/hybrid")
+    public HybridReport hybridReport(@RequestBody HybridReportRequest request) {
+        int k = request.getK() != null ? request.getK() : 10;
+        List<HybridCase> cases = request.getCases();
+        if (cases == null || cases.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "cases must not be empty");
+        }
+        if (cases.stream().anyMatch(c -> c == null || c.getQuery() == null || c.getQuery().isBlank())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "every case needs a query");
+        }
+        return indexReportService.compareHybrid(
+                cases.stream().map(HybridCase::getQuery).toList(),
+                cases.stream().map(HybridCase::getRelevant).toList(),
+                k, request.getEfRuntime());
+    }
+
+    @Data
+    public static class HybridReportRequest {
+        private List<HybridCase> cases;
+        private Integer k;
+        private Integer efRuntime;
+    }
+
+    @Data
+    public static class HybridCase {
+        private String query;
+        /** Ids (emb:...) of chunks that answer the query; optional. */
+        private List<String> relevant;
+    }
+
+    @Data
+    public static class ProfileReportRequest {
+        private List<String> texts;
+        private Integer sampleSize;
+        private Integer k;
+    }
+
+    @Data
+    public static class IndexReportRequest {
+        private List<String> queries;
+        private Integer k;
+        private Integer efRuntime;
+    }
+}
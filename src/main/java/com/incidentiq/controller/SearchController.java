@@ -1,8 +1,13 @@
 package com.incidentiq.controller;
 
+import com.incidentiq.model.SearchFilter;
 import com.incidentiq.model.SearchHit;
 import com.incidentiq.service.SearchService;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -11,24 +16,96 @@ import java.util.List;
 public class SearchController {
 
     private final SearchService searchService;
+    private final Integer semanticEfRuntime;
+    private final Integer hybridEfRuntime;
+    private final int batchMaxQueries;
 
-    public SearchController(SearchService searchService) {
+    public SearchController(SearchService searchService,
+                            @Value("${app.search.semantic.ef-runtime:#{null}}") Integer semanticEfRuntime,
+                            @Value("${app.search.hybrid.ef-runtime:#{null}}") Integer hybridEfRuntime,
+                            @Value("${app.search.batch.max-queries:500}") int batchMaxQueries) {
         this.searchService = searchService;
+        this.semanticEfRuntime = semanticEfRuntime;
+        this.hybridEfRuntime = hybridEfRuntime;
+        this.batchMaxQueries = batchMaxQueries;
     }
 
+    /**
+     * Optional filters, applied by RediSearch before the KNN: {@code since} (15m, 1h, 2d) or
+     * {@code from}/{@code to} (ISO-8601 or epoch millis), minimum {@code level}, comma-separated
+     * {@code service} names and {@code traceId}.
+     */
     @GetMapping("/semantic")
     public List<SearchHit> semantic(
             @RequestParam String query,
-            @RequestParam(defaultValue = "3") int k
+            @RequestParam(defaultValue = "3") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String traceId
     ) {
-        return searchService.semanticSearch(query, k);
+        SearchFilter filter = filter(from, to, since, level, service, traceId);
+        return searchService.semanticSearch(query, k, ef != null ? ef : semanticEfRuntime, filter);
     }
 
     @GetMapping("/hybrid")
     public List<SearchHit> hybrid(
             @RequestParam String query,
-            @RequestParam(defaultValue = "3") int k
+            @RequestParam(defaultValue = "3") int k,
+            @RequestParam(required = false) Integer ef,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String traceId
     ) {
-        return searchService.hybridSearch(query, k);
+        SearchFilter filter = filter(from, to, since, level, service, traceId);
+        return searchService.hybridSearch(query, k, ef != null ? ef : hybridEfRuntime, filter);
+    }
+
+    /**
+     * Semantic search for many queries in one call, with the same k, ef and filters for
+     * all of them. Results come back in query order.
+     */
+    @PostMapping("/batch")
+    public List<SearchService.BatchResult> batch(@RequestBody BatchSearchRequest request) {
+        List<String> queries = request.getQueries();
+        if (queries == null || queries.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "queries must not be empty");
+        }
+        if (queries.size() > batchMaxQueries) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + batchMaxQueries + " queries per batch, got " + queries.size());
+        }
+        SearchFilter filter = filter(request.getFrom(), request.getTo(), request.getSince(),
+                request.getLevel(), request.getService(), request.getTraceId());
+        int k = request.getK() != null ? request.getK() : 3;
+        Integer ef = request.getEf() != null ? request.getEf() : semanticEfRuntime;
+        return searchService.batchSearch(queries, k, ef, filter);
+    }
+
+    @Data
+    public static class BatchSearchRequest {
+        private List<String> queries;
+        private Integer k;
+        private Integer ef;
+        private String from;
+        private String to;
+        private String since;
+        private String level;
+        private String service;
+        private String traceId;
+    }
+
+    static SearchFilter filter(String from, String to, String since, String level, String service, String traceId) {
+        try {
+            return SearchFilter.parse(from, to, since, level, service, traceId);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 }
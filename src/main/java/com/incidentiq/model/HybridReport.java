@@ -0,0 +1,39 @@
+package com.incidentiq.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Latency and relevance of each hybrid retrieval strategy over the same queries.
+ */
+@Data
+@Builder
+public class HybridReport {
+
+    private String backend;
+    private int k;
+    private int queries;
+
+    /** Queries that came with relevant chunk ids. */
+    private int judgedQueries;
+
+    private List<ModeResult> modes;
+
+    /** Mean fraction of the rrf top-k also in the filter top-k. */
+    private double rrfFilterOverlapAtK;
+
+    @Data
+    @Builder
+    public static class ModeResult {
+        /** bm25, knn, filter or rrf */
+        private String mode;
+        private double p50Ms;
+        private double p99Ms;
+        private double meanHits;
+        /** Over judged queries only; null when there are none. */
+        private Double recallAtK;
+        private Double mrr;
+    }
+}
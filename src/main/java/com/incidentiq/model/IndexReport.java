@@ -0,0 +1,29 @@
+package com.incidentiq.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Recall and latency of the configured vector index measured against an exact FLAT index
+ * over the same keys.
+ */
+@Data
+@Builder
+public class IndexReport {
+
+    private String index;
+    private String algorithm;
+    private String baselineIndex;
+
+    private int k;
+    private Integer efRuntime;
+    private int queries;
+
+    /** Mean fraction of the exact top-k that the index returned. */
+    private double recallAtK;
+
+    private double indexP50Ms;
+    private double indexP99Ms;
+    private double baselineP50Ms;
+    private double baselineP99Ms;
+}
@@ -12,12 +12,20 @@ public class IngestionJob {
     private String status; // PENDING, RUNNING, SUCCESS, FAILED
     private String message;
 
+    /** Set on the per-file sub-jobs of a bulk upload. */
+    private String parentId;
+
     private Instant createdAt;
     private Instant finishedAt;
 
     private int processedChunks;
     private int totalChunks;
 
+    // Upload read stats
+    private long bytesRead;
+    private double bytesPerSec;
+    private long peakBufferedBytes;
+
     public static IngestionJob newJob() {
         IngestionJob j = new IngestionJob();
         j.id = UUID.randomUUID().toString();
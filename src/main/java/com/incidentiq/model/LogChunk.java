@@ -1,5 +1,6 @@
 package com.incidentiq.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 
 import java.util.UUID;
@@ -14,6 +15,23 @@ public class LogChunk {
     private int chunkNo;
     private String jobId;
 
+    // Queue entry this chunk was delivered as; used to acknowledge it, never serialized
+    @JsonIgnore
+    private String deliveryId;
+
+    // Filter fields, extracted when the chunk is stored (LogFieldExtractor); not queued
+    @JsonIgnore
+    private Long tsStart;
+    @JsonIgnore
+    private Long tsEnd;
+    @JsonIgnore
+    private int severity;
+    /** '|'-separated, as stored in the TAG field. */
+    @JsonIgnore
+    private String services;
+    @JsonIgnore
+    private String traceIds;
+
     public LogChunk() {
         // Default constructor for Jackson
     }
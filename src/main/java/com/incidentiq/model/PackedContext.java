@@ -0,0 +1,26 @@
+package com.incidentiq.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Evidence text as it goes into the LLM prompt, with the packing stats.
+ */
+@Data
+@Builder
+public class PackedContext {
+
+    private String text;
+
+    private int inputTokens;
+    private int packedTokens;
+
+    private int evidenceIn;
+    private int evidenceKept;
+    /** Hits folded into a near-identical, higher-ranked hit. */
+    private int nearDuplicates;
+    /** Lines shown once with a repeat count instead of verbatim. */
+    private int linesCollapsed;
+    /** Evidence was cut to fit the token budget. */
+    private boolean truncated;
+}
@@ -6,7 +6,7 @@ import lombok.Data;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class RootCauseInsight {
 
     private String query;
@@ -20,6 +20,9 @@ public class RootCauseInsight {
 
     private List<EvidenceHit> evidence;
 
+    /** Served from the result cache or a concurrent identical request, without its own LLM call. */
+    private boolean cacheHit;
+
     @Data
     @Builder
     public static class EvidenceHit {
@@ -0,0 +1,148 @@
+package com.incidentiq.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Structured pre-filter for KNN search: time window, minimum level, services and trace id.
+ * A chunk matches the time window when its [tsStart, tsEnd] overlaps it. {@code since} is
+ * kept as a duration and resolved against the clock per query, so a filter is a stable
+ * cache/coalescing key.
+ */
+@Data
+@Builder
+public class SearchFilter {
+
+    /** Log level ranks stored in the {@code severity} field; 0 means no level found. */
+    public static final List<String> LEVELS = List.of("", "TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL");
+
+    private Instant from;
+    private Instant to;
+    private Duration since;
+    private Integer minSeverity;
+    private List<String> services;
+    private String traceId;
+
+    public boolean isEmpty() {
+        return from == null && to == null && since == null && minSeverity == null
+                && (services == null || services.isEmpty()) && traceId == null;
+    }
+
+    public boolean hasTimeWindow() {
+        return from != null || to != null || since != null;
+    }
+
+    /** Lower bound in epoch millis, or null. With both set, the later of from and now - since wins. */
+    public Long fromMillis(long nowMillis) {
+        Long f = from == null ? null : from.toEpochMilli();
+        if (since != null) {
+            long s = nowMillis - since.toMillis();
+            f = f == null ? s : Math.max(f, s);
+        }
+        return f;
+    }
+
+    public Long toMillis() {
+        return to == null ? null : to.toEpochMilli();
+    }
+
+    /**
+     * Same semantics as the RediSearch expression, for backends that filter after the scan.
+     * Missing time bounds on the chunk never match a time window.
+     */
+    public boolean matches(Long tsStart, Long tsEnd, int severity, Collection<String> chunkServices,
+                           Collection<String> traceIds, long nowMillis) {
+        if (hasTimeWindow()) {
+            Long f = fromMillis(nowMillis);
+            Long t = toMillis();
+            if (tsStart == null || tsEnd == null) return false;
+            if (f != null && tsEnd < f) return false;
+            if (t != null && tsStart > t) return false;
+        }
+        if (minSeverity != null && severity < minSeverity) return false;
+        if (services != null && !services.isEmpty()
+                && (chunkServices == null || services.stream().noneMatch(chunkServices::contains))) return false;
+        return traceId == null || (traceIds != null && traceIds.contains(traceId));
+    }
+
+    public static int severityOf(String level) {
+        String l = level.trim().toUpperCase(Locale.ROOT);
+        return switch (l) {
+            case "WARNING" -> LEVELS.indexOf("WARN");
+            case "ERR", "SEVERE" -> LEVELS.indexOf("ERROR");
+            case "CRITICAL", "CRIT", "PANIC", "EMERG", "ALERT" -> LEVELS.indexOf("FATAL");
+            case "NOTICE" -> LEVELS.indexOf("INFO");
+            default -> LEVELS.indexOf(l) > 0 ? LEVELS.indexOf(l) : 0;
+        };
+    }
+
+    /**
+     * Parses request parameters; all may be null or blank.
+     *
+     * @param from    ISO-8601 instant or epoch millis
+     * @param to      ISO-8601 instant or epoch millis
+     * @param since   relative window such as 15m, 1h, 2d, or an ISO-8601 duration
+     * @param level   minimum level, e.g. WARN
+     * @param service comma-separated service or host names
+     * @throws IllegalArgumentException on a value that cannot be parsed
+     */
+    public static SearchFilter parse(String from, String to, String since, String level,
+                                     String service, String traceId) {
+        SearchFilter f = SearchFilter.builder()
+                .from(blank(from) ? null : instant(from))
+                .to(blank(to) ? null : instant(to))
+                .since(blank(since) ? null : duration(since))
+                .services(blank(service) ? null : Arrays.stream(service.split(","))
+                        .map(String::trim).filter(s -> !s.isEmpty()).toList())
+                .traceId(blank(traceId) ? null : traceId.trim())
+                .build();
+        if (!blank(level)) {
+            int sev = severityOf(level);
+            if (sev == 0) {
+                throw new IllegalArgumentException("Unknown level: " + level);
+            }
+            f.setMinSeverity(sev);
+        }
+        return f;
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static Instant instant(String s) {
+        String v = s.trim();
+        try {
+            return v.chars().allMatch(Character::isDigit) ? Instant.ofEpochMilli(Long.parseLong(v)) : Instant.parse(v);
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Not an ISO-8601 instant or epoch millis: " + s);
+        }
+    }
+
+    private static Duration duration(String s) {
+        String v = s.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (v.startsWith("p")) {
+                return Duration.parse(v.toUpperCase(Locale.ROOT));
+            }
+            long n = Long.parseLong(v.substring(0, v.length() - 1));
+            return switch (v.charAt(v.length() - 1)) {
+                case 's' -> Duration.ofSeconds(n);
+                case 'm' -> Duration.ofMinutes(n);
+                case 'h' -> Duration.ofHours(n);
+                case 'd' -> Duration.ofDays(n);
+                default -> throw new IllegalArgumentException("Unknown unit in duration: " + s);
+            };
+        } catch (DateTimeParseException | NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Not a duration (15m, 1h, 2d or ISO-8601): " + s);
+        }
+    }
+}
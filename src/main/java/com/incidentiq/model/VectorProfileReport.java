@@ -0,0 +1,30 @@
+package com.incidentiq.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Memory and recall@k of candidate storage profiles, measured against full 3072-dim FLOAT32
+ * vectors of the same sample texts.
+ */
+@Data
+@Builder
+public class VectorProfileReport {
+
+    private int samples;
+    private int k;
+    private List<ProfileResult> profiles;
+
+    @Data
+    @Builder
+    public static class ProfileResult {
+        private int dimension;
+        private String vectorType;
+        private int bytesPerVector;
+        /** Raw vector payload only; HNSW graph links and hash overhead come on top. */
+        private double megabytesPerMillionChunks;
+        private double recallAtK;
+    }
+}
@@ -0,0 +1,217 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.IngestionJob;
+import com.incidentiq.util.CountingInputStream;
+import com.incidentiq.util.NdjsonLogReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Bulk ingest of compressed and bundled logs, read straight from the request stream.
+ * <p>
+ * The body may be gzip (multi-member, as written by logrotate and most shippers) or zstd,
+ * detected by magic bytes. The decompressed stream is a tar or zip archive, again detected
+ * by magic, or a single file. Each file becomes a sub-job of one parent job and is
+ * decompressed once more if it is itself .gz/.zst. NDJSON files (by extension, by the
+ * {@code format} hint, or because they start with '{') are rendered to log lines on the fly.
+ * Nothing is written to disk and only one file is read at a time.
+ */
+@Service
+@Slf4j
+public class BulkIngestionService {
+
+    public enum Format { AUTO, TEXT, NDJSON }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Enough to see the tar "ustar" magic at offset 257. */
+    private static final int SNIFF_BYTES = 512;
+
+    private final IngestionService ingestionService;
+    private final Counter wireBytes;
+    private final Counter decompressedBytes;
+    private final Counter files;
+
+    public BulkIngestionService(IngestionService ingestionService, MeterRegistry registry) {
+        this.ingestionService = ingestionService;
+        this.wireBytes = Counter.builder("incidentiq.ingest.bulk.bytes")
+                .description("Bulk upload bytes")
+                .tag("stage", "wire")
+                .register(registry);
+        this.decompressedBytes = Counter.builder("incidentiq.ingest.bulk.bytes")
+                .description("Bulk upload bytes")
+                .tag("stage", "decompressed")
+                .register(registry);
+        this.files = Counter.builder("incidentiq.ingest.bulk.files")
+                .description("Files ingested from bulk uploads")
+                .register(registry);
+    }
+
+    /**
+     * Reads the whole body on the calling thread, enqueueing chunks as they are produced.
+     * Returns once the body is consumed; embedding continues in the workers.
+     */
+    public BulkResult ingest(String fileName, Format format, InputStream body) {
+        CountingInputStream wire = new CountingInputStream(body);
+        IngestionJob parent = ingestionService.startParent();
+        long startNanos = System.nanoTime();
+        List<FileResult> results = new ArrayList<>();
+
+        try {
+            BufferedInputStream in = decompress(new BufferedInputStream(wire, BUFFER_SIZE));
+            ArchiveInputStream<?> archive = openArchive(in);
+            if (archive == null) {
+                results.add(ingestFile(parent, stripCompressionSuffix(fileName), in, format));
+            } else {
+                ArchiveEntry entry;
+                while ((entry = archive.getNextEntry()) != null) {
+                    if (skip(entry)) {
+                        continue;
+                    }
+                    results.add(ingestFile(parent, entry.getName(), archive, format));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Bulk upload {} for job {} could not be read after {} files",
+                    fileName, parent.getId(), results.size(), e);
+            ingestionService.failParent(parent, "Unreadable upload after " + results.size() + " files: " + e.getMessage());
+            return summarize(parent, results, wire.getCount());
+        }
+
+        ingestionService.finishParent(parent, results.stream().map(FileResult::job).toList(), wire.getCount(), startNanos);
+        return summarize(parent, results, wire.getCount());
+    }
+
+    private FileResult ingestFile(IngestionJob parent, String name, InputStream source, Format format) throws IOException {
+        // the reader is closed per file; the archive stream must stay open for the next entry
+        InputStream shielded = new FilterInputStream(source) {
+            @Override
+            public void close() {
+            }
+        };
+        BufferedInputStream in = decompress(new BufferedInputStream(shielded, BUFFER_SIZE));
+        String fileName = stripCompressionSuffix(name);
+        boolean ndjson = format == Format.NDJSON || (format == Format.AUTO && (isNdjsonName(fileName) || startsWithBrace(in)));
+
+        CountingInputStream counting = new CountingInputStream(in);
+        Reader reader = new InputStreamReader(counting, StandardCharsets.UTF_8);
+        if (ndjson) {
+            reader = new NdjsonLogReader(reader);
+        }
+
+        IngestionJob child = ingestionService.ingestChild(parent, "bulk", fileName, reader, counting::getCount);
+        files.increment();
+        decompressedBytes.increment(child.getBytesRead());
+        return new FileResult(fileName, child);
+    }
+
+    private BulkResult summarize(IngestionJob parent, List<FileResult> results, long wire) {
+        wireBytes.increment(wire);
+        long decompressed = results.stream().mapToLong(r -> r.job().getBytesRead()).sum();
+        return new BulkResult(parent, results, wire, decompressed);
+    }
+
+    /**
+     * Wraps the stream in a gzip or zstd decoder if it starts with the matching magic.
+     */
+    private static BufferedInputStream decompress(BufferedInputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+
+        if (magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return new BufferedInputStream(new GzipCompressorInputStream(in, true), BUFFER_SIZE);
+        }
+        if (magic.length == 4 && (magic[0] & 0xff) == 0x28 && (magic[1] & 0xff) == 0xb5
+                && (magic[2] & 0xff) == 0x2f && (magic[3] & 0xff) == 0xfd) {
+            return new BufferedInputStream(new ZstdCompressorInputStream(in), BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    private static ArchiveInputStream<?> openArchive(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        byte[] head = in.readNBytes(SNIFF_BYTES);
+        in.reset();
+
+        if (head.length >= 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4) {
+            return new ZipArchiveInputStream(in);
+        }
+        if (head.length >= 262 && new String(head, 257, 5, StandardCharsets.US_ASCII).equals("ustar")) {
+            return new TarArchiveInputStream(in);
+        }
+        return null;
+    }
+
+    private static boolean skip(ArchiveEntry entry) {
+        if (entry.isDirectory()) {
+            return true;
+        }
+        if (entry instanceof TarArchiveEntry tar && !tar.isFile()) {
+            return true; // links, devices, pax headers
+        }
+        String name = entry.getName();
+        return name.startsWith("__MACOSX/") || name.contains("/._") || name.startsWith("._");
+    }
+
+    private static boolean startsWithBrace(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_BYTES);
+        try {
+            for (int i = 0; i < SNIFF_BYTES; i++) {
+                int b = in.read();
+                if (b < 0 || !Character.isWhitespace(b)) {
+                    return b == '{';
+                }
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static boolean isNdjsonName(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        return n.endsWith(".ndjson") || n.endsWith(".jsonl");
+    }
+
+    private static String stripCompressionSuffix(String name) {
+        String n = name.toLowerCase(Locale.ROOT);
+        if (n.endsWith(".gz")) {
+            return name.substring(0, name.length() - 3);
+        }
+        if (n.endsWith(".zst")) {
+            return name.substring(0, name.length() - 4);
+        }
+        return name;
+    }
+
+    public record FileResult(String fileName, IngestionJob job) {
+    }
+
+    /**
+     * @param wireBytes         bytes received, before decompression
+     * @param decompressedBytes bytes fed to the chunker across all files
+     */
+    public record BulkResult(IngestionJob parent, List<FileResult> files, long wireBytes, long decompressedBytes) {
+    }
+}
@@ -0,0 +1,161 @@
+package com.incidentiq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Two-tier, content-addressed cache of encoded embedding vectors.
+ * <p>
+ * Entries are keyed by SHA-256 of the model name plus the whitespace-normalized text
+ * and hold the exact bytes written to the vector index, so a hit needs no re-encoding.
+ * Tier 1 is a size-bounded Caffeine (W-TinyLFU) cache, tier 2 is Redis with a TTL.
+ */
+@Component
+@Slf4j
+public class EmbeddingCache {
+
+    private static final String REDIS_PREFIX = "embcache:";
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final JedisPooled jedis;
+    private final Cache<String, byte[]> local;
+    private final long redisTtlSeconds;
+    private final boolean enabled;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public EmbeddingCache(JedisPooled jedis,
+                          MeterRegistry registry,
+                          @Value("${app.embedding.cache.enabled:true}") boolean enabled,
+                          @Value("${app.embedding.cache.local-max-bytes:67108864}") long localMaxBytes,
+                          @Value("${app.embedding.cache.redis-ttl-seconds:604800}") long redisTtlSeconds) {
+        this.jedis = jedis;
+        this.enabled = enabled;
+        this.redisTtlSeconds = redisTtlSeconds;
+        this.local = Caffeine.newBuilder()
+                .maximumWeight(localMaxBytes)
+                .weigher((String k, byte[] v) -> v.length)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, local, "embedding.local");
+        this.redisHits = Counter.builder("incidentiq.embedding.cache")
+                .tag("tier", "redis").tag("result", "hit").register(registry);
+        this.redisMisses = Counter.builder("incidentiq.embedding.cache")
+                .tag("tier", "redis").tag("result", "miss").register(registry);
+    }
+
+    public String key(String model, String text) {
+        String normalized = WHITESPACE.matcher(text == null ? "" : text).replaceAll(" ").trim();
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(model.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            return HexFormat.of().formatHex(sha.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Looks the keys up in both tiers. The result is aligned with {@code keys};
+     * misses are {@code null}. Redis hits are promoted to the local tier.
+     */
+    public List<byte[]> getAll(List<String> keys) {
+        List<byte[]> out = new ArrayList<>(keys.size());
+        if (!enabled) {
+            keys.forEach(k -> out.add(null));
+            return out;
+        }
+
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] v = local.getIfPresent(keys.get(i));
+            out.add(v);
+            if (v == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return out;
+        }
+
+        try {
+            byte[][] redisKeys = new byte[missing.size()][];
+            for (int i = 0; i < missing.size(); i++) {
+                redisKeys[i] = redisKey(keys.get(missing.get(i)));
+            }
+            List<byte[]> found = jedis.mget(redisKeys);
+            for (int i = 0; i < missing.size(); i++) {
+                byte[] v = found.get(i);
+                if (v == null) {
+                    redisMisses.increment();
+                    continue;
+                }
+                redisHits.increment();
+                int idx = missing.get(i);
+                out.set(idx, v);
+                local.put(keys.get(idx), v);
+            }
+        } catch (Exception e) {
+            log.warn("Embedding cache lookup in Redis failed, treating as miss", e);
+        }
+        return out;
+    }
+
+    public byte[] get(String key) {
+        return getAll(List.of(key)).get(0);
+    }
+
+    public void put(String key, byte[] vector) {
+        if (!enabled) {
+            return;
+        }
+        local.put(key, vector);
+        try {
+            jedis.setex(redisKey(key), redisTtlSeconds, vector);
+        } catch (Exception e) {
+            log.warn("Failed to write embedding cache entry to Redis", e);
+        }
+    }
+
+    /**
+     * Stores a batch of entries; the Redis tier is written in one pipelined round trip.
+     */
+    public void putAll(Map<String, byte[]> entries) {
+        if (!enabled || entries.isEmpty()) {
+            return;
+        }
+        local.putAll(entries);
+        try (Pipeline p = jedis.pipelined()) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                p.setex(redisKey(e.getKey()), redisTtlSeconds, e.getValue());
+            }
+            p.sync();
+        } catch (Exception e) {
+            log.warn("Failed to write {} embedding cache entries to Redis", entries.size(), e);
+        }
+    }
+
+    private static byte[] redisKey(String key) {
+        return (REDIS_PREFIX + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
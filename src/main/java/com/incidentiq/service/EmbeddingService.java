@@ -1,38 +1,175 @@
 package com.incidentiq.service;
 
+import com.incidentiq.util.VectorCodec;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class EmbeddingService {
 
     private final GeminiEmbeddingClient embeddingClient;
+    private final EmbeddingCache cache;
+    private final String vectorType;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary batchSize;
 
-    public EmbeddingService(GeminiEmbeddingClient embeddingClient) {
+    public EmbeddingService(GeminiEmbeddingClient embeddingClient,
+                            EmbeddingCache cache,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.embedding.vector-type:FLOAT32}") String vectorType) {
         this.embeddingClient = embeddingClient;
+        this.cache = cache;
+        this.meterRegistry = meterRegistry;
+        this.vectorType = vectorType.toUpperCase();
+        VectorCodec.bytesPerElement(this.vectorType); // fail fast on unsupported types
+
+        this.batchSize = DistributionSummary.builder("incidentiq.embed.batch.size")
+                .description("Texts sent to the embedding provider per call (cache misses only)")
+                .register(meterRegistry);
     }
 
     public float[] getEmbedding(String text) {
-        return embeddingClient.embed(text == null ? "" : text);
+        return toFloats(getEmbeddingAsBytes(text));
+    }
+
+    /**
+     * Embeds all texts with as few provider calls as possible, preserving order.
+     */
+    public List<float[]> getEmbeddings(List<String> texts) {
+        List<float[]> out = new ArrayList<>(texts.size());
+        for (byte[] vec : getEmbeddingsAsBytes(texts)) {
+            out.add(toFloats(vec));
+        }
+        return out;
+    }
+
+    /**
+     * Cached vectors are served as stored; only the misses go to the provider,
+     * in a single batch call.
+     */
+    public List<byte[]> getEmbeddingsAsBytes(List<String> texts) {
+        String model = cacheNamespace();
+        List<String> keys = new ArrayList<>(texts.size());
+        for (String t : texts) {
+            keys.add(cache.key(model, t));
+        }
+
+        List<byte[]> out = cache.getAll(keys);
+
+        // identical texts within one batch are embedded once
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        List<String> missingTexts = new ArrayList<>();
+        for (int i = 0; i < out.size(); i++) {
+            if (out.get(i) == null) {
+                List<Integer> slots = missing.computeIfAbsent(keys.get(i), k -> new ArrayList<>());
+                if (slots.isEmpty()) {
+                    missingTexts.add(texts.get(i) == null ? "" : texts.get(i));
+                }
+                slots.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return out;
+        }
+
+        batchSize.record(missingTexts.size());
+        List<float[]> embedded = timed("batch", () -> embeddingClient.embedBatch(missingTexts));
+        Map<String, byte[]> fresh = new LinkedHashMap<>();
+        int n = 0;
+        for (Map.Entry<String, List<Integer>> e : missing.entrySet()) {
+            byte[] bytes = toBytes(embedded.get(n++));
+            fresh.put(e.getKey(), bytes);
+            for (int idx : e.getValue()) {
+                out.set(idx, bytes);
+            }
+        }
+        cache.putAll(fresh);
+        return out;
     }
 
     public byte[] getEmbeddingAsBytes(String text) {
-        float[] vec = getEmbedding(text);
-        ByteBuffer buffer = ByteBuffer.allocate(vec.length * 4);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        String safe = text == null ? "" : text;
+        String key = cache.key(cacheNamespace(), safe);
 
-        for (float f : vec) {
-            buffer.putFloat(f);
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return cached;
         }
-        return buffer.array();
+
+        batchSize.record(1);
+        byte[] bytes = toBytes(timed("single", () -> embeddingClient.embed(safe)));
+        cache.put(key, bytes);
+        return bytes;
+    }
+
+    /**
+     * Provider round-trip time, tagged by call type and outcome.
+     */
+    private <T> T timed(String call, Supplier<T> providerCall) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = providerCall.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("incidentiq.embed.latency")
+                    .description("Embedding provider call latency")
+                    .tag("call", call)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Cached bytes depend on model, dimension and element type, so all three scope the key.
+     */
+    private String cacheNamespace() {
+        return embeddingClient.getModelName() + ":" + getEmbeddingDim() + ":" + vectorType;
+    }
+
+    private byte[] toBytes(float[] vec) {
+        return VectorCodec.encode(vec, vectorType);
+    }
+
+    private float[] toFloats(byte[] bytes) {
+        return VectorCodec.decode(bytes, vectorType);
+    }
+
+    /**
+     * Decodes vector bytes produced by this service back to floats.
+     */
+    public float[] decode(byte[] bytes) {
+        return toFloats(bytes);
     }
 
     public int getEmbeddingDim() {
         return embeddingClient.getConfiguredDim();
     }
 
+    /**
+     * RediSearch vector TYPE of the stored bytes (FLOAT32 or FLOAT16).
+     */
+    public String getVectorType() {
+        return vectorType;
+    }
+
+    /**
+     * Size of one encoded vector; anything else would be silently skipped by the index.
+     */
+    public int getVectorByteLength() {
+        return getEmbeddingDim() * VectorCodec.bytesPerElement(vectorType);
+    }
+
     public byte[] embedToBinary(String text) {
         return getEmbeddingAsBytes(text);
     }
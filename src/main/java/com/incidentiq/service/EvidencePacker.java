@@ -0,0 +1,179 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.PackedContext;
+import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.util.SimHash;
+import com.incidentiq.util.TokenEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs retrieved evidence into a token-budgeted prompt context.
+ * <ol>
+ *   <li>Hits whose SimHash is within {@code near-duplicate-bits} of a higher-ranked hit are
+ *       folded into it ("+N similar").</li>
+ *   <li>Lines that repeat after masking numbers and ids (the same stack frame, the same
+ *       message with another timestamp) are shown once, where they first occur, prefixed
+ *       with their occurrence count.</li>
+ *   <li>Blocks are added in rank order until the token estimate reaches the budget.</li>
+ * </ol>
+ * Tokens are estimated with {@link TokenEstimator}.
+ */
+@Component
+public class EvidencePacker {
+
+    private final int maxTokens;
+    private final int nearDuplicateBits;
+
+    public EvidencePacker(@Value("${app.insights.context.max-tokens:4000}") int maxTokens,
+                          @Value("${app.insights.context.near-duplicate-bits:3}") int nearDuplicateBits) {
+        this.maxTokens = maxTokens;
+        this.nearDuplicateBits = nearDuplicateBits;
+    }
+
+    public PackedContext pack(List<EvidenceHit> evidence) {
+        int inputChars = 0;
+        List<Block> blocks = new ArrayList<>();
+
+        // 1) near-duplicate collapse, keeping the highest-ranked representative
+        for (EvidenceHit hit : evidence) {
+            String text = hit.getText() == null ? "" : hit.getText();
+            inputChars += text.length();
+            long fp = SimHash.fingerprint(text);
+
+            Block similar = null;
+            for (Block b : blocks) {
+                if (SimHash.distance(b.fingerprint, fp) <= nearDuplicateBits) {
+                    similar = b;
+                    break;
+                }
+            }
+            if (similar != null) {
+                similar.duplicates++;
+                similar.extraTexts.add(text);
+            } else {
+                blocks.add(new Block(hit, text, fp));
+            }
+        }
+
+        // 2) line collapse: each masked line is owned by the first block it appears in
+        Map<String, Line> lines = new HashMap<>();
+        int collapsed = 0;
+        for (Block b : blocks) {
+            collapsed += collect(b, b.text, lines);
+            for (String extra : b.extraTexts) {
+                // lines only present in a folded duplicate belong to its representative
+                collapsed += collect(b, extra, lines);
+            }
+        }
+
+        // 3) render within the budget
+        StringBuilder out = new StringBuilder();
+        int budgetChars = maxTokens * TokenEstimator.CHARS_PER_TOKEN;
+        int kept = 0;
+        boolean truncated = false;
+        for (Block b : blocks) {
+            String header = "### Evidence (score=" + b.hit.getScore()
+                    + (b.duplicates > 0 ? ", +" + b.duplicates + " similar" : "") + ")\n";
+            if (out.length() + header.length() > budgetChars) {
+                truncated = true;
+                break;
+            }
+            int mark = out.length();
+            out.append(header);
+
+            int shown = 0;
+            for (Line line : b.owned) {
+                String rendered = line.count > 1 ? "[x" + line.count + "] " + line.text : line.text;
+                if (out.length() + rendered.length() + 1 > budgetChars) {
+                    truncated = true;
+                    if (kept == 0 && shown == 0) {
+                        // never send an empty context because the top line alone is too long
+                        out.append(rendered, 0, Math.max(0, budgetChars - out.length() - 1)).append('\n');
+                        shown++;
+                    }
+                    break;
+                }
+                out.append(rendered).append('\n');
+                shown++;
+            }
+            if (shown == 0) {
+                out.setLength(mark);
+                if (truncated) {
+                    break;
+                }
+                continue;
+            }
+            out.append('\n');
+            kept++;
+            if (truncated) {
+                break;
+            }
+        }
+
+        String text = out.toString().trim();
+        return PackedContext.builder()
+                .text(text)
+                .inputTokens(TokenEstimator.estimate(inputChars))
+                .packedTokens(TokenEstimator.estimate(text.length()))
+                .evidenceIn(evidence.size())
+                .evidenceKept(kept)
+                .nearDuplicates(evidence.size() - blocks.size())
+                .linesCollapsed(collapsed)
+                .truncated(truncated)
+                .build();
+    }
+
+    /**
+     * @return number of lines folded into an existing entry
+     */
+    private static int collect(Block block, String text, Map<String, Line> lines) {
+        int collapsed = 0;
+        for (String raw : text.split("\n")) {
+            String line = raw.stripTrailing();
+            if (line.isBlank()) {
+                continue;
+            }
+            String key = SimHash.mask(line.strip());
+            Line existing = lines.get(key);
+            if (existing != null) {
+                existing.count++;
+                collapsed++;
+            } else {
+                Line l = new Line(line);
+                lines.put(key, l);
+                block.owned.add(l);
+            }
+        }
+        return collapsed;
+    }
+
+    private static final class Block {
+        final EvidenceHit hit;
+        final String text;
+        final long fingerprint;
+        final List<String> extraTexts = new ArrayList<>();
+        final List<Line> owned = new ArrayList<>();
+        int duplicates;
+
+        Block(EvidenceHit hit, String text, long fingerprint) {
+            this.hit = hit;
+            this.text = text;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Line {
+        final String text;
+        int count = 1;
+
+        Line(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -1,23 +1,146 @@
 package com.incidentiq.service;
 
-import lombok.RequiredArgsConstructor;
+import com.incidentiq.util.TokenEstimator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Chat calls go through a shared {@link ProviderRateLimiter}; Spring AI's own retry is
+ * turned off (spring.ai.retry.max-attempts=1) so that 429s reach it.
+ */
 @Component
-@RequiredArgsConstructor
 public class GeminiChatClient {
 
+    private static final Object RELEASED = new Object();
+
     private final ChatClient chatClient;
+    private final MeterRegistry meterRegistry;
+    private final ProviderRateLimiter rateLimiter;
+
+    public GeminiChatClient(
+            ChatClient chatClient,
+            MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.chat.requests-per-minute:150}") int requestsPerMinute,
+            @Value("${app.rate-limit.chat.tokens-per-minute:2000000}") long tokensPerMinute,
+            @Value("${app.rate-limit.chat.max-concurrency:8}") int maxConcurrency,
+            @Value("${app.rate-limit.chat.max-attempts:4}") int maxAttempts,
+            @Value("${app.rate-limit.chat.backoff-base-ms:1000}") long backoffBaseMs,
+            @Value("${app.rate-limit.chat.backoff-max-ms:30000}") long backoffMaxMs) {
+        this.chatClient = chatClient;
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = new ProviderRateLimiter("chat", requestsPerMinute, tokensPerMinute,
+                maxConcurrency, maxAttempts, backoffBaseMs, backoffMaxMs, meterRegistry);
+    }
 
     public String chat(String prompt) {
+        recordPromptSize(prompt);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            return chatClient
+            String content = rateLimiter.call(TokenEstimator.estimate(prompt.length()), () -> chatClient
                     .prompt(prompt)
                     .call()
-                    .content();
+                    .content());
+            outcome = "success";
+            return content;
         } catch (Exception e) {
             throw new RuntimeException("AI Chat Error: " + e.getMessage(), e);
+        } finally {
+            sample.stop(latencyTimer("call", outcome));
         }
     }
+
+    /**
+     * Streams the answer as it is generated. Time to the first token is recorded as
+     * incidentiq.llm.ttfb, the full stream as incidentiq.llm.latency{mode=stream}.
+     * A failure before the first token is retried like {@link #chat}; after it, the error
+     * is passed on, since the tokens already sent cannot be taken back.
+     */
+    public Flux<String> stream(String prompt) {
+        recordPromptSize(prompt);
+
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean first = new AtomicBoolean(true);
+            return limitedStream(prompt, TokenEstimator.estimate(prompt.length()), 1)
+                    .doOnNext(token -> {
+                        if (first.compareAndSet(true, false)) {
+                            Timer.builder("incidentiq.llm.ttfb")
+                                    .description("LLM time to first streamed token")
+                                    .register(meterRegistry)
+                                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    })
+                    .doOnComplete(() -> latencyTimer("stream", "success")
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> latencyTimer("stream", "error")
+                            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    /**
+     * Every way out (completion, error, cancellation, also while still acquiring) ends the
+     * permit exactly once: success and failure end it in the stream, {@code doFinally}
+     * releases whatever is left, and a permit acquired after cancellation is released at once.
+     */
+    private Flux<String> limitedStream(String prompt, long tokens, int attempt) {
+        AtomicReference<Object> held = new AtomicReference<>();
+        // acquiring may block, so it must not run on a Netty event loop
+        return Mono.fromCallable(() -> {
+                    ProviderRateLimiter.Permit permit = rateLimiter.acquire(tokens);
+                    if (!held.compareAndSet(null, permit)) {
+                        permit.release(); // cancelled while waiting
+                    }
+                    return permit;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(permit -> {
+                    AtomicBoolean emitted = new AtomicBoolean();
+                    return chatClient.prompt(prompt).stream().content()
+                            .doOnNext(token -> emitted.set(true))
+                            .doOnComplete(permit::success)
+                            .onErrorResume(e -> {
+                                Duration backoff = permit.failure(e, attempt);
+                                if (backoff == null || emitted.get()) {
+                                    return Flux.error(e);
+                                }
+                                return Mono.delay(backoff)
+                                        .flatMapMany(x -> limitedStream(prompt, tokens, attempt + 1));
+                            });
+                })
+                .doFinally(signal -> {
+                    if (held.getAndSet(RELEASED) instanceof ProviderRateLimiter.Permit permit) {
+                        permit.release();
+                    }
+                });
+    }
+
+    private void recordPromptSize(String prompt) {
+        DistributionSummary.builder("incidentiq.llm.prompt.size")
+                .description("Prompt length sent to the LLM")
+                .baseUnit("chars")
+                .register(meterRegistry)
+                .record(prompt.length());
+    }
+
+    private Timer latencyTimer(String mode, String outcome) {
+        return Timer.builder("incidentiq.llm.latency")
+                .description("LLM chat call latency")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
 }
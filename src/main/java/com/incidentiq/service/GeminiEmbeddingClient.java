@@ -1,67 +1,373 @@
 package com.incidentiq.service;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incidentiq.util.TokenEstimator;
+import com.incidentiq.util.VectorCodec;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+/**
+ * Gemini embedContent / batchEmbedContents over the shared {@link OkHttpClient}.
+ * <p>
+ * The async methods return as soon as the call is queued; the rate limiter waits on
+ * timers and OkHttp's dispatcher does the I/O, so no caller thread is held while a call
+ * is in flight. Responses are decoded token by token straight into float[]s.
+ */
 @Component
 public class GeminiEmbeddingClient {
 
     @Value("${GEMINI_API_KEY}")
     private String apiKey;
 
-    private static final String EMBED_URL =
-            "https://generativelanguage.googleapis.com/v1beta/models/gemini-embedding-001:embedContent?key=%s";
+    private static final String MODEL = "models/gemini-embedding-001";
+
+    private static final String EMBED_PATH = "/" + MODEL + ":embedContent?key=%s";
+
+    private static final String BATCH_EMBED_PATH = "/" + MODEL + ":batchEmbedContents?key=%s";
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = MAPPER.getFactory();
+
+    /** Generative Language API root; pointed at a local stand-in for load tests. */
+    @Value("${app.embedding.base-url:https://generativelanguage.googleapis.com/v1beta}")
+    private String baseUrl;
+
+    /** batchEmbedContents accepts at most this many requests per call. */
+    private static final int MAX_BATCH_SIZE = 100;
+
+    /** gemini-embedding-001 native output size. */
+    public static final int FULL_DIM = 3072;
+
+    /** 10^0 .. 10^22 are exact doubles. */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    /** Stored dimension; below {@link #FULL_DIM} the model returns a Matryoshka prefix. */
+    @Value("${app.embedding.dimension:3072}")
+    private int dimension;
+
+    private final OkHttpClient http;
+
+    /** Shared by every caller, so all workers together stay within the quota. */
+    private final ProviderRateLimiter rateLimiter;
+
+    public GeminiEmbeddingClient(
+            OkHttpClient http,
+            MeterRegistry registry,
+            @Value("${app.rate-limit.embedding.requests-per-minute:3000}") int requestsPerMinute,
+            @Value("${app.rate-limit.embedding.tokens-per-minute:1000000}") long tokensPerMinute,
+            @Value("${app.rate-limit.embedding.max-concurrency:16}") int maxConcurrency,
+            @Value("${app.rate-limit.embedding.max-attempts:6}") int maxAttempts,
+            @Value("${app.rate-limit.embedding.backoff-base-ms:500}") long backoffBaseMs,
+            @Value("${app.rate-limit.embedding.backoff-max-ms:30000}") long backoffMaxMs) {
+        this.http = http;
+        this.rateLimiter = new ProviderRateLimiter("embedding", requestsPerMinute, tokensPerMinute,
+                maxConcurrency, maxAttempts, backoffBaseMs, backoffMaxMs, registry);
+    }
 
     public float[] embed(String text) {
+        return embed(text, dimension);
+    }
 
-        RestTemplate rest = new RestTemplate();
+    public float[] embed(String text, int dim) {
+        return join(embedAsync(text, dim));
+    }
 
-        Map<String, Object> body = Map.of(
-                "content", Map.of(
-                        "parts", List.of(
-                                Map.of("text", text)
-                        )
-                )
-        );
+    public CompletableFuture<float[]> embedAsync(String text) {
+        return embedAsync(text, dimension);
+    }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+    public CompletableFuture<float[]> embedAsync(String text, int dim) {
+        byte[] body = json(request(text, dim));
+        return rateLimiter.callAsync(TokenEstimator.estimate(text.length()),
+                () -> post(EMBED_PATH, body, in -> {
+                    List<float[]> values = decodeValues(in, dim);
+                    if (values.size() != 1) {
+                        throw new IllegalStateException("Invalid embedding response from Gemini");
+                    }
+                    return toDimension(values.get(0), dim);
+                }));
+    }
 
-        HttpEntity<Map<String, Object>> req = new HttpEntity<>(body, headers);
+    /**
+     * Embeds many texts with batchEmbedContents, one HTTP call per {@value #MAX_BATCH_SIZE} texts.
+     * Results are returned in input order.
+     */
+    public List<float[]> embedBatch(List<String> texts) {
+        return embedBatch(texts, dimension);
+    }
 
-        String url = EMBED_URL.formatted(apiKey);
+    public List<float[]> embedBatch(List<String> texts, int dim) {
+        return join(embedBatchAsync(texts, dim));
+    }
 
-        Map<?, ?> resp = rest.postForObject(url, req, Map.class);
-        if (resp == null || !resp.containsKey("embedding")) {
-            throw new IllegalStateException("Invalid embedding response from Gemini");
+    /**
+     * The {@value #MAX_BATCH_SIZE}-text calls of one batch are in flight together.
+     */
+    public CompletableFuture<List<float[]>> embedBatchAsync(List<String> texts, int dim) {
+        List<CompletableFuture<List<float[]>>> calls = new ArrayList<>();
+        for (int from = 0; from < texts.size(); from += MAX_BATCH_SIZE) {
+            List<String> slice = texts.subList(from, Math.min(from + MAX_BATCH_SIZE, texts.size()));
+            long tokens = TokenEstimator.estimate(slice.stream().mapToInt(String::length).sum());
+            byte[] body = json(batchRequest(slice, dim));
+            calls.add(rateLimiter.callAsync(tokens, () -> post(BATCH_EMBED_PATH, body, in -> {
+                List<float[]> values = decodeValues(in, dim);
+                if (values.size() != slice.size()) {
+                    throw new IllegalStateException("Invalid batch embedding response from Gemini");
+                }
+                values.replaceAll(v -> toDimension(v, dim));
+                return values;
+            })));
         }
 
-        Map<?, ?> embedding = (Map<?, ?>) resp.get("embedding");
-        @SuppressWarnings("unchecked")
-        List<Double> values = (List<Double>) embedding.get("values");
+        return CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).thenApply(x -> {
+            List<float[]> out = new ArrayList<>(texts.size());
+            for (CompletableFuture<List<float[]>> c : calls) {
+                out.addAll(c.join());
+            }
+            return out;
+        });
+    }
+
+    private <T> CompletableFuture<T> post(String pathTemplate, byte[] json, BodyDecoder<T> decoder) {
+        Request request = new Request.Builder()
+                .url(baseUrl + pathTemplate.formatted(apiKey))
+                .post(RequestBody.create(json, JSON))
+                .build();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Call call = http.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                result.completeExceptionally(e);
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (response) {
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        result.completeExceptionally(httpError(response));
+                        return;
+                    }
+                    result.complete(decoder.decode(body.byteStream()));
+                } catch (JsonProcessingException e) {
+                    result.completeExceptionally(new IllegalStateException("Invalid embedding response from Gemini", e));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        result.whenComplete((r, e) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
 
-        float[] out = new float[values.size()];
-        for (int i = 0; i < values.size(); i++) {
-            out[i] = values.get(i).floatValue();
+    /**
+     * Same exception types RestTemplate throws, so errors are classified the same way.
+     */
+    private static RuntimeException httpError(Response response) throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().forEach(h -> headers.add(h.getFirst(), h.getSecond()));
+        byte[] body = response.body() == null ? new byte[0] : response.body().bytes();
+        HttpStatusCode status = HttpStatusCode.valueOf(response.code());
+        if (status.is5xxServerError()) {
+            return HttpServerErrorException.create(status, response.message(), headers, body, StandardCharsets.UTF_8);
         }
+        return HttpClientErrorException.create(status, response.message(), headers, body, StandardCharsets.UTF_8);
+    }
 
+    /**
+     * Every {@code "values"} array in the response, in order: one for embedContent, one per
+     * request for batchEmbedContents. Numbers go straight into a float[] of the expected size.
+     */
+    static List<float[]> decodeValues(InputStream in, int expectedDim) throws IOException {
+        List<float[]> out = new ArrayList<>(1);
+        try (JsonParser p = JSON_FACTORY.createParser(in)) {
+            JsonToken t;
+            while ((t = p.nextToken()) != null) {
+                if (t == JsonToken.FIELD_NAME && "values".equals(p.currentName())
+                        && p.nextToken() == JsonToken.START_ARRAY) {
+                    out.add(readFloats(p, expectedDim));
+                }
+            }
+        }
         return out;
     }
 
+    private static float[] readFloats(JsonParser p, int expected) throws IOException {
+        float[] values = new float[Math.max(1, expected)];
+        int n = 0;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == null) {
+                throw new IOException("Truncated embedding response");
+            }
+            if (n == values.length) {
+                values = Arrays.copyOf(values, n * 2);
+            }
+            values[n++] = parseFloat(p);
+        }
+        return n == values.length ? values : Arrays.copyOf(values, n);
+    }
+
+    /**
+     * Parses the number straight from the parser's buffer. Values with at most 15
+     * significant digits and a small exponent (all of Gemini's) take the exact fast path:
+     * digits as a long, then one division or multiplication by a power of ten, which is
+     * correctly rounded. Others fall back to Double.parseDouble. Either way the result
+     * is the double narrowed to float, as the Map decode produced.
+     */
+    static float parseFloat(JsonParser p) throws IOException {
+        char[] buf = p.getTextCharacters();
+        int i = p.getTextOffset();
+        int end = i + p.getTextLength();
+        boolean negative = buf[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (; i < end; i++) {
+            char c = buf[i];
+            if (c >= '0' && c <= '9') {
+                if (digits > 0 || c != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (dot) {
+                    scale--;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+            int exp = 0;
+            boolean expNegative = false;
+            i++;
+            if (i < end && (buf[i] == '-' || buf[i] == '+')) {
+                expNegative = buf[i++] == '-';
+            }
+            for (; i < end && exp < 1000; i++) {
+                exp = exp * 10 + (buf[i] - '0');
+            }
+            scale += expNegative ? -exp : exp;
+        }
+        if (digits > 15 || scale < -22 || scale > 22 || i != end) {
+            return (float) Double.parseDouble(p.getText());
+        }
+        double v = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+        return (float) (negative ? -v : v);
+    }
+
+    private Map<String, Object> batchRequest(List<String> texts, int dim) {
+        List<Map<String, Object>> requests = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            Map<String, Object> r = request(text, dim);
+            r.put("model", MODEL);
+            requests.add(r);
+        }
+        return Map.of("requests", requests);
+    }
+
+    private Map<String, Object> request(String text, int dim) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("content", Map.of(
+                "parts", List.of(
+                        Map.of("text", text)
+                )
+        ));
+        if (dim < FULL_DIM) {
+            body.put("outputDimensionality", dim);
+        }
+        return body;
+    }
+
+    private static byte[] json(Object body) {
+        try {
+            return MAPPER.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode embedding request", e);
+        }
+    }
+
+    /**
+     * Reduced-dimension outputs are not unit length, so they are re-normalized here
+     * (and truncated, should the API ignore outputDimensionality).
+     */
+    private static float[] toDimension(float[] values, int dim) {
+        return dim < FULL_DIM ? VectorCodec.truncateAndNormalize(values, dim) : values;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException r) {
+                throw r;
+            }
+            throw new IllegalStateException("Embedding call failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     public byte[] toFloat32Bytes(float[] vector) {
         ByteBuffer buf = ByteBuffer.allocate(vector.length * 4).order(ByteOrder.LITTLE_ENDIAN);
         for (float v : vector) buf.putFloat(v);
         return buf.array();
     }
 
+    public String getModelName() {
+        return MODEL;
+    }
+
     public int getConfiguredDim() {
-        return 3072; // gemini-embedding-001 output size
+        return dimension;
+    }
+
+    @FunctionalInterface
+    private interface BodyDecoder<T> {
+        T decode(InputStream body) throws IOException;
     }
 }
@@ -2,31 +2,276 @@ package com.incidentiq.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.incidentiq.model.PackedContext;
 import com.incidentiq.model.RootCauseInsight;
 import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.model.SearchFilter;
 import com.incidentiq.model.SearchHit;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Root-cause analysis over hybrid-search evidence.
+ * <p>
+ * Identical concurrent requests (same normalized query and topK) share one in-flight
+ * analysis. Finished analyses are cached for a short TTL, keyed on the query plus the ids
+ * of the evidence chunks, so an answer is reused only while the evidence is unchanged.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class IncidentInsightService {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final SearchService semanticSearchService;
     private final GeminiChatClient geminiChatClient;
+    private final EvidencePacker evidencePacker;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
+    private final boolean cacheEnabled;
+    private final Cache<String, RootCauseInsight> results;
+    private final ConcurrentHashMap<String, CompletableFuture<RootCauseInsight>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+    private final Timer streamTtfb;
+    private final Timer streamTotal;
+    private final DistributionSummary inputTokens;
+    private final DistributionSummary packedTokens;
+
+    public IncidentInsightService(SearchService semanticSearchService,
+                                  GeminiChatClient geminiChatClient,
+                                  EvidencePacker evidencePacker,
+                                  MeterRegistry registry,
+                                  @Value("${app.insights.cache.enabled:true}") boolean cacheEnabled,
+                                  @Value("${app.insights.cache.ttl-seconds:300}") long ttlSeconds,
+                                  @Value("${app.insights.cache.max-entries:1000}") long maxEntries) {
+        this.semanticSearchService = semanticSearchService;
+        this.geminiChatClient = geminiChatClient;
+        this.evidencePacker = evidencePacker;
+        this.cacheEnabled = cacheEnabled;
+        this.results = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxEntries)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, results, "insight.results");
+        this.coalesced = Counter.builder("incidentiq.insight.coalesced")
+                .description("Root-cause requests that joined an identical in-flight analysis")
+                .register(registry);
+        this.streamTtfb = Timer.builder("incidentiq.insight.stream.ttfb")
+                .description("Streaming root-cause request start to first LLM token")
+                .register(registry);
+        this.streamTotal = Timer.builder("incidentiq.insight.stream.latency")
+                .description("Streaming root-cause request start to final event")
+                .register(registry);
+        this.inputTokens = DistributionSummary.builder("incidentiq.insight.context.tokens")
+                .description("Estimated evidence tokens before and after packing")
+                .baseUnit("tokens")
+                .tag("stage", "retrieved")
+                .register(registry);
+        this.packedTokens = DistributionSummary.builder("incidentiq.insight.context.tokens")
+                .description("Estimated evidence tokens before and after packing")
+                .baseUnit("tokens")
+                .tag("stage", "packed")
+                .register(registry);
+    }
+
+    /**
+     * Callers asking the same question while an analysis is running wait for that one
+     * instead of starting their own; they get its result flagged as a cache hit.
+     */
     public RootCauseInsight analyzeRootCause(String query, int topK) {
+        return analyzeRootCause(query, topK, null);
+    }
+
+    /**
+     * @param filter evidence pre-filter, or null; part of the coalescing key, and since
+     *               a relative window is kept unresolved, repeated "last hour" asks coalesce
+     */
+    public RootCauseInsight analyzeRootCause(String query, int topK, SearchFilter filter) {
+        String flightKey = normalize(query) + "|" + topK + "|" + (filter == null ? "" : filter);
+
+        CompletableFuture<RootCauseInsight> mine = new CompletableFuture<>();
+        CompletableFuture<RootCauseInsight> running = inFlight.putIfAbsent(flightKey, mine);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return asHit(running.join(), query);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException re ? re : e;
+            }
+        }
+
+        try {
+            RootCauseInsight insight = analyzeUncoalesced(query, topK, filter);
+            mine.complete(insight);
+            return insight;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, mine);
+        }
+    }
+
+    private RootCauseInsight analyzeUncoalesced(String query, int topK, SearchFilter filter) {
 
         // 1) Evidence collection
-        List<SearchHit> hits = semanticSearchService.hybridSearch(query, topK);
+        List<SearchHit> hits = semanticSearchService.hybridSearch(query, topK, null, filter);
+
+        String cacheKey = cacheKey(query, topK, hits);
+        if (cacheEnabled) {
+            RootCauseInsight cached = results.getIfPresent(cacheKey);
+            if (cached != null) {
+                return asHit(cached, query);
+            }
+        }
+
+        RootCauseInsight insight = analyze(query, hits);
+
+        // an unparseable answer is not worth repeating for the whole TTL
+        if (cacheEnabled && insight.getRootCauseSummary() != null) {
+            results.put(cacheKey, insight);
+        }
+        return insight;
+    }
+
+    private RootCauseInsight analyze(String query, List<SearchHit> hits) {
+        List<EvidenceHit> evidence = toEvidence(hits);
+
+        // 2) Prompt
+        String prompt = buildPrompt(query, evidence);
+
+        // 3) Call Gemini
+        String raw;
+        try {
+            raw = geminiChatClient.chat(prompt);
+        } catch (Exception ex) {
+            log.error("AI root cause analysis failed for query='{}'", query, ex);
+            throw new RuntimeException("AI Analysis failed: " + ex.getMessage());
+        }
+
+        // 4) Parse and build response
+        return toInsight(query, raw, evidence);
+    }
+
+    /**
+     * Streaming variant of {@link #analyzeRootCause}. Sends an {@code evidence} event as soon
+     * as the search returns, a {@code token} event ({"text": ...}) per streamed LLM fragment, then the parsed
+     * {@code insight} and a {@code done} event carrying firstTokenMs / totalMs. A cached
+     * answer skips straight to {@code insight}. Runs asynchronously after the search; the
+     * calling request thread is released once this returns.
+     */
+    public void streamRootCause(String query, int topK, SseEmitter emitter) {
+        streamRootCause(query, topK, null, emitter);
+    }
+
+    public void streamRootCause(String query, int topK, SearchFilter filter, SseEmitter emitter) {
+        long start = System.nanoTime();
+        try {
+            List<SearchHit> hits = semanticSearchService.hybridSearch(query, topK, null, filter);
+            List<EvidenceHit> evidence = toEvidence(hits);
+            emitter.send(SseEmitter.event().name("evidence").data(evidence));
+
+            String key = cacheKey(query, topK, hits);
+            RootCauseInsight cached = cacheEnabled ? results.getIfPresent(key) : null;
+            if (cached != null) {
+                emitter.send(SseEmitter.event().name("insight").data(asHit(cached, query)));
+                finish(emitter, start, -1);
+                return;
+            }
+
+            // a client that disconnects or times out cancels the LLM stream and frees its permit;
+            // registered before subscribing so an early disconnect disposes the stream on arrival
+            Disposable.Swap llm = Disposables.swap();
+            emitter.onCompletion(llm::dispose);
+            emitter.onTimeout(llm::dispose);
+            emitter.onError(e -> llm.dispose());
+
+            StringBuilder raw = new StringBuilder();
+            AtomicLong firstTokenNanos = new AtomicLong(-1);
+            llm.update(geminiChatClient.stream(buildPrompt(query, evidence)).subscribe(
+                    token -> {
+                        if (firstTokenNanos.compareAndSet(-1, System.nanoTime())) {
+                            streamTtfb.record(firstTokenNanos.get() - start, TimeUnit.NANOSECONDS);
+                        }
+                        raw.append(token);
+                        // JSON-wrapped so newlines inside a fragment survive SSE framing
+                        send(emitter, SseEmitter.event().name("token").data(Map.of("text", token)));
+                    },
+                    error -> {
+                        log.error("Streaming root cause analysis failed for query='{}'", query, error);
+                        send(emitter, SseEmitter.event().name("error")
+                                .data(Map.of("message", "AI Analysis failed: " + error.getMessage())));
+                        emitter.complete();
+                    },
+                    () -> {
+                        RootCauseInsight insight = toInsight(query, raw.toString(), evidence);
+                        if (cacheEnabled && insight.getRootCauseSummary() != null) {
+                            results.put(key, insight);
+                        }
+                        send(emitter, SseEmitter.event().name("insight").data(insight));
+                        long first = firstTokenNanos.get();
+                        finish(emitter, start, first < 0 ? -1 : first - start);
+                    }));
+        } catch (Exception e) {
+            log.error("Streaming root cause analysis failed for query='{}'", query, e);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void finish(SseEmitter emitter, long start, long firstTokenNanos) {
+        long total = System.nanoTime() - start;
+        streamTotal.record(total, TimeUnit.NANOSECONDS);
+        Map<String, Object> timing = new LinkedHashMap<>();
+        timing.put("firstTokenMs", firstTokenNanos < 0 ? null : TimeUnit.NANOSECONDS.toMillis(firstTokenNanos));
+        timing.put("totalMs", TimeUnit.NANOSECONDS.toMillis(total));
+        send(emitter, SseEmitter.event().name("done").data(timing));
+        emitter.complete();
+    }
+
+    /**
+     * A client that went away must not fail the LLM stream callbacks.
+     */
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (Exception e) {
+            log.debug("SSE client disconnected: {}", e.getMessage());
+        }
+    }
 
-        List<EvidenceHit> evidence = hits.stream()
+    private static String cacheKey(String query, int topK, List<SearchHit> hits) {
+        return normalize(query) + "|" + topK + "|"
+                + hits.stream().map(SearchHit::getId).collect(Collectors.joining(","));
+    }
+
+    private static List<EvidenceHit> toEvidence(List<SearchHit> hits) {
+        return hits.stream()
                 .map(h -> EvidenceHit.builder()
                         .id(h.getId())
                         .text(h.getText())
@@ -34,19 +279,24 @@ public class IncidentInsightService {
                         .score(h.getScore())
                         .build())
                 .collect(Collectors.toList());
+    }
 
-        String context = evidence.stream()
-                .map(e -> "### Evidence (score=" + e.getScore() + ")\n" + e.getText())
-                .collect(Collectors.joining("\n\n"));
+    private String buildPrompt(String query, List<EvidenceHit> evidence) {
+        PackedContext packed = evidencePacker.pack(evidence);
+        inputTokens.record(packed.getInputTokens());
+        packedTokens.record(packed.getPackedTokens());
+        log.debug("Packed {} evidence hits into {} of {} estimated tokens ({} near-duplicates, {} lines collapsed)",
+                packed.getEvidenceIn(), packed.getPackedTokens(), packed.getInputTokens(),
+                packed.getNearDuplicates(), packed.getLinesCollapsed());
+        String context = packed.getText();
 
-        // 2) Prompt
-        String prompt = """
+        return """
                 You are an expert SRE / DevOps AI assistant.
 
                 User Query:
                 %s
 
-                Evidence Logs:
+                Evidence Logs (a line prefixed [xN] occurred N times):
                 %s
 
                 Provide a STRICT JSON response ONLY:
@@ -60,38 +310,35 @@ public class IncidentInsightService {
 
                 DO NOT wrap the response in ```json blocks.
                 """.formatted(query, context);
+    }
 
-        // 3) Call Gemini
-        String raw;
-        try {
-            raw = geminiChatClient.chat(prompt);
-        } catch (Exception ex) {
-            log.error("AI root cause analysis failed for query='{}'", query, ex);
-            throw new RuntimeException("AI Analysis failed: " + ex.getMessage());
-        }
-
-        // 4) Clean + Parse LLM JSON
+    private RootCauseInsight toInsight(String query, String raw, List<EvidenceHit> evidence) {
         JsonNode json = safeJson(raw);
 
-        String summary = safeField(json, "summary");
-        String root = safeField(json, "root_cause");
-        String impact = safeField(json, "impact");
-        String actions = safeField(json, "actions");
-        String confidence = safeField(json, "confidence");
-
-        // 5) Build response
         return RootCauseInsight.builder()
                 .query(query)
-                .rootCauseSummary(summary)
-                .probableRootCause(root)
-                .impact(impact)
-                .recommendedActions(actions)
-                .confidenceLevel(confidence)
+                .rootCauseSummary(safeField(json, "summary"))
+                .probableRootCause(safeField(json, "root_cause"))
+                .impact(safeField(json, "impact"))
+                .recommendedActions(safeField(json, "actions"))
+                .confidenceLevel(safeField(json, "confidence"))
                 .rawAnalysis(raw)
                 .evidence(evidence)
+                .cacheHit(false)
+                .build();
+    }
+
+    private static RootCauseInsight asHit(RootCauseInsight insight, String query) {
+        return insight.toBuilder()
+                .query(query)
+                .cacheHit(true)
                 .build();
     }
 
+    private static String normalize(String query) {
+        return WHITESPACE.matcher(query == null ? "" : query).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Removes Markdown fences (```json ... ```) before JSON parsing.
      */
@@ -102,7 +349,7 @@ public class IncidentInsightService {
                     .replaceAll("```", "")
                     .trim();
 
-            log.info("Cleaned AI JSON: {}", cleaned);
+            log.debug("Cleaned AI JSON: {}", cleaned);
 
             return objectMapper.readTree(cleaned);
         } catch (Exception e) {
@@ -0,0 +1,311 @@
+package com.incidentiq.service;
+
+import com.incidentiq.config.RedisVectorInitializer;
+import com.incidentiq.model.HybridReport;
+import com.incidentiq.model.HybridReport.ModeResult;
+import com.incidentiq.model.IndexReport;
+import com.incidentiq.model.SearchHit;
+import com.incidentiq.model.VectorProfileReport;
+import com.incidentiq.model.VectorProfileReport.ProfileResult;
+import com.incidentiq.util.VectorCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Index and storage-profile reports.
+ * <p>
+ * {@link #compare} runs the same queries against the live index and the shadow FLAT index
+ * (app.redis.index.shadow-flat); each query is embedded once, so the numbers isolate index
+ * behaviour from embedding latency. {@link #compareProfiles} embeds a sample at full
+ * precision once and derives every reduced profile from it in memory. {@link #compareHybrid}
+ * runs each hybrid strategy and its two legs on the same queries.
+ */
+@Service
+@RequiredArgsConstructor
+public class IndexReportService {
+
+    private final RediSearchKnnService knnService;
+    private final EmbeddingService embeddingService;
+    private final GeminiEmbeddingClient embeddingClient;
+    private final JedisPooled jedis;
+    private final VectorIndex vectorIndex;
+    private final SearchService searchService;
+
+    @Value("${app.redis.index.algorithm:FLAT}")
+    private String algorithm;
+
+    @Value("${app.redis.prefix:emb:}")
+    private String prefix;
+
+    private static final int[] PROFILE_DIMS = {3072, 1536, 768};
+    private static final String[] PROFILE_TYPES = {VectorCodec.FLOAT32, VectorCodec.FLOAT16};
+
+    public IndexReport compare(List<String> queries, int k, Integer efRuntime) {
+        String index = knnService.getIndexName();
+        String baseline = RedisVectorInitializer.shadowIndexName(index);
+
+        List<byte[]> vectors = embeddingService.getEmbeddingsAsBytes(queries);
+
+        double[] indexMs = new double[queries.size()];
+        double[] baselineMs = new double[queries.size()];
+        double recallSum = 0;
+
+        for (int i = 0; i < queries.size(); i++) {
+            byte[] vec = vectors.get(i);
+
+            long t0 = System.nanoTime();
+            List<SearchHit> exact = knnService.knnByVector(baseline, vec, null, k, null);
+            long t1 = System.nanoTime();
+            List<SearchHit> approx = knnService.knnByVector(index, vec, null, k, efRuntime);
+            long t2 = System.nanoTime();
+
+            baselineMs[i] = (t1 - t0) / 1e6;
+            indexMs[i] = (t2 - t1) / 1e6;
+            recallSum += recall(exact, approx);
+        }
+
+        return IndexReport.builder()
+                .index(index)
+                .algorithm(algorithm)
+                .baselineIndex(baseline)
+                .k(k)
+                .efRuntime(efRuntime)
+                .queries(queries.size())
+                .recallAtK(queries.isEmpty() ? 0 : recallSum / queries.size())
+                .indexP50Ms(percentile(indexMs, 0.50))
+                .indexP99Ms(percentile(indexMs, 0.99))
+                .baselineP50Ms(percentile(baselineMs, 0.50))
+                .baselineP99Ms(percentile(baselineMs, 0.99))
+                .build();
+    }
+
+    /**
+     * Latency of bm25, knn, filter and rrf retrieval per query, and recall@k / MRR against
+     * the given relevant chunk ids (a null or empty entry leaves that query unjudged).
+     * Queries are embedded up front so every mode reads the vector from the cache.
+     */
+    public HybridReport compareHybrid(List<String> queries, List<List<String>> relevant, int k, Integer efRuntime) {
+        embeddingService.getEmbeddingsAsBytes(queries);
+
+        Map<String, Function<String, List<SearchHit>>> modes = new LinkedHashMap<>();
+        if (vectorIndex.supportsFullText()) {
+            modes.put("bm25", q -> vectorIndex.fullTextSearch(SearchService.queryTerms(q), k, null));
+        }
+        modes.put("knn", q -> vectorIndex.knnSearch(q, k, efRuntime, null));
+        modes.put("filter", q -> searchService.hybridSearch(q, k, efRuntime, null, SearchService.HybridMode.FILTER));
+        modes.put("rrf", q -> searchService.hybridSearch(q, k, efRuntime, null, SearchService.HybridMode.RRF));
+
+        int n = queries.size();
+        Map<String, List<List<SearchHit>>> results = new LinkedHashMap<>();
+        List<ModeResult> out = new ArrayList<>();
+        int judged = 0;
+        for (int i = 0; i < n; i++) {
+            if (judgments(relevant, i) != null) {
+                judged++;
+            }
+        }
+
+        for (Map.Entry<String, Function<String, List<SearchHit>>> mode : modes.entrySet()) {
+            double[] ms = new double[n];
+            double hitSum = 0;
+            double recallSum = 0;
+            double rrSum = 0;
+            List<List<SearchHit>> perQuery = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                long t0 = System.nanoTime();
+                List<SearchHit> hits = mode.getValue().apply(queries.get(i));
+                ms[i] = (System.nanoTime() - t0) / 1e6;
+                perQuery.add(hits);
+                hitSum += hits.size();
+
+                Set<String> truth = judgments(relevant, i);
+                if (truth != null) {
+                    recallSum += hits.stream().filter(h -> truth.contains(h.getId())).count()
+                            / (double) Math.min(k, truth.size());
+                    rrSum += reciprocalRank(hits, truth);
+                }
+            }
+            results.put(mode.getKey(), perQuery);
+            out.add(ModeResult.builder()
+                    .mode(mode.getKey())
+                    .p50Ms(percentile(ms, 0.50))
+                    .p99Ms(percentile(ms, 0.99))
+                    .meanHits(n == 0 ? 0 : hitSum / n)
+                    .recallAtK(judged == 0 ? null : recallSum / judged)
+                    .mrr(judged == 0 ? null : rrSum / judged)
+                    .build());
+        }
+
+        double overlapSum = 0;
+        for (int i = 0; i < n; i++) {
+            overlapSum += recall(results.get("filter").get(i), results.get("rrf").get(i));
+        }
+
+        return HybridReport.builder()
+                .backend(vectorIndex.name())
+                .k(k)
+                .queries(n)
+                .judgedQueries(judged)
+                .modes(out)
+                .rrfFilterOverlapAtK(n == 0 ? 0 : overlapSum / n)
+                .build();
+    }
+
+    private static Set<String> judgments(List<List<String>> relevant, int i) {
+        if (relevant == null || i >= relevant.size() || relevant.get(i) == null || relevant.get(i).isEmpty()) {
+            return null;
+        }
+        return new HashSet<>(relevant.get(i));
+    }
+
+    private static double reciprocalRank(List<SearchHit> hits, Set<String> truth) {
+        for (int r = 0; r < hits.size(); r++) {
+            if (truth.contains(hits.get(r).getId())) {
+                return 1.0 / (r + 1);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Each sample is used as a query against the others; recall@k is the overlap of the
+     * profile's top-k with the full-precision top-k. When no texts are given, up to
+     * {@code sampleSize} stored chunk texts are sampled from Redis.
+     */
+    public VectorProfileReport compareProfiles(List<String> texts, int sampleSize, int k) {
+        List<String> sample = texts == null || texts.isEmpty() ? sampleStoredTexts(sampleSize) : texts;
+        List<float[]> full = embeddingClient.embedBatch(sample, GeminiEmbeddingClient.FULL_DIM);
+        List<List<Integer>> truth = topKAll(full, k);
+
+        List<ProfileResult> results = new ArrayList<>();
+        for (int dim : PROFILE_DIMS) {
+            for (String type : PROFILE_TYPES) {
+                List<float[]> vectors = new ArrayList<>(full.size());
+                for (float[] v : full) {
+                    float[] reduced = dim < GeminiEmbeddingClient.FULL_DIM ? VectorCodec.truncateAndNormalize(v, dim) : v;
+                    // round-trip through the stored encoding to include quantization error
+                    vectors.add(VectorCodec.decode(VectorCodec.encode(reduced, type), type));
+                }
+
+                List<List<Integer>> got = topKAll(vectors, k);
+                double recallSum = 0;
+                for (int i = 0; i < got.size(); i++) {
+                    Set<Integer> t = new HashSet<>(truth.get(i));
+                    recallSum += t.isEmpty() ? 1.0 : got.get(i).stream().filter(t::contains).count() / (double) t.size();
+                }
+
+                int bytes = dim * VectorCodec.bytesPerElement(type);
+                results.add(ProfileResult.builder()
+                        .dimension(dim)
+                        .vectorType(type)
+                        .bytesPerVector(bytes)
+                        .megabytesPerMillionChunks(bytes * 1_000_000.0 / (1024 * 1024))
+                        .recallAtK(got.isEmpty() ? 0 : recallSum / got.size())
+                        .build());
+            }
+        }
+
+        return VectorProfileReport.builder()
+                .samples(sample.size())
+                .k(k)
+                .profiles(results)
+                .build();
+    }
+
+    private List<String> sampleStoredTexts(int sampleSize) {
+        List<String> out = new ArrayList<>();
+        String cursor = ScanParams.SCAN_POINTER_START;
+        ScanParams params = new ScanParams().match(prefix + "*").count(500);
+        do {
+            ScanResult<String> page = jedis.scan(cursor, params);
+            for (String key : page.getResult()) {
+                String text = jedis.hget(key, "text");
+                if (text != null && !text.isBlank()) {
+                    out.add(text);
+                }
+                if (out.size() >= sampleSize) {
+                    return out;
+                }
+            }
+            cursor = page.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
+        return out;
+    }
+
+    /**
+     * Exact cosine top-k of every vector against all others (leave-one-out).
+     */
+    private static List<List<Integer>> topKAll(List<float[]> vectors, int k) {
+        int n = vectors.size();
+        double[] norms = new double[n];
+        for (int i = 0; i < n; i++) {
+            double s = 0;
+            for (float f : vectors.get(i)) {
+                s += (double) f * f;
+            }
+            norms[i] = Math.sqrt(s);
+        }
+
+        List<List<Integer>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            float[] q = vectors.get(i);
+            Integer[] order = new Integer[n - 1];
+            double[] sims = new double[n];
+            int m = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == i) {
+                    continue;
+                }
+                float[] d = vectors.get(j);
+                double dot = 0;
+                for (int x = 0; x < q.length; x++) {
+                    dot += (double) q[x] * d[x];
+                }
+                sims[j] = dot / (norms[i] * norms[j] + 1e-12);
+                order[m++] = j;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(sims[b], sims[a]));
+            out.add(Arrays.asList(order).subList(0, Math.min(k, order.length)));
+        }
+        return out;
+    }
+
+    private double recall(List<SearchHit> exact, List<SearchHit> approx) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> truth = new HashSet<>();
+        exact.forEach(h -> truth.add(h.getId()));
+
+        int found = 0;
+        for (SearchHit h : approx) {
+            if (truth.contains(h.getId())) {
+                found++;
+            }
+        }
+        return (double) found / truth.size();
+    }
+
+    static double percentile(double[] values, double p) {
+        if (values.length == 0) {
+            return 0;
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(idx, sorted.length - 1))];
+    }
+}
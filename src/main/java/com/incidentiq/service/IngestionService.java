@@ -1,125 +1,545 @@
 package com.incidentiq.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.incidentiq.model.IngestionJob;
 import com.incidentiq.model.LogChunk;
-import lombok.RequiredArgsConstructor;
+import com.incidentiq.util.CountingInputStream;
+import com.incidentiq.util.LogChunker;
+import com.incidentiq.util.LuaScript;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
+/**
+ * Ingestion jobs.
+ * <p>
+ * The {@code job:<id>} hash in Redis is the source of truth, so workers on any node can
+ * report progress. Workers add to {@code processedChunks} with HINCRBY once per job per
+ * batch; the producer sets {@code totalChunks} and {@code chunked=1} once the upload is
+ * fully read. Both run as Lua scripts that flip a RUNNING job to SUCCESS when processed
+ * reaches the final total, so completion is detected exactly once, whichever side gets
+ * there last. A bulk parent whose sub-jobs failed finishes FAILED once its remaining
+ * chunks are processed. Scripts run with EVALSHA and name every hash they touch in KEYS.
+ * Reads go through a small, short-lived local cache.
+ * <p>
+ * Every script that changes the hash also publishes a JSON snapshot of it on
+ * {@code job-progress:<id>}; see {@link JobProgressBroadcaster}.
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class IngestionService {
 
+    private static final String JOB_KEY_PREFIX = "job:";
+
+    private static final long JOB_TTL_SECONDS = 60 * 60 * 24 * 7;
+
+    /** Upload stats are flushed to Redis every this many chunks while a stream is read. */
+    private static final int STATS_PERSIST_INTERVAL = 256;
+
+    public static final String PROGRESS_CHANNEL_PREFIX = "job-progress:";
+
+    /** Shared by the scripts below: publishes the job's current progress fields. */
+    private static final String PUBLISH_FN = """
+            local function publish(key)
+                local f = redis.call('HMGET', key, 'id', 'status', 'processedChunks', 'totalChunks',
+                        'chunked', 'bytesRead', 'message')
+                redis.call('PUBLISH', 'job-progress:' .. f[1], cjson.encode({
+                    status = f[2], processedChunks = tonumber(f[3]), totalChunks = tonumber(f[4]),
+                    chunked = f[5] == '1', bytesRead = tonumber(f[6]), message = f[7] or ''}))
+            end
+            """;
+
+    /**
+     * Shared by the completion scripts: finishes a RUNNING job whose chunks are all processed.
+     * A bulk parent with failed sub-jobs ends FAILED. Returns the final status.
+     */
+    private static final String COMPLETE_FN = """
+            local function complete(key, now)
+                local failed = tonumber(redis.call('HGET', key, 'failedChildren') or '0') or 0
+                local status = failed > 0 and 'FAILED' or 'SUCCESS'
+                redis.call('HSET', key, 'status', status, 'finishedAt', now)
+                return status
+            end
+            """;
+
+    /**
+     * KEYS[1] job hash; ARGV field/value pairs. Ignores jobs that no longer exist.
+     */
+    private static final LuaScript UPDATE_SCRIPT = new LuaScript(PUBLISH_FN + """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end
+            redis.call('HSET', KEYS[1], unpack(ARGV))
+            publish(KEYS[1])
+            return 1
+            """);
+
+    /**
+     * KEYS[1] job hash, KEYS[2] its parent's hash for a bulk sub-job; ARGV[1] processed
+     * increment, ARGV[2] finish timestamp. Returns {processed, completed (0/1), createdAt,
+     * parent final status or '', parent createdAt}, or {-1, 0, '', '', ''} for an unknown job.
+     * On Redis Cluster both hashes must hash to one slot.
+     */
+    private static final LuaScript PROGRESS_SCRIPT = new LuaScript(PUBLISH_FN + COMPLETE_FN + """
+            local function advance(key, n, now)
+                local processed = redis.call('HINCRBY', key, 'processedChunks', n)
+                local status = ''
+                if redis.call('HGET', key, 'status') == 'RUNNING'
+                        and redis.call('HGET', key, 'chunked') == '1'
+                        and processed >= tonumber(redis.call('HGET', key, 'totalChunks') or '0') then
+                    status = complete(key, now)
+                end
+                publish(key)
+                return processed, status
+            end
+            if redis.call('EXISTS', KEYS[1]) == 0 then return {-1, 0, '', '', ''} end
+            local processed, status = advance(KEYS[1], ARGV[1], ARGV[2])
+            local parentStatus, parentCreatedAt = '', ''
+            if KEYS[2] and redis.call('EXISTS', KEYS[2]) == 1 then
+                local _, ps = advance(KEYS[2], ARGV[1], ARGV[2])
+                parentStatus = ps
+                parentCreatedAt = redis.call('HGET', KEYS[2], 'createdAt') or ''
+            end
+            return {processed, status ~= '' and 1 or 0, redis.call('HGET', KEYS[1], 'createdAt') or '',
+                    parentStatus, parentCreatedAt}
+            """);
+
+    /**
+     * KEYS[1] job hash; ARGV[1] total chunks, ARGV[2] finish timestamp, ARGV[3] failed
+     * sub-jobs (bulk parents, else 0). Returns the final status when every chunk was already
+     * processed and the job is now finished, else ''.
+     */
+    private static final LuaScript CHUNKED_SCRIPT = new LuaScript(PUBLISH_FN + COMPLETE_FN + """
+            if redis.call('EXISTS', KEYS[1]) == 0 then return '' end
+            redis.call('HSET', KEYS[1], 'totalChunks', ARGV[1], 'chunked', '1', 'failedChildren', ARGV[3])
+            local processed = tonumber(redis.call('HGET', KEYS[1], 'processedChunks') or '0')
+            local status = ''
+            if redis.call('HGET', KEYS[1], 'status') == 'RUNNING' and processed >= tonumber(ARGV[1]) then
+                status = complete(KEYS[1], ARGV[2])
+            end
+            publish(KEYS[1])
+            return status
+            """);
+
     private final LogChunkService chunkService;
     private final JedisPooled jedis;
+    private final MeterRegistry meterRegistry;
 
-    private final ExecutorService executor = Executors.newFixedThreadPool(4);
-    private final ConcurrentHashMap<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    /** Read-through view of job hashes; entries expire quickly so other nodes' progress shows. */
+    private final Cache<String, IngestionJob> jobs;
 
-    private static final String JOB_KEY_PREFIX = "job:";
+    /** Parent id of each job ("" for none); never changes, so progress reports skip the lookup. */
+    private final Cache<String, String> parentIds;
+
+    @Value("${app.ingest.producer-threads:4}")
+    private int producerThreads;
+
+    private ExecutorService executor;
+
+    public IngestionService(LogChunkService chunkService,
+                            JedisPooled jedis,
+                            MeterRegistry meterRegistry,
+                            @Value("${app.ingest.jobs.cache-size:10000}") long cacheSize,
+                            @Value("${app.ingest.jobs.cache-ttl-ms:1000}") long cacheTtlMs) {
+        this.chunkService = chunkService;
+        this.jedis = jedis;
+        this.meterRegistry = meterRegistry;
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMillis(cacheTtlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, jobs, "ingest.jobs");
+        this.parentIds = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(producerThreads);
+    }
+
+    /**
+     * Lets jobs that are still chunking finish enqueueing before the context closes.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Ingestion producers still running at shutdown");
+            executor.shutdownNow();
+        }
+    }
 
     public IngestionJob createAndStartJobFromText(String source, String fileName, String text) {
-        IngestionJob job = IngestionJob.newJob();
-        jobs.put(job.getId(), job);
-        persistJob(job);
+        IngestionJob job = registerJob();
+        String body = text == null ? "" : text;
 
-        executor.submit(() -> runIngestion(job.getId(), source, fileName, text));
+        executor.submit(() -> runIngestion(job, source, fileName, new StringReader(body), body::length));
         return job;
     }
 
-    private void persistJob(IngestionJob job) {
+    /**
+     * Ingests a spilled upload in the background and deletes the file afterwards.
+     */
+    public IngestionJob createAndStartJobFromFile(String source, String fileName, Path file) {
+        IngestionJob job = registerJob();
+
+        executor.submit(() -> {
+            try (InputStream in = Files.newInputStream(file)) {
+                runIngestion(job, source, fileName, in);
+            } catch (IOException e) {
+                log.error("Could not read spilled upload {} for job {}", file, job.getId(), e);
+                fail(job, e.getMessage());
+            } finally {
+                deleteQuietly(file);
+            }
+        });
+        return job;
+    }
+
+    /**
+     * Chunks and enqueues the stream on the calling thread while it is still being
+     * received. Returns once the stream is exhausted; embedding continues in the workers.
+     */
+    public IngestionJob ingestStream(String source, String fileName, InputStream in) {
+        IngestionJob job = registerJob();
+        runIngestion(job, source, fileName, in);
+        return job;
+    }
+
+    private IngestionJob registerJob() {
+        return registerJob(null);
+    }
+
+    /**
+     * The only full write of the job hash; everything after it touches single fields.
+     */
+    private IngestionJob registerJob(String parentId) {
+        IngestionJob job = IngestionJob.newJob();
+        job.setParentId(parentId);
+        parentIds.put(job.getId(), parentId == null ? "" : parentId);
         String key = JOB_KEY_PREFIX + job.getId();
+
         Map<String, String> map = new HashMap<>();
         map.put("id", job.getId());
+        map.put("parentId", parentId == null ? "" : parentId);
         map.put("status", job.getStatus());
-        map.put("message", job.getMessage() == null ? "" : job.getMessage());
-        map.put("createdAt", job.getCreatedAt() == null ? Instant.now().toString() : job.getCreatedAt().toString());
-        map.put("finishedAt", job.getFinishedAt() == null ? "" : job.getFinishedAt().toString());
-        map.put("processedChunks", String.valueOf(job.getProcessedChunks()));
-        map.put("totalChunks", String.valueOf(job.getTotalChunks()));
-        jedis.hset(key, map);
-        jedis.expire(key, 60 * 60 * 24 * 7);
-    }
+        map.put("message", "");
+        map.put("createdAt", job.getCreatedAt().toString());
+        map.put("finishedAt", "");
+        map.put("processedChunks", "0");
+        map.put("totalChunks", "0");
+        map.put("chunked", "0");
+        map.put("bytesRead", "0");
+        map.put("bytesPerSec", "0");
+        map.put("peakBufferedBytes", "0");
 
-    private void updateJobStatus(String jobId, String status, String message) {
-        IngestionJob job = jobs.get(jobId);
-        if (job == null) return;
+        try (Pipeline p = jedis.pipelined()) {
+            p.hset(key, map);
+            p.expire(key, JOB_TTL_SECONDS);
+            p.sync();
+        }
+        return job;
+    }
 
+    private void setStatus(IngestionJob job, String status, String message) {
         job.setStatus(status);
         job.setMessage(message);
-        if ("SUCCESS".equals(status) || "FAILED".equals(status)) {
+
+        Map<String, String> fields = new HashMap<>();
+        fields.put("status", status);
+        fields.put("message", message == null ? "" : message);
+        if ("FAILED".equals(status)) {
             job.setFinishedAt(Instant.now());
+            fields.put("finishedAt", job.getFinishedAt().toString());
         }
-        persistJob(job);
+        update(job, fields);
     }
 
-    private void runIngestion(String jobId, String source, String fileName, String text) {
-        updateJobStatus(jobId, "RUNNING", null);
-        try {
-            List<LogChunk> chunks = chunkService.chunk(source, fileName, text);
-            IngestionJob job = jobs.get(jobId);
-            if (job != null) {
-                job.setTotalChunks(chunks.size());
-                persistJob(job);
-            }
+    private void update(IngestionJob job, Map<String, String> fields) {
+        List<String> args = new ArrayList<>(fields.size() * 2);
+        fields.forEach((k, v) -> {
+            args.add(k);
+            args.add(v);
+        });
+        UPDATE_SCRIPT.eval(jedis, List.of(JOB_KEY_PREFIX + job.getId()), args);
+        jobs.invalidate(job.getId());
+    }
+
+    private void fail(IngestionJob job, String message) {
+        setStatus(job, "FAILED", message);
+        recordCompletion(job.getCreatedAt(), job.getFinishedAt(), "FAILED");
+    }
+
+    /**
+     * Chunks the reader and enqueues each chunk as soon as it is produced, so only
+     * one chunk of the input is held in memory. The total is only known once the
+     * stream is exhausted, which is when completion can first be detected.
+     */
+    private void runIngestion(IngestionJob job, String source, String fileName, InputStream in) {
+        CountingInputStream counting = new CountingInputStream(in);
+        Reader reader = new InputStreamReader(counting, StandardCharsets.UTF_8);
+        runIngestion(job, source, fileName, reader, counting::getCount);
+    }
 
-            for (LogChunk c : chunks) {
-                c.setJobId(jobId);
+    private void runIngestion(IngestionJob job, String source, String fileName, Reader reader, LongSupplier bytesRead) {
+        setStatus(job, "RUNNING", null);
+        long startNanos = System.nanoTime();
+        int enqueued = 0;
+        try (LogChunker chunker = chunkService.stream(source, fileName, reader)) {
+            while (chunker.hasNext()) {
+                LogChunk c = chunker.next();
+                c.setJobId(job.getId());
                 chunkService.enqueue(c);
+                enqueued++;
+
+                if (chunker.getChunkCount() % STATS_PERSIST_INTERVAL == 0) {
+                    recordReadStats(job, chunker, bytesRead.getAsLong(), startNanos);
+                }
             }
 
+            recordReadStats(job, chunker, bytesRead.getAsLong(), startNanos);
+            job.setTotalChunks(chunker.getChunkCount());
+            finishChunking(job);
+
         } catch (Exception e) {
-            log.error("Ingestion failed for job {}", jobId, e);
-            updateJobStatus(jobId, "FAILED", e.getMessage());
+            log.error("Ingestion failed for job {}", job.getId(), e);
+            // chunks already enqueued are still processed and counted by a parent job
+            job.setTotalChunks(enqueued);
+            fail(job, e.getMessage());
+        }
+    }
+
+    /**
+     * Parent job of a bulk upload. Its chunk counts are the sum of its sub-jobs'; it
+     * completes once {@link #finishParent} has published the total and every chunk of
+     * every sub-job is processed.
+     */
+    IngestionJob startParent() {
+        IngestionJob parent = registerJob();
+        setStatus(parent, "RUNNING", null);
+        return parent;
+    }
+
+    /**
+     * Streams one file of a bulk upload into a sub-job on the calling thread. The caller
+     * keeps ownership of the underlying stream; closing the reader must not close it.
+     */
+    IngestionJob ingestChild(IngestionJob parent, String source, String fileName, Reader reader, LongSupplier bytesRead) {
+        IngestionJob child = registerJob(parent.getId());
+        runIngestion(child, source, fileName, reader, bytesRead);
+        return child;
+    }
+
+    void finishParent(IngestionJob parent, List<IngestionJob> children, long wireBytes, long startNanos) {
+        int failed = 0;
+        int total = 0;
+        long bytes = 0;
+        for (IngestionJob child : children) {
+            total += child.getTotalChunks();
+            bytes += child.getBytesRead();
+            if ("FAILED".equals(child.getStatus())) {
+                failed++;
+            }
+        }
+
+        double seconds = Math.max(Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), 1) / 1000.0;
+        parent.setBytesRead(wireBytes);
+        parent.setBytesPerSec(wireBytes / seconds);
+        parent.setMessage(children.size() + " files, " + failed + " failed, " + bytes + " bytes decompressed");
+        update(parent, Map.of(
+                "message", parent.getMessage(),
+                "bytesRead", String.valueOf(parent.getBytesRead()),
+                "bytesPerSec", String.valueOf(parent.getBytesPerSec())));
+
+        parent.setTotalChunks(total);
+        finishChunking(parent, failed);
+    }
+
+    void failParent(IngestionJob parent, String message) {
+        fail(parent, message);
+    }
+
+    private void finishChunking(IngestionJob job) {
+        finishChunking(job, 0);
+    }
+
+    /**
+     * Publishes the final total and completes the job if the workers already caught up
+     * (or the upload was empty). A parent with failed sub-jobs completes as FAILED.
+     */
+    private void finishChunking(IngestionJob job, int failedChildren) {
+        Instant now = Instant.now();
+        String status = asString(CHUNKED_SCRIPT.eval(jedis,
+                List.of(JOB_KEY_PREFIX + job.getId()),
+                List.of(String.valueOf(job.getTotalChunks()), now.toString(), String.valueOf(failedChildren))));
+        if (status != null && !status.isEmpty()) {
+            job.setStatus(status);
+            job.setFinishedAt(now);
+            job.setProcessedChunks(job.getTotalChunks());
+            recordCompletion(job.getCreatedAt(), now, status);
+        }
+        jobs.invalidate(job.getId());
+    }
+
+    /**
+     * Peak buffered bytes is the largest chunk buffer held while reading, counted as
+     * UTF-16 chars; it stays flat regardless of upload size.
+     */
+    private void recordReadStats(IngestionJob job, LogChunker chunker, long bytes, long startNanos) {
+        double seconds = Math.max(Duration.ofNanos(System.nanoTime() - startNanos).toMillis(), 1) / 1000.0;
+        job.setBytesRead(bytes);
+        job.setBytesPerSec(bytes / seconds);
+        job.setPeakBufferedBytes((long) chunker.getPeakBufferedChars() * Character.BYTES);
+
+        update(job, Map.of(
+                "bytesRead", String.valueOf(job.getBytesRead()),
+                "bytesPerSec", String.valueOf(job.getBytesPerSec()),
+                "peakBufferedBytes", String.valueOf(job.getPeakBufferedBytes())));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spilled upload {}", file, e);
         }
     }
 
     public void incrementProcessedChunks(String jobId) {
-        IngestionJob job = jobs.get(jobId);
-        if (job == null) {
-            job = getJob(jobId);
-            if (job == null) return;
+        recordProgress(Map.of(jobId, 1));
+    }
+
+    /**
+     * Adds processed-chunk counts for several jobs in one pipelined round trip, typically
+     * everything a worker stored from one batch.
+     */
+    public void recordProgress(Map<String, Integer> processedByJob) {
+        if (processedByJob.isEmpty()) {
+            return;
         }
 
-        job.setProcessedChunks(job.getProcessedChunks() + 1);
+        String now = Instant.now().toString();
+        List<String> ids = new ArrayList<>(processedByJob.keySet());
+        List<List<String>> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            String parentId = parentIds.get(id, this::loadParentId);
+            keys.add(parentId.isEmpty()
+                    ? List.of(JOB_KEY_PREFIX + id)
+                    : List.of(JOB_KEY_PREFIX + id, JOB_KEY_PREFIX + parentId));
+        }
 
-        if (job.getTotalChunks() > 0 &&
-                job.getProcessedChunks() >= job.getTotalChunks() &&
-                !"FAILED".equals(job.getStatus())) {
+        List<Response<Object>> responses = new ArrayList<>(ids.size());
+        try (Pipeline p = jedis.pipelined()) {
+            for (int i = 0; i < ids.size(); i++) {
+                responses.add(PROGRESS_SCRIPT.eval(p, jedis, keys.get(i),
+                        List.of(String.valueOf(processedByJob.get(ids.get(i))), now)));
+            }
+            p.sync();
+        }
 
-            job.setStatus("SUCCESS");
-            job.setFinishedAt(Instant.now());
+        for (int i = 0; i < ids.size(); i++) {
+            List<?> result;
+            try {
+                result = (List<?>) responses.get(i).get();
+            } catch (RuntimeException e) {
+                if (!LuaScript.isNoScript(e)) {
+                    throw e;
+                }
+                // script cache flushed (restart, failover): it did not run, so run it again
+                result = (List<?>) PROGRESS_SCRIPT.eval(jedis, keys.get(i),
+                        List.of(String.valueOf(processedByJob.get(ids.get(i))), now));
+            }
+            if ((Long) result.get(0) < 0) {
+                log.warn("Progress reported for unknown or expired job {}", ids.get(i));
+                continue;
+            }
+            if ((Long) result.get(1) == 1) {
+                recordCompletion(parseInstant(asString(result.get(2))), Instant.parse(now), "SUCCESS");
+            }
+            String parentStatus = asString(result.get(3));
+            if (parentStatus != null && !parentStatus.isEmpty()) {
+                recordCompletion(parseInstant(asString(result.get(4))), Instant.parse(now), parentStatus);
+            }
+            jobs.invalidate(ids.get(i));
         }
+    }
 
-        jobs.put(job.getId(), job);
-        persistJob(job);
+    private String loadParentId(String jobId) {
+        String parentId = jedis.hget(JOB_KEY_PREFIX + jobId, "parentId");
+        return parentId == null ? "" : parentId;
+    }
+
+    /**
+     * Time from job creation until the last chunk is stored (or the job fails).
+     */
+    private void recordCompletion(Instant createdAt, Instant finishedAt, String status) {
+        if (createdAt == null || finishedAt == null) return;
+        Timer.builder("incidentiq.ingest.job.duration")
+                .description("Ingestion job time from upload to completion")
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(Duration.between(createdAt, finishedAt));
     }
 
     public IngestionJob getJob(String id) {
-        IngestionJob j = jobs.get(id);
-        if (j != null) return j;
+        IngestionJob cached = jobs.getIfPresent(id);
+        if (cached != null) return cached;
 
-        String key = JOB_KEY_PREFIX + id;
-        if (!jedis.exists(key)) return null;
+        Map<String, String> map = jedis.hgetAll(JOB_KEY_PREFIX + id);
+        if (map.isEmpty()) return null;
 
-        Map<String, String> map = jedis.hgetAll(key);
         IngestionJob job = new IngestionJob();
         job.setId(map.getOrDefault("id", id));
         job.setStatus(map.getOrDefault("status", "UNKNOWN"));
         job.setMessage(map.getOrDefault("message", ""));
+        String parentId = map.getOrDefault("parentId", "");
+        job.setParentId(parentId.isEmpty() ? null : parentId);
+        job.setCreatedAt(parseInstant(map.get("createdAt")));
+        job.setFinishedAt(parseInstant(map.get("finishedAt")));
         job.setProcessedChunks(Integer.parseInt(map.getOrDefault("processedChunks", "0")));
         job.setTotalChunks(Integer.parseInt(map.getOrDefault("totalChunks", "0")));
+        job.setBytesRead(Long.parseLong(map.getOrDefault("bytesRead", "0")));
+        job.setBytesPerSec(Double.parseDouble(map.getOrDefault("bytesPerSec", "0")));
+        job.setPeakBufferedBytes(Long.parseLong(map.getOrDefault("peakBufferedBytes", "0")));
         jobs.put(job.getId(), job);
         return job;
     }
+
+    private static String asString(Object o) {
+        return o instanceof byte[] b ? new String(b, StandardCharsets.UTF_8) : String.valueOf(o);
+    }
+
+    private static Instant parseInstant(String s) {
+        return s == null || s.isEmpty() ? null : Instant.parse(s);
+    }
 }
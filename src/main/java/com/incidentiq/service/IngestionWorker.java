@@ -1,44 +1,202 @@
 package com.incidentiq.service;
 
 import com.incidentiq.model.LogChunk;
-import jakarta.annotation.PostConstruct;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of ingestion workers draining the chunk queue.
+ * <p>
+ * Each worker owns at most one micro-batch at a time, so in-flight chunks are bounded by
+ * {@code count * batch.size}. Provider calls are further limited by a shared semaphore sized
+ * to the embedding provider's capacity. On shutdown workers stop taking new batches and the
+ * pool waits for the in-flight ones to be stored; anything still queued stays in Redis.
+ */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class IngestionWorker {
+public class IngestionWorker implements SmartLifecycle {
+
+    /**
+     * Workers started when app.ingest.workers.count is 0. Embedding calls are the bottleneck,
+     * and every worker holds a Redis connection while it blocks on the queue.
+     */
+    public static final int MAX_DEFAULT_WORKERS = 8;
 
     private final LogChunkService chunkService;
     private final VectorStoreService vectorStoreService;
     private final IngestionService ingestionService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ingest.batch.size:32}")
+    private int batchSize;
+
+    @Value("${app.ingest.batch.max-wait-ms:50}")
+    private long batchMaxWaitMs;
+
+    @Value("${app.ingest.workers.count:0}")
+    private int workerCount;
+
+    @Value("${app.ingest.workers.thread-type:platform}")
+    private String threadType;
+
+    @Value("${app.ingest.workers.max-concurrent-embeds:8}")
+    private int maxConcurrentEmbeds;
+
+    @Value("${app.ingest.workers.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private final AtomicInteger inFlightChunks = new AtomicInteger();
+    private volatile boolean running;
+    private ExecutorService executor;
+    private Semaphore embedPermits;
+
+    @Override
+    public void start() {
+        int workers = resolveWorkerCount(workerCount);
+        embedPermits = new Semaphore(Math.max(1, maxConcurrentEmbeds));
+        executor = newExecutor(workers);
 
-    private final Thread workerThread = new Thread(this::runWorker, "ingestion-worker");
+        Gauge.builder("incidentiq.ingest.queue.depth", chunkService, LogChunkService::queueDepth)
+                .description("Chunks waiting in the ingest queue")
+                .register(meterRegistry);
+        Gauge.builder("incidentiq.ingest.inflight", inFlightChunks, AtomicInteger::get)
+                .description("Chunks dequeued but not yet stored")
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 0; i < workers; i++) {
+            Counter processed = Counter.builder("incidentiq.ingest.worker.chunks")
+                    .description("Chunks stored per worker")
+                    .tag("worker", String.valueOf(i))
+                    .register(meterRegistry);
+            executor.submit(() -> runWorker(processed));
+        }
+        log.info("IngestionWorker pool started (workers={}, threads={}, batchSize={}, maxWaitMs={}, maxConcurrentEmbeds={})",
+                workers, threadType, batchSize, batchMaxWaitMs, maxConcurrentEmbeds);
+    }
+
+    /**
+     * The configured count, or one per CPU up to {@link #MAX_DEFAULT_WORKERS} when it is 0.
+     */
+    public static int resolveWorkerCount(int configured) {
+        return configured > 0 ? configured
+                : Math.min(MAX_DEFAULT_WORKERS, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("IngestionWorker pool did not drain within {} ms, {} chunks in flight",
+                        shutdownTimeoutMs, inFlightChunks.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("IngestionWorker pool stopped");
+    }
 
-    @PostConstruct
-    public void init() {
-        workerThread.setDaemon(true);
-        workerThread.start();
-        log.info("IngestionWorker started");
+    @Override
+    public boolean isRunning() {
+        return running;
     }
 
-    private void runWorker() {
-        while (true) {
+    private void runWorker(Counter processed) {
+        while (running) {
             try {
-                LogChunk chunk = chunkService.dequeue();
-                if (chunk == null) {
+                List<LogChunk> batch = chunkService.dequeueBatch(batchSize, batchMaxWaitMs);
+                if (batch.isEmpty()) {
                     continue;
                 }
 
-                log.info("Worker received chunk {}", chunk.getId());
-
-                vectorStoreService.storeEmbedding(chunk);
-                ingestionService.incrementProcessedChunks(chunk.getJobId());
+                inFlightChunks.addAndGet(batch.size());
+                try {
+                    process(batch, processed);
+                } finally {
+                    inFlightChunks.addAndGet(-batch.size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             } catch (Exception e) {
                 log.error("Error in worker loop", e);
             }
         }
     }
+
+    private void process(List<LogChunk> batch, Counter processed) throws InterruptedException {
+        log.debug("Worker received batch of {} chunks", batch.size());
+
+        List<Boolean> stored;
+        embedPermits.acquire();
+        try {
+            stored = vectorStoreService.storeEmbeddings(batch);
+        } finally {
+            embedPermits.release();
+        }
+
+        List<LogChunk> done = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (stored.get(i)) {
+                done.add(batch.get(i));
+            } else {
+                log.warn("Chunk {} of job {} was not stored", batch.get(i).getId(), batch.get(i).getJobId());
+            }
+        }
+
+        // failed chunks stay unacknowledged and are redelivered by the stream backend
+        chunkService.ack(done);
+
+        // one progress update per job for the whole batch
+        Map<String, Integer> byJob = new HashMap<>();
+        for (LogChunk chunk : done) {
+            if (chunk.getJobId() != null) {
+                byJob.merge(chunk.getJobId(), 1, Integer::sum);
+            }
+        }
+        ingestionService.recordProgress(byJob);
+        processed.increment(done.size());
+    }
+
+    /**
+     * Virtual threads need Java 21; on older runtimes the pool falls back to platform threads.
+     */
+    private ExecutorService newExecutor(int workers) {
+        if ("virtual".equalsIgnoreCase(threadType)) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads are not available on Java {}, using platform threads",
+                        Runtime.version().feature());
+            }
+        }
+
+        AtomicInteger n = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "ingestion-worker-" + n.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
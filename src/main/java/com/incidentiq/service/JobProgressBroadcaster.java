@@ -0,0 +1,293 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incidentiq.model.IngestionJob;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.JedisPubSub;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Pushes job progress to SSE watchers.
+ * <p>
+ * Each node holds one pattern subscription on {@code job-progress:*}, whatever the number
+ * of jobs or watchers; IngestionService's scripts publish there whenever a job hash changes.
+ * Messages only update the job's latest state. A tick every {@code interval-ms} sends that
+ * state, serialized once, to all of the job's watchers, so a job with thousands of watchers
+ * and hundreds of progress messages per second still costs one send per watcher per tick.
+ * Throughput is an EWMA of processed chunks per second between ticks; the ETA is only
+ * given once the total is known.
+ */
+@Service
+@Slf4j
+public class JobProgressBroadcaster implements SmartLifecycle {
+
+    private static final double RATE_ALPHA = 0.3;
+
+    private final JedisPooled jedis;
+    private final IngestionService ingestionService;
+    private final long timeoutMs;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ConcurrentHashMap<String, Watch> watches = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private volatile JedisPubSub subscriber;
+    private Thread subscriberThread;
+
+    public JobProgressBroadcaster(JedisPooled jedis,
+                                  IngestionService ingestionService,
+                                  MeterRegistry registry,
+                                  @Value("${app.jobs.events.timeout-ms:1800000}") long timeoutMs) {
+        this.jedis = jedis;
+        this.ingestionService = ingestionService;
+        this.timeoutMs = timeoutMs;
+
+        Gauge.builder("incidentiq.jobs.watchers", watches,
+                        w -> w.values().stream().mapToInt(x -> x.emitters.size()).sum())
+                .description("Open job progress streams on this node")
+                .register(registry);
+        Gauge.builder("incidentiq.jobs.watched", watches, Map::size)
+                .description("Jobs with at least one progress stream on this node")
+                .register(registry);
+    }
+
+    /**
+     * Opens a progress stream. The first event is the job's current state; the stream ends
+     * after the event carrying SUCCESS or FAILED. Returns null for an unknown job.
+     */
+    public SseEmitter watch(String jobId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+
+        // register before reading the snapshot, so no message between the two is lost
+        Watch watch = watches.compute(jobId, (id, w) -> {
+            Watch out = w == null ? new Watch(id) : w;
+            out.emitters.add(emitter);
+            return out;
+        });
+        Runnable remove = () -> unwatch(jobId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        IngestionJob job = ingestionService.getJob(jobId);
+        if (job == null) {
+            unwatch(jobId, emitter);
+            return null;
+        }
+
+        synchronized (watch) {
+            watch.applySnapshot(job);
+            Map<String, Object> event = watch.event();
+            if (!send(emitter, event) || watch.isTerminal()) {
+                emitter.complete();
+            }
+        }
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.events.interval-ms:500}")
+    public void tick() {
+        long now = System.nanoTime();
+        for (Watch watch : watches.values()) {
+            Map<String, Object> event;
+            boolean terminal;
+            synchronized (watch) {
+                watch.updateRate(now);
+                if (!watch.dirty) {
+                    continue;
+                }
+                watch.dirty = false;
+                event = watch.event();
+                terminal = watch.isTerminal();
+            }
+
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(event);
+            } catch (IOException e) {
+                log.warn("Could not serialize progress for job {}", watch.jobId, e);
+                continue;
+            }
+            for (SseEmitter emitter : watch.emitters) {
+                if (!send(emitter, json) || terminal) {
+                    emitter.complete();
+                }
+            }
+        }
+    }
+
+    private void onMessage(String channel, String message) {
+        String jobId = channel.substring(IngestionService.PROGRESS_CHANNEL_PREFIX.length());
+        Watch watch = watches.get(jobId);
+        if (watch == null) {
+            return; // nobody on this node is watching
+        }
+        try {
+            JsonNode n = objectMapper.readTree(message);
+            synchronized (watch) {
+                watch.status = text(n.path("status"), watch.status);
+                watch.processed = Math.max(watch.processed, n.path("processedChunks").asInt());
+                watch.total = n.path("totalChunks").asInt();
+                watch.chunked = n.path("chunked").asBoolean();
+                watch.bytesRead = n.path("bytesRead").asLong();
+                watch.message = text(n.path("message"), "");
+                watch.dirty = true;
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring malformed progress message on {}: {}", channel, message);
+        }
+    }
+
+    private static String text(JsonNode node, String fallback) {
+        return node.isMissingNode() || node.isNull() ? fallback : node.asText();
+    }
+
+    private void unwatch(String jobId, SseEmitter emitter) {
+        watches.computeIfPresent(jobId, (id, w) -> {
+            w.emitters.remove(emitter);
+            return w.emitters.isEmpty() ? null : w;
+        });
+    }
+
+    private static boolean send(SseEmitter emitter, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            return false; // client went away; completion callbacks remove it
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        subscriberThread = new Thread(this::subscribeLoop, "job-progress-subscriber");
+        subscriberThread.setDaemon(true);
+        subscriberThread.start();
+    }
+
+    /**
+     * Re-subscribes after connection loss; watchers keep their last state meanwhile.
+     */
+    private void subscribeLoop() {
+        while (running) {
+            JedisPubSub pubSub = new JedisPubSub() {
+                @Override
+                public void onPMessage(String pattern, String channel, String message) {
+                    onMessage(channel, message);
+                }
+            };
+            subscriber = pubSub;
+            try {
+                jedis.psubscribe(pubSub, IngestionService.PROGRESS_CHANNEL_PREFIX + "*");
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Job progress subscription lost, retrying in 1s: {}", e.getMessage());
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        JedisPubSub pubSub = subscriber;
+        if (pubSub != null && pubSub.isSubscribed()) {
+            pubSub.punsubscribe();
+        }
+        for (Watch watch : watches.values()) {
+            watch.emitters.forEach(SseEmitter::complete);
+        }
+        watches.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static final class Watch {
+        final String jobId;
+        final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        String status = "PENDING";
+        int processed;
+        int total;
+        boolean chunked;
+        long bytesRead;
+        String message = "";
+        boolean dirty;
+
+        double chunksPerSec;
+        int lastTickProcessed = -1;
+        long lastTickNanos;
+
+        Watch(String jobId) {
+            this.jobId = jobId;
+        }
+
+        void applySnapshot(IngestionJob job) {
+            if (job.getProcessedChunks() < processed) {
+                return; // a newer message already arrived
+            }
+            status = job.getStatus();
+            processed = job.getProcessedChunks();
+            total = job.getTotalChunks();
+            chunked = isTerminal() || total > 0;
+            bytesRead = job.getBytesRead();
+            message = job.getMessage() == null ? "" : job.getMessage();
+        }
+
+        void updateRate(long now) {
+            if (lastTickProcessed >= 0) {
+                double seconds = (now - lastTickNanos) / 1e9;
+                if (seconds > 0) {
+                    double instant = (processed - lastTickProcessed) / seconds;
+                    chunksPerSec = RATE_ALPHA * instant + (1 - RATE_ALPHA) * chunksPerSec;
+                }
+            }
+            lastTickProcessed = processed;
+            lastTickNanos = now;
+        }
+
+        boolean isTerminal() {
+            return "SUCCESS".equals(status) || "FAILED".equals(status);
+        }
+
+        Map<String, Object> event() {
+            Map<String, Object> e = new LinkedHashMap<>();
+            e.put("jobId", jobId);
+            e.put("status", status);
+            e.put("processedChunks", processed);
+            e.put("totalChunks", chunked ? total : null);
+            e.put("bytesRead", bytesRead);
+            e.put("chunksPerSec", Math.round(chunksPerSec * 10) / 10.0);
+            e.put("etaSeconds", chunked && chunksPerSec > 0 && !isTerminal()
+                    ? Math.round(Math.max(0, total - processed) / chunksPerSec) : null);
+            e.put("message", message);
+            return e;
+        }
+    }
+}
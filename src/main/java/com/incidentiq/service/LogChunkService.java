@@ -2,13 +2,17 @@ package com.incidentiq.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.incidentiq.model.LogChunk;
+import com.incidentiq.util.LogChunker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.JedisPooled;
 
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
@@ -16,33 +20,133 @@ import java.util.UUID;
 public class LogChunkService {
 
     private final JedisPooled jedis;
+    private final RedisStreamChunkQueue streamQueue;
     private final ObjectMapper mapper = new ObjectMapper();
 
     private static final String QUEUE_KEY = "ingest_queue";
 
+    /** list = LPUSH/BRPOP on ingest_queue (at-most-once), stream = consumer group (at-least-once). */
+    @Value("${app.ingest.queue.backend:list}")
+    private String queueBackend;
+
+    @Value("${app.ingest.chunk.max-chars:4000}")
+    private int maxChunkChars;
+
+    @Value("${app.ingest.chunk.overlap-chars:400}")
+    private int overlapChars;
+
+    /**
+     * Lazily chunks a log stream; chunks are produced as the reader is consumed.
+     * The caller owns the returned chunker and must close it.
+     */
+    public LogChunker stream(String source, String fileName, Reader reader) {
+        return new LogChunker(reader, source, fileName, maxChunkChars, overlapChars);
+    }
+
     public List<LogChunk> chunk(String source, String fileName, String text) {
-        LogChunk c = new LogChunk();
-        c.setId(UUID.randomUUID().toString());
-        c.setSource(source);
-        c.setFileName(fileName);
-        c.setChunkNo(0);
-        c.setText(text);
+        List<LogChunk> out = new ArrayList<>();
+        stream(source, fileName, new StringReader(text == null ? "" : text)).forEachRemaining(out::add);
 
-        log.info("Chunk created: {} for source={} fileName={}", c.getId(), source, fileName);
-        return List.of(c);
+        log.info("Created {} chunks for source={} fileName={}", out.size(), source, fileName);
+        return out;
     }
 
     public void enqueue(LogChunk chunk) {
         try {
+            if (useStream()) {
+                streamQueue.enqueue(chunk);
+                log.debug("Enqueued chunk {} on stream", chunk.getId());
+                return;
+            }
             String json = mapper.writeValueAsString(chunk);
             Long size = jedis.lpush(QUEUE_KEY, json);
-            log.info("Enqueued chunk {} => queue size {}", chunk.getId(), size);
+            log.debug("Enqueued chunk {} => queue size {}", chunk.getId(), size);
         } catch (Exception e) {
             log.error("Failed to enqueue chunk {}", chunk.getId(), e);
             throw new IllegalStateException("Failed to enqueue", e);
         }
     }
 
+    /**
+     * Micro-batching read: blocks up to 1s for the first chunk, then keeps draining
+     * until {@code maxBatch} chunks are collected or {@code maxWaitMs} has passed since
+     * the first one arrived. Returns an empty list when the queue stayed empty.
+     */
+    public List<LogChunk> dequeueBatch(int maxBatch, long maxWaitMs) {
+        if (useStream()) {
+            try {
+                return streamQueue.dequeueBatch(maxBatch, maxWaitMs);
+            } catch (Exception e) {
+                log.error("Failed to read chunk batch from stream", e);
+                return List.of();
+            }
+        }
+
+        List<LogChunk> batch = new ArrayList<>(maxBatch);
+        LogChunk first = dequeue();
+        if (first == null) {
+            return batch;
+        }
+        batch.add(first);
+
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        try {
+            while (batch.size() < maxBatch) {
+                List<String> drained = jedis.rpop(QUEUE_KEY, maxBatch - batch.size());
+                if (drained != null && !drained.isEmpty()) {
+                    for (String json : drained) {
+                        batch.add(mapper.readValue(json, LogChunk.class));
+                    }
+                    continue;
+                }
+
+                long remainingMs = deadline - System.currentTimeMillis();
+                if (remainingMs <= 0) {
+                    break;
+                }
+                var kv = jedis.brpop(remainingMs / 1000.0, QUEUE_KEY);
+                if (kv == null) {
+                    break;
+                }
+                batch.add(mapper.readValue(kv.getValue(), LogChunk.class));
+            }
+        } catch (Exception e) {
+            log.error("Failed to drain chunk batch, flushing {} chunks", batch.size(), e);
+        }
+        return batch;
+    }
+
+    /**
+     * Confirms that the chunks were stored. Only the stream backend tracks deliveries;
+     * unacknowledged stream entries are redelivered after the reclaim idle time.
+     */
+    public void ack(List<LogChunk> chunks) {
+        if (!useStream() || chunks.isEmpty()) {
+            return;
+        }
+        try {
+            streamQueue.ack(chunks);
+        } catch (Exception e) {
+            log.error("Failed to acknowledge {} chunks", chunks.size(), e);
+        }
+    }
+
+    /**
+     * Number of chunks waiting to be embedded.
+     */
+    public long queueDepth() {
+        try {
+            return useStream() ? streamQueue.depth() : jedis.llen(QUEUE_KEY);
+        } catch (Exception e) {
+            log.warn("Failed to read ingest queue depth", e);
+            return 0;
+        }
+    }
+
+    private boolean useStream() {
+        return "stream".equalsIgnoreCase(queueBackend);
+    }
+
     public LogChunk dequeue() {
         try {
             var result = jedis.brpop(1, QUEUE_KEY);
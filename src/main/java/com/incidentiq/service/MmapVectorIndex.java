@@ -0,0 +1,502 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.model.SearchFilter;
+import com.incidentiq.model.SearchHit;
+import com.incidentiq.util.VectorCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-process vector index for deployments without Redis Stack.
+ * <p>
+ * Unit-length FLOAT32 rows live off-heap in {@code vectors.f32}, memory-mapped in segments;
+ * chunk metadata is appended to {@code chunks.jsonl}, one line per row, and read back only
+ * for the hits. Both files survive restarts: on startup the row count is taken from the
+ * complete metadata lines, so a torn write at the tail is discarded.
+ * <p>
+ * Search is an exact scan. Large indexes are split into ranges scanned in parallel, each
+ * keeping its own top-k, which are then merged. Appended rows need no lock, as they become
+ * visible only through the row count; re-adding a known id rewrites its row in place under
+ * a write lock that scans hold for reading, so no scan sees a half-written vector.
+ */
+@Component
+@ConditionalOnProperty(name = "app.vector.backend", havingValue = "mmap")
+@Slf4j
+public class MmapVectorIndex implements VectorIndex {
+
+    /** Target size of one mapping; Java 17 buffers cannot exceed 2 GB. */
+    private static final long SEGMENT_TARGET_BYTES = 256L * 1024 * 1024;
+
+    /** Below this many rows the scan stays on the calling thread. */
+    private static final int PARALLEL_THRESHOLD = 16_384;
+
+    /** Hybrid search post-filters this many KNN candidates per requested hit. */
+    private static final int HYBRID_OVERSAMPLE = 10;
+
+    private final EmbeddingService embeddingService;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String keyPrefix;
+    private final int dim;
+    private final int rowsPerSegment;
+    private final long segmentBytes;
+
+    private final FileChannel vectorChannel;
+    private final FileChannel metaChannel;
+
+    // written under the monitor, published to readers through the volatile count
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private volatile FloatBuffer[] segments = new FloatBuffer[0];
+    private volatile MappedByteBuffer[] mappings = new MappedByteBuffer[0];
+    private volatile long[] metaOffsets = new long[1024];
+    private volatile int count;
+    private final ReadWriteLock rowLock = new ReentrantReadWriteLock();
+
+    public MmapVectorIndex(EmbeddingService embeddingService,
+                           @Value("${app.vector.mmap.dir:./data/vector-index}") String dir,
+                           @Value("${app.redis.prefix:emb:}") String keyPrefix) throws IOException {
+        this.embeddingService = embeddingService;
+        this.keyPrefix = keyPrefix;
+        this.dim = embeddingService.getEmbeddingDim();
+        this.rowsPerSegment = (int) Math.max(1, SEGMENT_TARGET_BYTES / (dim * 4L));
+        this.segmentBytes = (long) rowsPerSegment * dim * 4;
+
+        Path base = Path.of(dir);
+        Files.createDirectories(base);
+        this.vectorChannel = FileChannel.open(base.resolve("vectors.f32"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.metaChannel = FileChannel.open(base.resolve("chunks.jsonl"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        load(base.resolve("chunks.jsonl"));
+        log.info("Memory-mapped vector index opened at {} with {} rows (dim={})", base, count, dim);
+    }
+
+    @Override
+    public String name() {
+        return "mmap";
+    }
+
+    /**
+     * Appends (or, for a known chunk id, overwrites) the given vectors.
+     *
+     * @return per-chunk success, aligned with {@code chunks}
+     */
+    public synchronized List<Boolean> add(List<LogChunk> chunks, List<byte[]> vectors) {
+        try {
+            int next = count;
+            long metaEnd = metaOffsets[next];
+            Map<String, Integer> added = new HashMap<>();
+            Map<Integer, float[]> overwrites = new HashMap<>();
+            List<byte[]> lines = new ArrayList<>();
+
+            for (int i = 0; i < chunks.size(); i++) {
+                LogChunk chunk = chunks.get(i);
+                float[] v = VectorCodec.truncateAndNormalize(embeddingService.decode(vectors.get(i)), dim);
+
+                Integer visible = rowsById.get(chunk.getId());
+                if (visible != null) {
+                    overwrites.put(visible, v);
+                    continue;
+                }
+                Integer pending = added.get(chunk.getId());
+                if (pending != null) {
+                    writeRow(pending, v); // not visible to searches yet
+                    continue;
+                }
+
+                int row = next++;
+                writeRow(row, v);
+                byte[] line = metaLine(chunk);
+                lines.add(line);
+                ensureOffsetCapacity(row + 2);
+                metaOffsets[row + 1] = metaOffsets[row] + line.length;
+                added.put(chunk.getId(), row);
+            }
+
+            if (!lines.isEmpty()) {
+                ByteBuffer meta = ByteBuffer.allocate((int) (metaOffsets[next] - metaEnd));
+                lines.forEach(meta::put);
+                meta.flip();
+                while (meta.hasRemaining()) {
+                    metaChannel.write(meta, metaEnd + meta.position());
+                }
+            }
+
+            if (!overwrites.isEmpty()) {
+                rowLock.writeLock().lock();
+                try {
+                    for (Map.Entry<Integer, float[]> e : overwrites.entrySet()) {
+                        writeRow(e.getKey(), e.getValue());
+                    }
+                } finally {
+                    rowLock.writeLock().unlock();
+                }
+            }
+
+            // rows become visible to searches only once their metadata is on disk
+            rowsById.putAll(added);
+            count = next;
+            return new ArrayList<>(Collections.nCopies(chunks.size(), true));
+        } catch (IOException e) {
+            log.error("Failed to append {} vectors to the mmap index", chunks.size(), e);
+            return new ArrayList<>(Collections.nCopies(chunks.size(), false));
+        }
+    }
+
+    /**
+     * A structured filter is applied like the terms, after an oversampled scan; unlike
+     * RediSearch this backend cannot skip rows before scoring them.
+     */
+    @Override
+    public List<SearchHit> knnSearch(String query, int topK, Integer efRuntime, SearchFilter filter) {
+        float[] q = VectorCodec.truncateAndNormalize(embeddingService.getEmbedding(query), dim);
+        boolean filtered = filter != null && !filter.isEmpty();
+        return toHits(scan(q, filtered ? topK * HYBRID_OVERSAMPLE : topK), topK, null, filter);
+    }
+
+    /**
+     * Queries are embedded in one batch call; the scans run one after another, each
+     * already parallel across segments.
+     */
+    @Override
+    public List<List<SearchHit>> knnSearchBatch(List<String> queries, int topK, Integer efRuntime,
+                                                SearchFilter filter) {
+        boolean filtered = filter != null && !filter.isEmpty();
+        List<List<SearchHit>> out = new ArrayList<>(queries.size());
+        for (float[] v : embeddingService.getEmbeddings(queries)) {
+            float[] q = VectorCodec.truncateAndNormalize(v, dim);
+            out.add(toHits(scan(q, filtered ? topK * HYBRID_OVERSAMPLE : topK), topK, null, filter));
+        }
+        return out;
+    }
+
+    /**
+     * Terms are applied as a post-filter over an oversampled KNN candidate set.
+     */
+    @Override
+    public List<SearchHit> hybridKnnSearch(String query, List<String> terms, int topK, Integer efRuntime,
+                                           SearchFilter filter) {
+        float[] q = VectorCodec.truncateAndNormalize(embeddingService.getEmbedding(query), dim);
+        return toHits(scan(q, topK * HYBRID_OVERSAMPLE), topK, terms, filter);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        for (MappedByteBuffer m : mappings) {
+            m.force();
+        }
+        metaChannel.force(true);
+        vectorChannel.close();
+        metaChannel.close();
+    }
+
+    TopK scan(float[] q, int k) {
+        rowLock.readLock().lock();
+        try {
+            int n = count;
+            FloatBuffer[] segs = segments;
+            if (n < PARALLEL_THRESHOLD) {
+                return scanRange(segs, q, 0, n, k);
+            }
+
+            int parts = Runtime.getRuntime().availableProcessors();
+            int step = (n + parts - 1) / parts;
+            return IntStream.range(0, parts)
+                    .parallel()
+                    .mapToObj(p -> scanRange(segs, q, p * step, Math.min(n, (p + 1) * step), k))
+                    .reduce(TopK::merge)
+                    .orElseGet(() -> new TopK(k));
+        } finally {
+            rowLock.readLock().unlock();
+        }
+    }
+
+    private TopK scanRange(FloatBuffer[] segs, float[] q, int from, int to, int k) {
+        TopK top = new TopK(k);
+        float[] row = new float[dim];
+        for (int r = from; r < to; r++) {
+            segs[r / rowsPerSegment].get((r % rowsPerSegment) * dim, row);
+            top.offer(r, dot(q, row));
+        }
+        return top;
+    }
+
+    /**
+     * Cosine of unit vectors. This is scalar code: independent accumulators break the add
+     * dependency chain so the loop pipelines well in C2, but it is not a SIMD kernel. The
+     * Vector API is still incubating on Java 17.
+     */
+    static float dot(float[] a, float[] b) {
+        int n = a.length;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0, s5 = 0, s6 = 0, s7 = 0;
+        int i = 0;
+        for (; i + 7 < n; i += 8) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+            s4 += a[i + 4] * b[i + 4];
+            s5 += a[i + 5] * b[i + 5];
+            s6 += a[i + 6] * b[i + 6];
+            s7 += a[i + 7] * b[i + 7];
+        }
+        for (; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return ((s0 + s1) + (s2 + s3)) + ((s4 + s5) + (s6 + s7));
+    }
+
+    private List<SearchHit> toHits(TopK top, int limit, List<String> terms, SearchFilter filter) {
+        List<SearchHit> out = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (int i : top.sortedIndexes()) {
+            if (out.size() >= limit) {
+                break;
+            }
+            JsonNode meta = readMeta(top.rows[i]);
+            String text = text(meta.path("text"));
+            if (terms != null && !containsAny(text, terms)) {
+                continue;
+            }
+            if (filter != null && !filter.isEmpty() && !filter.matches(
+                    meta.hasNonNull("tsStart") ? meta.get("tsStart").asLong() : null,
+                    meta.hasNonNull("tsEnd") ? meta.get("tsEnd").asLong() : null,
+                    meta.path("severity").asInt(0),
+                    tags(text(meta.path("service"))),
+                    tags(text(meta.path("traceId"))),
+                    now)) {
+                continue;
+            }
+            out.add(new SearchHit(
+                    keyPrefix + meta.path("id").asText(),
+                    text,
+                    1.0 - top.scores[i],
+                    text(meta.path("fileName"))));
+        }
+        return out;
+    }
+
+    private static String text(JsonNode node) {
+        return node.isMissingNode() || node.isNull() ? "" : node.asText();
+    }
+
+    private static List<String> tags(String joined) {
+        return joined.isEmpty() ? List.of() : Arrays.asList(joined.split("\\|"));
+    }
+
+    private static boolean containsAny(String text, List<String> terms) {
+        String lower = text.toLowerCase();
+        for (String t : terms) {
+            if (lower.contains(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private JsonNode readMeta(int row) {
+        long[] offsets = metaOffsets;
+        ByteBuffer buf = ByteBuffer.allocate((int) (offsets[row + 1] - offsets[row]));
+        try {
+            while (buf.hasRemaining()) {
+                if (metaChannel.read(buf, offsets[row] + buf.position()) < 0) {
+                    break;
+                }
+            }
+            return mapper.readTree(buf.array());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read metadata for row " + row, e);
+        }
+    }
+
+    private byte[] metaLine(LogChunk chunk) throws IOException {
+        Map<String, Object> meta = new HashMap<>();
+        meta.put("id", chunk.getId());
+        meta.put("fileName", chunk.getFileName() == null ? "" : chunk.getFileName());
+        meta.put("text", chunk.getText() == null ? "" : chunk.getText());
+        if (chunk.getTsStart() != null) {
+            meta.put("tsStart", chunk.getTsStart());
+            meta.put("tsEnd", chunk.getTsEnd());
+            meta.put("severity", chunk.getSeverity());
+        }
+        if (chunk.getServices() != null) {
+            meta.put("service", chunk.getServices());
+        }
+        if (chunk.getTraceIds() != null) {
+            meta.put("traceId", chunk.getTraceIds());
+        }
+        byte[] json = mapper.writeValueAsBytes(meta);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private void writeRow(int row, float[] v) throws IOException {
+        int seg = row / rowsPerSegment;
+        while (segments.length <= seg) {
+            mapSegment(segments.length);
+        }
+        segments[seg].put((row % rowsPerSegment) * dim, v);
+    }
+
+    private void mapSegment(int seg) throws IOException {
+        MappedByteBuffer mapped = vectorChannel.map(FileChannel.MapMode.READ_WRITE, seg * segmentBytes, segmentBytes);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        FloatBuffer[] segs = Arrays.copyOf(segments, seg + 1);
+        segs[seg] = mapped.asFloatBuffer();
+        MappedByteBuffer[] maps = Arrays.copyOf(mappings, seg + 1);
+        maps[seg] = mapped;
+        mappings = maps;
+        segments = segs;
+    }
+
+    private void ensureOffsetCapacity(int size) {
+        if (metaOffsets.length < size) {
+            metaOffsets = Arrays.copyOf(metaOffsets, Math.max(size, metaOffsets.length * 2));
+        }
+    }
+
+    /**
+     * Rebuilds row offsets and ids from the metadata file and maps the vector segments.
+     */
+    private void load(Path metaFile) throws IOException {
+        long offset = 0;
+        int rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(metaFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long end = offset + line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (end > metaChannel.size()) {
+                    break; // last line was not terminated, i.e. a torn write
+                }
+                ensureOffsetCapacity(rows + 2);
+                metaOffsets[rows + 1] = end;
+                rowsById.put(mapper.readTree(line).path("id").asText(), rows);
+                offset = end;
+                rows++;
+            }
+        }
+        metaChannel.truncate(offset);
+
+        int segs = (rows + rowsPerSegment - 1) / rowsPerSegment;
+        for (int s = 0; s < segs; s++) {
+            mapSegment(s);
+        }
+        count = rows;
+    }
+
+    /**
+     * Bounded min-heap of (row, similarity); the root is the weakest kept candidate.
+     */
+    static final class TopK {
+        final int k;
+        final int[] rows;
+        final float[] scores;
+        int size;
+
+        TopK(int k) {
+            this.k = Math.max(1, k);
+            this.rows = new int[this.k];
+            this.scores = new float[this.k];
+        }
+
+        void offer(int row, float score) {
+            if (size < k) {
+                rows[size] = row;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (score > scores[0]) {
+                rows[0] = row;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        TopK merge(TopK other) {
+            for (int i = 0; i < other.size; i++) {
+                offer(other.rows[i], other.scores[i]);
+            }
+            return this;
+        }
+
+        /**
+         * Heap slots ordered by descending similarity.
+         */
+        Integer[] sortedIndexes() {
+            Integer[] idx = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                idx[i] = i;
+            }
+            Arrays.sort(idx, (a, b) -> Float.compare(scores[b], scores[a]));
+            return idx;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[i] >= scores[parent]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int l = 2 * i + 1;
+                int r = l + 1;
+                int min = i;
+                if (l < size && scores[l] < scores[min]) min = l;
+                if (r < size && scores[r] < scores[min]) min = r;
+                if (min == i) {
+                    return;
+                }
+                swap(i, min);
+                i = min;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int r = rows[a];
+            rows[a] = rows[b];
+            rows[b] = r;
+            float s = scores[a];
+            scores[a] = scores[b];
+            scores[b] = s;
+        }
+    }
+}
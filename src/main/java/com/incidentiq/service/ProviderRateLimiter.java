@@ -0,0 +1,497 @@
+package com.incidentiq.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side quota for one provider API, shared by every caller of that client.
+ * <p>
+ * A call needs a permit: one request from the requests/min bucket, its estimated tokens
+ * from the tokens/min bucket, and a free concurrency slot. Buckets refill continuously
+ * and hold at most one minute of quota. The concurrency limit adapts AIMD-style: +1 per
+ * limit's worth of successes, halved on a 429 (at most once per second, since a burst of
+ * 429s reports one overload). A Retry-After header, or the retryDelay Gemini puts in a
+ * 429 body, pauses every caller for that long.
+ * <p>
+ * {@link #call} retries 429s, 5xx and I/O errors with full-jitter exponential backoff,
+ * never shorter than the server's retry delay. Other errors are not retried.
+ * {@link #callAsync} does the same without blocking: waits for quota and backoff are
+ * timers on a shared scheduler thread.
+ */
+@Slf4j
+public class ProviderRateLimiter {
+
+    public enum FailureKind { THROTTLED, TRANSIENT, PERMANENT }
+
+    /** Spring AI reports HTTP errors as "<status> - <body>". */
+    private static final Pattern STATUS_PREFIX = Pattern.compile("^(\\d{3}) - ");
+    private static final Pattern RETRY_DELAY = Pattern.compile("\"retryDelay\"\\s*:\\s*\"(\\d+(?:\\.\\d+)?)s\"");
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Wakes asynchronous waiters; the tasks only take permits and start calls. */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "provider-rate-limiter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final double requestsPerNano;
+    private final double tokensPerNano;
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition changed = lock.newCondition();
+
+    // guarded by lock
+    private double requests;
+    private double tokens;
+    private long refilledAt;
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+    private long lastDecrease;
+    private final Queue<Runnable> asyncWaiters = new ArrayDeque<>();
+
+    private final Counter throttled;
+    private final Counter retriesThrottled;
+    private final Counter retriesTransient;
+    private final Counter exhausted;
+    private final Timer permitWait;
+
+    /**
+     * @param requestsPerMinute requests/min quota, 0 = unlimited
+     * @param tokensPerMinute   tokens/min quota, 0 = unlimited
+     * @param maxConcurrency    upper bound (and starting value) of the adaptive concurrency limit
+     * @param maxAttempts       attempts per call including the first
+     */
+    public ProviderRateLimiter(String name, int requestsPerMinute, long tokensPerMinute, int maxConcurrency,
+                               int maxAttempts, long backoffBaseMs, long backoffMaxMs, MeterRegistry registry) {
+        this.name = name;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffBaseMs = Math.max(1, backoffBaseMs);
+        this.backoffMaxMs = Math.max(this.backoffBaseMs, backoffMaxMs);
+
+        long minute = TimeUnit.MINUTES.toNanos(1);
+        this.requestCapacity = requestsPerMinute > 0 ? requestsPerMinute : Double.POSITIVE_INFINITY;
+        this.tokenCapacity = tokensPerMinute > 0 ? tokensPerMinute : Double.POSITIVE_INFINITY;
+        this.requestsPerNano = requestsPerMinute > 0 ? (double) requestsPerMinute / minute : 0;
+        this.tokensPerNano = tokensPerMinute > 0 ? (double) tokensPerMinute / minute : 0;
+        this.requests = requestCapacity;
+        this.tokens = tokenCapacity;
+        this.refilledAt = System.nanoTime();
+        this.limit = this.maxConcurrency;
+        this.lastDecrease = refilledAt - DECREASE_INTERVAL_NANOS;
+
+        Gauge.builder("incidentiq.provider.concurrency.limit", this, ProviderRateLimiter::currentLimit)
+                .description("Adaptive concurrency limit for provider calls")
+                .tag("provider", name)
+                .register(registry);
+        Gauge.builder("incidentiq.provider.inflight", this, ProviderRateLimiter::inFlight)
+                .description("Provider calls holding a permit")
+                .tag("provider", name)
+                .register(registry);
+        this.throttled = Counter.builder("incidentiq.provider.throttled")
+                .description("429 responses from the provider")
+                .tag("provider", name)
+                .register(registry);
+        this.retriesThrottled = retryCounter(registry, "throttled");
+        this.retriesTransient = retryCounter(registry, "transient");
+        this.exhausted = Counter.builder("incidentiq.provider.exhausted")
+                .description("Provider calls that failed after the last retry")
+                .tag("provider", name)
+                .register(registry);
+        this.permitWait = Timer.builder("incidentiq.provider.permit.wait")
+                .description("Time spent waiting for rate or concurrency quota")
+                .tag("provider", name)
+                .register(registry);
+    }
+
+    private Counter retryCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("incidentiq.provider.retries")
+                .description("Provider calls retried")
+                .tag("provider", name)
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    /**
+     * Runs the call under a permit, retrying retryable failures.
+     *
+     * @param estimatedTokens tokens charged against the tokens/min bucket
+     */
+    public <T> T call(long estimatedTokens, Supplier<T> call) {
+        for (int attempt = 1; ; attempt++) {
+            Permit permit = acquire(estimatedTokens);
+            T result;
+            try {
+                result = call.get();
+            } catch (RuntimeException e) {
+                Duration backoff = permit.failure(e, attempt);
+                if (backoff == null) {
+                    throw e;
+                }
+                log.debug("{} call failed (attempt {}), retrying in {} ms", name, attempt, backoff.toMillis());
+                sleep(backoff);
+                continue;
+            }
+            permit.success();
+            return result;
+        }
+    }
+
+    /**
+     * Asynchronous {@link #call}: the future completes with the call's result, or with its
+     * last failure once it is not retryable or attempts run out.
+     */
+    public <T> CompletableFuture<T> callAsync(long estimatedTokens, Supplier<CompletableFuture<T>> call) {
+        return attemptAsync(estimatedTokens, call, 1);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(long tokens, Supplier<CompletableFuture<T>> call, int attempt) {
+        return acquireAsync(tokens).thenCompose(permit -> {
+            CompletableFuture<T> started;
+            try {
+                started = call.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            return started.handle((result, error) -> {
+                if (error == null) {
+                    permit.success();
+                    return CompletableFuture.completedFuture(result);
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                Duration backoff = permit.failure(cause, attempt);
+                if (backoff == null) {
+                    return CompletableFuture.<T>failedFuture(cause);
+                }
+                log.debug("{} call failed (attempt {}), retrying in {} ms", name, attempt, backoff.toMillis());
+                return CompletableFuture.supplyAsync(() -> null,
+                                CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS, SCHEDULER))
+                        .thenCompose(x -> attemptAsync(tokens, call, attempt + 1));
+            }).thenCompose(f -> f);
+        });
+    }
+
+    /**
+     * Blocks until a permit is available. Callers that do not use {@link #call} must end
+     * every permit with {@link Permit#success}, {@link Permit#failure} or {@link Permit#release}.
+     */
+    public Permit acquire(long estimatedTokens) {
+        double need = clampTokens(estimatedTokens);
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            long waitNanos;
+            while ((waitNanos = tryTake(need)) != 0) {
+                if (waitNanos < 0) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(waitNanos);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for " + name + " quota", e);
+        } finally {
+            lock.unlock();
+        }
+        permitWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit();
+    }
+
+    /**
+     * Completes with a permit once one is available, without blocking the caller.
+     */
+    public CompletableFuture<Permit> acquireAsync(long estimatedTokens) {
+        CompletableFuture<Permit> f = new CompletableFuture<>();
+        tryAcquireAsync(f, clampTokens(estimatedTokens), System.nanoTime());
+        return f;
+    }
+
+    private void tryAcquireAsync(CompletableFuture<Permit> f, double need, long start) {
+        if (f.isDone()) {
+            return;
+        }
+        long waitNanos;
+        lock.lock();
+        try {
+            waitNanos = tryTake(need);
+            if (waitNanos < 0) {
+                asyncWaiters.add(() -> tryAcquireAsync(f, need, start));
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (waitNanos > 0) {
+            SCHEDULER.schedule(() -> tryAcquireAsync(f, need, start), waitNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        permitWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        Permit permit = new Permit();
+        if (!f.complete(permit)) {
+            permit.release(); // cancelled while waiting
+        }
+    }
+
+    private double clampTokens(long estimatedTokens) {
+        return Math.min(Math.max(0, estimatedTokens), tokenCapacity);
+    }
+
+    /**
+     * Takes a permit if one is available. Otherwise returns how long to wait, or -1 to wait
+     * until a permit is returned. Called with the lock held.
+     */
+    private long tryTake(double need) {
+        long now = System.nanoTime();
+        refill(now);
+        if (now < pausedUntil) {
+            return pausedUntil - now;
+        }
+        if (inFlight >= (int) limit) {
+            return -1;
+        }
+        if (requests >= 1 && tokens >= need) {
+            requests -= 1;
+            tokens -= need;
+            inFlight++;
+            return 0;
+        }
+        double r = requests >= 1 ? 0 : (1 - requests) / requestsPerNano;
+        double t = tokens >= need ? 0 : (need - tokens) / tokensPerNano;
+        return Math.max(1, (long) Math.ceil(Math.max(r, t)));
+    }
+
+    private void refill(long now) {
+        long elapsed = now - refilledAt;
+        if (elapsed > 0) {
+            requests = Math.min(requestCapacity, requests + elapsed * requestsPerNano);
+            tokens = Math.min(tokenCapacity, tokens + elapsed * tokensPerNano);
+            refilledAt = now;
+        }
+    }
+
+    private void release(FailureKind outcome, Duration retryAfter) {
+        lock.lock();
+        try {
+            inFlight--;
+            long now = System.nanoTime();
+            if (outcome == null) {
+                if (limit < maxConcurrency) {
+                    limit = Math.min(maxConcurrency, limit + 1 / limit);
+                }
+            } else if (outcome == FailureKind.THROTTLED) {
+                if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+                    double before = limit;
+                    limit = Math.max(1, limit / 2);
+                    lastDecrease = now;
+                    log.info("{} throttled by the provider, concurrency limit {} -> {}",
+                            name, (int) before, (int) limit);
+                }
+                if (retryAfter != null) {
+                    pausedUntil = Math.max(pausedUntil, now + retryAfter.toNanos());
+                }
+            }
+            changed.signalAll();
+            Runnable waiter = asyncWaiters.poll();
+            if (waiter != null) {
+                SCHEDULER.execute(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Full jitter: uniform in [0, min(max, base * 2^(attempt-1))], but never below the
+     * server's retry delay.
+     */
+    Duration backoff(int attempt, Duration retryAfter) {
+        long ceiling = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempt - 1, 20));
+        long jittered = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        long floor = retryAfter == null ? 0 : retryAfter.toMillis();
+        return Duration.ofMillis(Math.max(jittered, floor));
+    }
+
+    double currentLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Throttling is a 429; 5xx and I/O failures are transient. Spring AI wraps HTTP errors
+     * in its own exceptions with the status in the message, so the whole cause chain is read.
+     */
+    static Failure classify(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof HttpStatusCodeException e) {
+                return failure(e.getStatusCode().value(), e.getResponseHeaders(), e.getResponseBodyAsString());
+            }
+            if (t instanceof WebClientResponseException e) {
+                return failure(e.getStatusCode().value(), e.getHeaders(), e.getResponseBodyAsString());
+            }
+            if (t instanceof TransientAiException || t instanceof NonTransientAiException) {
+                String message = t.getMessage() == null ? "" : t.getMessage();
+                Matcher m = STATUS_PREFIX.matcher(message);
+                if (m.find()) {
+                    return failure(Integer.parseInt(m.group(1)), null, message);
+                }
+                return new Failure(t instanceof TransientAiException ? FailureKind.TRANSIENT : FailureKind.PERMANENT, null);
+            }
+            if (t instanceof ResourceAccessException || t instanceof WebClientRequestException
+                    || t instanceof IOException) {
+                return new Failure(FailureKind.TRANSIENT, null);
+            }
+        }
+        return new Failure(FailureKind.PERMANENT, null);
+    }
+
+    private static Failure failure(int status, HttpHeaders headers, String body) {
+        if (status == 429) {
+            Duration after = headers == null ? null : retryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            if (after == null && body != null) {
+                Matcher m = RETRY_DELAY.matcher(body);
+                if (m.find()) {
+                    after = Duration.ofMillis((long) (Double.parseDouble(m.group(1)) * 1000));
+                }
+            }
+            return new Failure(FailureKind.THROTTLED, after);
+        }
+        if (status >= 500 || status == 408) {
+            Duration after = headers == null ? null : retryAfter(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            return new Failure(FailureKind.TRANSIENT, after);
+        }
+        return new Failure(FailureKind.PERMANENT, null);
+    }
+
+    /**
+     * Retry-After is either delay-seconds or an HTTP date.
+     */
+    static Duration retryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String v = value.trim();
+        try {
+            if (v.chars().allMatch(Character::isDigit)) {
+                return Duration.ofSeconds(Long.parseLong(v));
+            }
+            Duration d = Duration.between(ZonedDateTime.now(), ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME));
+            return d.isNegative() ? Duration.ZERO : d;
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static void sleep(Duration d) {
+        try {
+            Thread.sleep(d.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during provider backoff", e);
+        }
+    }
+
+    public record Failure(FailureKind kind, Duration retryAfter) {
+    }
+
+    /**
+     * One granted call. Ends exactly once; later calls are ignored.
+     */
+    public final class Permit {
+
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        public void success() {
+            if (ended.compareAndSet(false, true)) {
+                ProviderRateLimiter.this.release(null, null);
+            }
+        }
+
+        /**
+         * Returns the permit and feeds the failure into the concurrency limit.
+         *
+         * @param attempt 1-based attempt that failed
+         * @return how long to wait before retrying, or null if the call must not be retried
+         */
+        public Duration failure(Throwable error, int attempt) {
+            Failure f = classify(error);
+            if (f.kind() == FailureKind.THROTTLED) {
+                throttled.increment();
+            }
+            if (ended.compareAndSet(false, true)) {
+                ProviderRateLimiter.this.release(f.kind(), f.retryAfter());
+            }
+            if (f.kind() == FailureKind.PERMANENT) {
+                return null;
+            }
+            if (attempt >= maxAttempts) {
+                exhausted.increment();
+                log.warn("{} call failed after {} attempts: {}", name, attempt, error.getMessage());
+                return null;
+            }
+            (f.kind() == FailureKind.THROTTLED ? retriesThrottled : retriesTransient).increment();
+            return backoff(attempt, f.retryAfter());
+        }
+
+        /** Returns the permit without feedback, e.g. on cancellation. */
+        public void release() {
+            if (ended.compareAndSet(false, true)) {
+                ProviderRateLimiter.this.release(FailureKind.PERMANENT, null);
+            }
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.incidentiq.service;
 
+import com.incidentiq.model.SearchFilter;
 import com.incidentiq.model.SearchHit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.search.Document;
 import redis.clients.jedis.search.Query;
 import redis.clients.jedis.search.SearchResult;
@@ -15,27 +19,36 @@ import java.util.List;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class RediSearchKnnService {
+public class RediSearchKnnService implements VectorIndex {
 
     private final JedisPooled jedis;
     private final EmbeddingService embeddingService;
 
-    private static final String INDEX = "idx:logs";
+    @Value("${app.redis.index-name:idx:logs}")
+    private String index;
 
-    public List<SearchHit> knnSearch(String query, int topK) {
-        byte[] vec = embeddingService.embedToBinary(query);
+    @Value("${app.redis.index.algorithm:FLAT}")
+    private String algorithm;
 
-        String knnExpr = "*=>[KNN " + topK + " @vector $vec AS score]";
+    @Override
+    public String name() {
+        return "redis";
+    }
 
-        Query q = new Query(knnExpr)
-                .addParam("vec", vec)
-                .returnFields("text", "fileName", "score")
-                .setSortBy("score", true)   // for COSINE distance (lower = closer)
-                .dialect(2);
+    public List<SearchHit> knnSearch(String query, int topK) {
+        return knnSearch(query, topK, null);
+    }
+
+    /**
+     * @param efRuntime HNSW candidate list size for this query; higher is more accurate and slower.
+     *                  Ignored for FLAT indexes or when null.
+     */
+    @Override
+    public List<SearchHit> knnSearch(String query, int topK, Integer efRuntime, SearchFilter filter) {
+        byte[] vec = embeddingService.embedToBinary(query);
 
         try {
-            SearchResult result = jedis.ftSearch(INDEX, q);
-            return convert(result);
+            return knnByVector(index, vec, filterExpr(filter, System.currentTimeMillis()), topK, efRuntime);
         } catch (Exception e) {
             log.error("KNN search error", e);
             return List.of();
@@ -43,8 +56,158 @@ public class RediSearchKnnService {
     }
 
     public List<SearchHit> hybridKnnSearch(String query, String filter, int topK) {
+        return hybridKnnSearch(query, filter, topK, null);
+    }
+
+    /**
+     * Terms are OR-ed into a full-text pre-filter on the text field.
+     */
+    @Override
+    public List<SearchHit> hybridKnnSearch(String query, List<String> terms, int topK, Integer efRuntime,
+                                           SearchFilter filter) {
+        if (terms.isEmpty()) {
+            return knnSearch(query, topK, efRuntime, filter);
+        }
+        String structured = filterExpr(filter, System.currentTimeMillis());
+        String text = textFilter(terms);
+        return hybridKnnSearch(query, structured == null ? text : text + " " + structured, topK, efRuntime);
+    }
+
+    @Override
+    public boolean supportsFullText() {
+        return true;
+    }
+
+    /**
+     * BM25-scored FT.SEARCH over the text field; terms are OR-ed and the structured filter
+     * intersected. Errors propagate so the caller can fall back to the vector ranking.
+     */
+    @Override
+    public List<SearchHit> fullTextSearch(List<String> terms, int topK, SearchFilter filter) {
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        String structured = filterExpr(filter, System.currentTimeMillis());
+        String text = textFilter(terms);
+        Query q = new Query(structured == null ? text : text + " " + structured)
+                .setScorer("BM25")
+                .setWithScores()
+                .returnFields("text", "fileName")
+                .limit(0, topK)
+                .dialect(2);
+
+        List<Document> docs = jedis.ftSearch(index, q).getDocuments();
+        List<SearchHit> hits = convert(docs);
+        for (int i = 0; i < hits.size(); i++) {
+            Double score = docs.get(i).getScore();
+            hits.get(i).setScore(score == null ? 0.0 : score);
+        }
+        return hits;
+    }
+
+    static String textFilter(List<String> terms) {
+        return "@text:(" + String.join("|", terms) + ")";
+    }
+
+    /**
+     * RediSearch pre-filter for the structured fields, or null when there is nothing to
+     * filter. Clauses are intersected; the KNN then only scores the matching documents.
+     */
+    static String filterExpr(SearchFilter filter, long nowMillis) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+        List<String> clauses = new ArrayList<>();
+        Long from = filter.fromMillis(nowMillis);
+        Long to = filter.toMillis();
+        if (from != null) {
+            clauses.add("@tsEnd:[" + from + " +inf]");
+        }
+        if (to != null) {
+            clauses.add("@tsStart:[-inf " + to + "]");
+        }
+        if (filter.getMinSeverity() != null) {
+            clauses.add("@severity:[" + filter.getMinSeverity() + " +inf]");
+        }
+        if (filter.getServices() != null && !filter.getServices().isEmpty()) {
+            clauses.add("@service:{" + String.join(" | ",
+                    filter.getServices().stream().map(RediSearchKnnService::escapeTag).toList()) + "}");
+        }
+        if (filter.getTraceId() != null) {
+            clauses.add("@traceId:{" + escapeTag(filter.getTraceId()) + "}");
+        }
+        return String.join(" ", clauses);
+    }
+
+    /**
+     * Backslash-escapes everything but letters, digits and underscore, as TAG queries require.
+     */
+    static String escapeTag(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    public List<SearchHit> hybridKnnSearch(String query, String filter, int topK, Integer efRuntime) {
         byte[] vec = embeddingService.embedToBinary(query);
 
+        try {
+            return knnByVector(index, vec, filter, topK, efRuntime);
+        } catch (Exception e) {
+            log.error("Hybrid KNN search error", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Runs a KNN query with an already encoded vector against the given index.
+     */
+    public List<SearchHit> knnByVector(String indexName, byte[] vec, String filter, int topK, Integer efRuntime) {
+        SearchResult result = jedis.ftSearch(indexName, knnQuery(indexName, vec, filter, topK, efRuntime));
+        return convert(result.getDocuments());
+    }
+
+    /**
+     * One KNN per query, embedded in a single batch call for the cache misses and sent as
+     * one pipeline, so the round trips overlap on one connection. A query that fails gets
+     * an empty result.
+     */
+    @Override
+    public List<List<SearchHit>> knnSearchBatch(List<String> queries, int topK, Integer efRuntime,
+                                                SearchFilter filter) {
+        List<byte[]> vectors = embeddingService.getEmbeddingsAsBytes(queries);
+        String expr = filterExpr(filter, System.currentTimeMillis());
+
+        List<Response<SearchResult>> responses = new ArrayList<>(vectors.size());
+        try (Pipeline p = jedis.pipelined()) {
+            for (byte[] vec : vectors) {
+                responses.add(p.ftSearch(index, knnQuery(index, vec, expr, topK, efRuntime)));
+            }
+            p.sync();
+        } catch (Exception e) {
+            log.error("Batch KNN search error", e);
+            return queries.stream().map(q -> List.<SearchHit>of()).toList();
+        }
+
+        List<List<SearchHit>> out = new ArrayList<>(responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            try {
+                out.add(convert(responses.get(i).get().getDocuments()));
+            } catch (Exception e) {
+                log.error("KNN search error in batch for query {}", i, e);
+                out.add(List.of());
+            }
+        }
+        return out;
+    }
+
+    private Query knnQuery(String indexName, byte[] vec, String filter, int topK, Integer efRuntime) {
         String baseExpr;
         if (filter == null || filter.isBlank()) {
             baseExpr = "*";
@@ -52,27 +215,30 @@ public class RediSearchKnnService {
             baseExpr = "(" + filter + ")";
         }
 
-        String searchExpr = baseExpr + "=>[KNN " + topK + " @vector $vec AS score]";
+        boolean hnsw = efRuntime != null && "HNSW".equalsIgnoreCase(algorithm) && indexName.equals(index);
+        String searchExpr = baseExpr + "=>[KNN " + topK + " @vector $vec"
+                + (hnsw ? " EF_RUNTIME $ef" : "") + " AS score]";
 
         Query q = new Query(searchExpr)
                 .addParam("vec", vec)
                 .returnFields("text", "fileName", "score")
-                .setSortBy("score", true)
+                .setSortBy("score", true)   // for COSINE distance (lower = closer)
+                .limit(0, topK)
                 .dialect(2);
-
-        try {
-            SearchResult result = jedis.ftSearch(INDEX, q);
-            return convert(result);
-        } catch (Exception e) {
-            log.error("Hybrid KNN search error", e);
-            return List.of();
+        if (hnsw) {
+            q.addParam("ef", efRuntime);
         }
+        return q;
+    }
+
+    public String getIndexName() {
+        return index;
     }
 
-    private List<SearchHit> convert(SearchResult sr) {
+    static List<SearchHit> convert(List<Document> docs) {
         List<SearchHit> out = new ArrayList<>();
 
-        for (Document d : sr.getDocuments()) {
+        for (Document d : docs) {
             SearchHit hit = new SearchHit();
             hit.setId(d.getId());
             hit.setText((String) d.get("text"));
@@ -86,7 +252,7 @@ public class RediSearchKnnService {
         return out;
     }
 
-    private double parse(Object v) {
+    private static double parse(Object v) {
         try {
             return Double.parseDouble(v.toString());
         } catch (Exception e) {
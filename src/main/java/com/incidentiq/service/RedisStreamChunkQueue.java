@@ -0,0 +1,231 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.incidentiq.model.LogChunk;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XPendingParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.resps.StreamPendingEntry;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chunk queue on a Redis Stream with a consumer group, giving at-least-once delivery
+ * across nodes.
+ * <p>
+ * Entries stay in the consumer's pending list until {@link #ack} is called after a
+ * successful store. Entries left pending longer than {@code reclaim-idle-ms} (the consumer
+ * crashed or the store failed) are taken over with XAUTOCLAIM and redelivered; after
+ * {@code max-deliveries} attempts they are moved to a dead-letter stream.
+ */
+@Component
+@Slf4j
+public class RedisStreamChunkQueue {
+
+    private static final String FIELD = "chunk";
+
+    private final JedisPooled jedis;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String streamKey;
+    private final String deadLetterKey;
+    private final String group;
+    private final String consumer;
+    private final long reclaimIdleMs;
+    private final long reclaimIntervalMs;
+    private final int maxDeliveries;
+
+    private final AtomicLong nextReclaimAt = new AtomicLong();
+    /** XAUTOCLAIM cursor; 0-0 once a pass has walked the whole pending list. */
+    private volatile StreamEntryID reclaimCursor = new StreamEntryID(0, 0);
+    private volatile boolean groupReady;
+
+    public RedisStreamChunkQueue(JedisPooled jedis,
+                                 @Value("${app.ingest.queue.stream-key:ingest_stream}") String streamKey,
+                                 @Value("${app.ingest.queue.group:ingest-workers}") String group,
+                                 @Value("${app.ingest.queue.consumer:}") String consumer,
+                                 @Value("${app.ingest.queue.reclaim-idle-ms:300000}") long reclaimIdleMs,
+                                 @Value("${app.ingest.queue.reclaim-interval-ms:30000}") long reclaimIntervalMs,
+                                 @Value("${app.ingest.queue.max-deliveries:5}") int maxDeliveries) {
+        this.jedis = jedis;
+        this.streamKey = streamKey;
+        this.deadLetterKey = streamKey + ":dead";
+        this.group = group;
+        this.consumer = consumer.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : consumer;
+        this.reclaimIdleMs = reclaimIdleMs;
+        this.reclaimIntervalMs = reclaimIntervalMs;
+        this.maxDeliveries = maxDeliveries;
+    }
+
+    public void enqueue(LogChunk chunk) throws Exception {
+        jedis.xadd(streamKey, XAddParams.xAddParams(), Map.of(FIELD, mapper.writeValueAsString(chunk)));
+    }
+
+    /**
+     * Returns reclaimed entries when a reclaim pass is due and finds any, otherwise reads new
+     * entries with XREADGROUP COUNT, blocking up to 1s for the first and {@code maxWaitMs}
+     * to fill the batch.
+     */
+    public List<LogChunk> dequeueBatch(int maxBatch, long maxWaitMs) {
+        ensureGroup();
+
+        List<LogChunk> reclaimed = reclaimIfDue(maxBatch);
+        if (!reclaimed.isEmpty()) {
+            return reclaimed;
+        }
+
+        List<LogChunk> batch = new ArrayList<>(maxBatch);
+        read(batch, maxBatch, 1000);
+        if (batch.isEmpty()) {
+            return batch;
+        }
+
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        while (batch.size() < maxBatch) {
+            long remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0 || !read(batch, maxBatch, remainingMs)) {
+                break;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Acknowledges stored chunks and removes them from the stream.
+     */
+    public void ack(List<LogChunk> chunks) {
+        StreamEntryID[] ids = chunks.stream()
+                .map(LogChunk::getDeliveryId)
+                .filter(Objects::nonNull)
+                .map(StreamEntryID::new)
+                .toArray(StreamEntryID[]::new);
+        if (ids.length == 0) {
+            return;
+        }
+        jedis.xack(streamKey, group, ids);
+        jedis.xdel(streamKey, ids);
+    }
+
+    /**
+     * Entries not yet acknowledged, whether delivered or not.
+     */
+    public long depth() {
+        return jedis.xlen(streamKey);
+    }
+
+    private boolean read(List<LogChunk> batch, int maxBatch, long blockMs) {
+        var result = jedis.xreadGroup(group, consumer,
+                XReadGroupParams.xReadGroupParams().count(maxBatch - batch.size()).block((int) blockMs),
+                Map.of(streamKey, StreamEntryID.UNRECEIVED_ENTRY));
+        if (result == null || result.isEmpty()) {
+            return false;
+        }
+
+        int before = batch.size();
+        for (var stream : result) {
+            for (StreamEntry entry : stream.getValue()) {
+                LogChunk chunk = decode(entry);
+                if (chunk != null) {
+                    batch.add(chunk);
+                }
+            }
+        }
+        return batch.size() > before;
+    }
+
+    private List<LogChunk> reclaimIfDue(int maxBatch) {
+        long now = System.currentTimeMillis();
+        long due = nextReclaimAt.get();
+        if (now < due || !nextReclaimAt.compareAndSet(due, now + reclaimIntervalMs)) {
+            return List.of();
+        }
+
+        var claimed = jedis.xautoclaim(streamKey, group, consumer, reclaimIdleMs,
+                reclaimCursor, XAutoClaimParams.xAutoClaimParams().count(maxBatch));
+        reclaimCursor = claimed.getKey();
+        if (!claimed.getKey().equals(new StreamEntryID(0, 0))) {
+            // more of the pending list to scan: continue on the next dequeue, not a full interval later
+            nextReclaimAt.set(now);
+        }
+        List<StreamEntry> entries = claimed.getValue();
+        if (entries.isEmpty()) {
+            return List.of();
+        }
+
+        Map<StreamEntryID, Long> deliveries = new HashMap<>();
+        for (StreamPendingEntry p : jedis.xpending(streamKey, group,
+                XPendingParams.xPendingParams(entries.get(0).getID(), entries.get(entries.size() - 1).getID(),
+                        entries.size()).consumer(consumer))) {
+            deliveries.put(p.getID(), p.getDeliveredTimes());
+        }
+
+        List<LogChunk> out = new ArrayList<>(entries.size());
+        for (StreamEntry entry : entries) {
+            if (deliveries.getOrDefault(entry.getID(), 0L) > maxDeliveries) {
+                deadLetter(entry);
+                continue;
+            }
+            LogChunk chunk = decode(entry);
+            if (chunk != null) {
+                out.add(chunk);
+            }
+        }
+        log.info("Reclaimed {} pending chunks from idle consumers", out.size());
+        return out;
+    }
+
+    private void deadLetter(StreamEntry entry) {
+        log.warn("Chunk entry {} exceeded {} deliveries, moving to {}", entry.getID(), maxDeliveries, deadLetterKey);
+        jedis.xadd(deadLetterKey, XAddParams.xAddParams(), entry.getFields());
+        jedis.xack(streamKey, group, entry.getID());
+        jedis.xdel(streamKey, entry.getID());
+    }
+
+    private LogChunk decode(StreamEntry entry) {
+        String json = entry.getFields() == null ? null : entry.getFields().get(FIELD);
+        if (json == null) {
+            // XAUTOCLAIM returns null fields for entries deleted while pending
+            jedis.xack(streamKey, group, entry.getID());
+            return null;
+        }
+        try {
+            LogChunk chunk = mapper.readValue(json, LogChunk.class);
+            chunk.setDeliveryId(entry.getID().toString());
+            return chunk;
+        } catch (Exception e) {
+            log.error("Unreadable chunk entry {}", entry.getID(), e);
+            deadLetter(entry);
+            return null;
+        }
+    }
+
+    private void ensureGroup() {
+        if (groupReady) {
+            return;
+        }
+        try {
+            // start at 0 so entries added before the group existed are consumed too
+            jedis.xgroupCreate(streamKey, group, new StreamEntryID(0, 0), true);
+            log.info("Created consumer group '{}' on stream '{}'", group, streamKey);
+        } catch (JedisDataException e) {
+            if (!e.getMessage().startsWith("BUSYGROUP")) {
+                throw e;
+            }
+        }
+        groupReady = true;
+    }
+}
@@ -1,38 +1,294 @@
 package com.incidentiq.service;
 
+import com.incidentiq.model.SearchFilter;
 import com.incidentiq.model.SearchHit;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+/**
+ * Semantic and hybrid search over the configured {@link VectorIndex}.
+ * <p>
+ * Hybrid search has two modes (app.search.hybrid.mode):
+ * <ul>
+ *     <li>{@code rrf}: a BM25 full-text search and a pure KNN run concurrently and their
+ *     rankings are fused with weighted reciprocal-rank fusion,
+ *     {@code sum(w / (k + rank))}. Latency is about the slower of the two legs.</li>
+ *     <li>{@code filter}: one KNN restricted to chunks containing any query term.</li>
+ * </ul>
+ * Backends without a full-text index always use {@code filter}.
+ */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class SearchService {
 
-    private final RediSearchKnnService redi;
+    public enum HybridMode { FILTER, RRF }
+
+    /**
+     * RediSearch's default English stopwords plus question words common in incident queries.
+     */
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "about", "after", "all", "an", "and", "any", "are", "as", "at", "be", "been", "before",
+            "but", "by", "can", "could", "did", "do", "does", "for", "from", "had", "has", "have", "how",
+            "i", "if", "in", "into", "is", "it", "its", "me", "my", "no", "not", "of", "on", "or", "our",
+            "such", "that", "the", "their", "then", "there", "these", "they", "this", "to", "was", "we",
+            "were", "what", "when", "where", "which", "who", "why", "will", "with", "would");
+
+    /** Splits like the RediSearch tokenizer: on everything but letters, digits and underscore. */
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}_]+");
+
+    private final VectorIndex index;
+    private final MeterRegistry meterRegistry;
+    private final TemplateService templateService;
+    private final HybridMode hybridMode;
+    private final int rrfK;
+    private final double knnWeight;
+    private final double bm25Weight;
+    private final int candidateMultiplier;
+    private final ThreadPoolExecutor fullTextExecutor;
+    private final DistributionSummary batchQueries;
+
+    public SearchService(VectorIndex index,
+                         MeterRegistry meterRegistry,
+                         TemplateService templateService,
+                         @Value("${app.search.hybrid.mode:rrf}") String hybridMode,
+                         @Value("${app.search.hybrid.rrf.k:60}") int rrfK,
+                         @Value("${app.search.hybrid.rrf.knn-weight:1.0}") double knnWeight,
+                         @Value("${app.search.hybrid.rrf.bm25-weight:1.0}") double bm25Weight,
+                         @Value("${app.search.hybrid.rrf.candidate-multiplier:4}") int candidateMultiplier,
+                         @Value("${app.search.hybrid.rrf.threads:8}") int threads) {
+        this.index = index;
+        this.meterRegistry = meterRegistry;
+        this.templateService = templateService;
+        this.hybridMode = HybridMode.valueOf(hybridMode.trim().toUpperCase(Locale.ROOT));
+        this.rrfK = rrfK;
+        this.knnWeight = knnWeight;
+        this.bm25Weight = bm25Weight;
+        this.candidateMultiplier = Math.max(1, candidateMultiplier);
+
+        AtomicInteger n = new AtomicInteger();
+        // no queue: when every thread is busy the BM25 leg runs on the caller, before the KNN
+        this.fullTextExecutor = new ThreadPoolExecutor(1, Math.max(1, threads), 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "search-bm25-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.batchQueries = DistributionSummary.builder("incidentiq.search.batch.queries")
+                .description("Queries per batch search request")
+                .register(meterRegistry);
+        if (this.hybridMode == HybridMode.RRF && !index.supportsFullText()) {
+            log.info("Backend {} has no full-text index; hybrid search uses the term filter", index.name());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fullTextExecutor.shutdownNow();
+    }
 
     public List<SearchHit> semanticSearch(String query, int topK) {
-        return redi.knnSearch(query, topK);
+        return semanticSearch(query, topK, null);
+    }
+
+    public List<SearchHit> semanticSearch(String query, int topK, Integer efRuntime) {
+        return semanticSearch(query, topK, efRuntime, null);
+    }
+
+    /**
+     * @param filter time window / level / service / trace pre-filter, or null
+     */
+    public List<SearchHit> semanticSearch(String query, int topK, Integer efRuntime, SearchFilter filter) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return templateService.expand(index.knnSearch(query, topK, efRuntime, filter), topK, filter);
+        } finally {
+            sample.stop(searchTimer("semantic", filter));
+        }
+    }
+
+    /**
+     * Semantic search for many queries at once: one embedding call for the uncached
+     * queries and, on RediSearch, one pipeline of FT.SEARCH commands. Results are in
+     * query order.
+     */
+    public List<BatchResult> batchSearch(List<String> queries, int topK, Integer efRuntime, SearchFilter filter) {
+        batchQueries.record(queries.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<List<SearchHit>> hits = index.knnSearchBatch(queries, topK, efRuntime, filter);
+            List<BatchResult> out = new ArrayList<>(queries.size());
+            for (int i = 0; i < queries.size(); i++) {
+                out.add(new BatchResult(queries.get(i), templateService.expand(hits.get(i), topK, filter)));
+            }
+            return out;
+        } finally {
+            sample.stop(searchTimer("batch", filter));
+        }
     }
 
     public List<SearchHit> hybridSearch(String query, int topK) {
+        return hybridSearch(query, topK, null);
+    }
 
-        String terms = Arrays.stream(query.split("\\s+"))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(String::toLowerCase)
-                .distinct()
-                .collect(Collectors.joining("|"));
+    public List<SearchHit> hybridSearch(String query, int topK, Integer efRuntime) {
+        return hybridSearch(query, topK, efRuntime, null);
+    }
+
+    public List<SearchHit> hybridSearch(String query, int topK, Integer efRuntime, SearchFilter filter) {
+        return hybridSearch(query, topK, efRuntime, filter, hybridMode);
+    }
+
+    /**
+     * In {@link HybridMode#RRF} the score of a hit is {@code 1 - fused / maxFused}, so lower
+     * is still better and 0 means first in both rankings.
+     */
+    public List<SearchHit> hybridSearch(String query, int topK, Integer efRuntime, SearchFilter filter,
+                                        HybridMode mode) {
+
+        List<String> terms = queryTerms(query);
 
         if (terms.isEmpty()) {
-            return semanticSearch(query, topK);
+            return semanticSearch(query, topK, efRuntime, filter);
         }
 
-        String filter = "@text:(" + terms + ")";
+        boolean rrf = mode == HybridMode.RRF && index.supportsFullText();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            List<SearchHit> hits = rrf
+                    ? fusedSearch(query, terms, topK, efRuntime, filter)
+                    : index.hybridKnnSearch(query, terms, topK, efRuntime, filter);
+            return templateService.expand(hits, topK, filter);
+        } finally {
+            sample.stop(searchTimer(rrf ? "hybrid-rrf" : "hybrid", filter));
+        }
+    }
+
+    private List<SearchHit> fusedSearch(String query, List<String> terms, int topK, Integer efRuntime,
+                                        SearchFilter filter) {
+        int candidates = topK * candidateMultiplier;
+
+        CompletableFuture<List<SearchHit>> bm25 = CompletableFuture.supplyAsync(() -> {
+            Timer.Sample leg = Timer.start(meterRegistry);
+            try {
+                return index.fullTextSearch(terms, candidates, filter);
+            } finally {
+                leg.stop(legTimer("bm25"));
+            }
+        }, fullTextExecutor);
+
+        Timer.Sample leg = Timer.start(meterRegistry);
+        List<SearchHit> knn;
+        try {
+            knn = index.knnSearch(query, candidates, efRuntime, filter);
+        } finally {
+            leg.stop(legTimer("knn"));
+        }
+
+        List<SearchHit> text;
+        try {
+            text = bm25.join();
+        } catch (CompletionException e) {
+            log.warn("BM25 leg failed, using the vector ranking only", e.getCause());
+            text = List.of();
+        }
+        return fuse(knn, text, knnWeight, bm25Weight, rrfK, topK);
+    }
+
+    /**
+     * Weighted reciprocal-rank fusion of two rankings (best first). Scores are rescaled to
+     * {@code 1 - fused / maxFused}; ties keep the KNN order.
+     */
+    static List<SearchHit> fuse(List<SearchHit> knn, List<SearchHit> bm25, double knnWeight, double bm25Weight,
+                                int k, int topK) {
+        Map<String, Fused> byId = new LinkedHashMap<>();
+        addRanking(byId, knn, knnWeight, k);
+        addRanking(byId, bm25, bm25Weight, k);
+
+        double max = (knnWeight + bm25Weight) / (k + 1);
+        List<Fused> ranked = new ArrayList<>(byId.values());
+        ranked.sort(Comparator.comparingDouble((Fused f) -> f.score).reversed());
+
+        List<SearchHit> out = new ArrayList<>(Math.min(topK, ranked.size()));
+        for (Fused f : ranked) {
+            if (out.size() >= topK) {
+                break;
+            }
+            SearchHit h = f.hit;
+            out.add(new SearchHit(h.getId(), h.getText(), max > 0 ? 1 - f.score / max : 0, h.getMeta()));
+        }
+        return out;
+    }
+
+    private static void addRanking(Map<String, Fused> byId, List<SearchHit> ranking, double weight, int k) {
+        for (int rank = 0; rank < ranking.size(); rank++) {
+            SearchHit h = ranking.get(rank);
+            byId.computeIfAbsent(h.getId(), id -> new Fused(h)).score += weight / (k + rank + 1);
+        }
+    }
+
+    private static final class Fused {
+        final SearchHit hit;
+        double score;
+
+        Fused(SearchHit hit) {
+            this.hit = hit;
+        }
+    }
+
+    /**
+     * Query embedding (usually a cache hit) plus the KNN round trip.
+     */
+    private Timer searchTimer(String type, SearchFilter filter) {
+        return Timer.builder("incidentiq.search.knn.latency")
+                .description("KNN search latency")
+                .tag("type", type)
+                .tag("backend", index.name())
+                .tag("filtered", String.valueOf(filter != null && !filter.isEmpty()))
+                .register(meterRegistry);
+    }
+
+    private Timer legTimer(String leg) {
+        return Timer.builder("incidentiq.search.hybrid.leg.latency")
+                .description("Latency of one retrieval leg of an RRF hybrid search")
+                .tag("leg", leg)
+                .tag("backend", index.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lower-cased word tokens of the query without stopwords and single characters.
+     */
+    static List<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(query.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOPWORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return List.copyOf(terms);
+    }
 
-        return redi.hybridKnnSearch(query, filter, topK);
+    public record BatchResult(String query, List<SearchHit> hits) {
     }
 }
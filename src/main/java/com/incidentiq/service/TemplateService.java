@@ -0,0 +1,279 @@
+package com.incidentiq.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.model.SearchFilter;
+import com.incidentiq.model.SearchHit;
+import com.incidentiq.util.DrainTemplateMiner;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Ingest-time log template mining.
+ * <ul>
+ *   <li>{@code off}: chunks are embedded as raw text (default).</li>
+ *   <li>{@code annotate}: chunks are still embedded, and each chunk hash also gets a
+ *       {@code templates} field ({@code id:count,...}).</li>
+ *   <li>{@code embed}: only templates are embedded. Each distinct template is stored once as
+ *       {@code emb:tpl:<id>}, and again whenever it is generalized. Chunks are stored
+ *       without a vector. KNN hits on a template expand to the latest chunks that contain
+ *       it. Needs the redis vector backend; with mmap it behaves as annotate.</li>
+ * </ul>
+ * Per template, Redis keeps {@code tpl:<id>} (template text and line count) and
+ * {@code tplchunks:<id>}, a list of the most recent chunk keys.
+ */
+@Service
+@Slf4j
+public class TemplateService {
+
+    static final String TEMPLATE_DOC_PREFIX = "emb:tpl:";
+    private static final String TEMPLATE_KEY_PREFIX = "tpl:";
+    private static final String CHUNK_REFS_PREFIX = "tplchunks:";
+
+    public enum Mode { OFF, ANNOTATE, EMBED }
+
+    private final JedisPooled jedis;
+    private final Mode mode;
+    private final int chunkRefs;
+    private final DrainTemplateMiner miner;
+
+    /** Template version last embedded, so re-embedding only happens after a change. */
+    private final Cache<String, Integer> embeddedVersions;
+
+    private final Counter lines;
+    private final Counter templatesEmbedded;
+
+    public TemplateService(JedisPooled jedis,
+                           MeterRegistry registry,
+                           @Value("${app.ingest.templates.mode:off}") String mode,
+                           @Value("${app.vector.backend:redis}") String vectorBackend,
+                           @Value("${app.ingest.templates.depth:4}") int depth,
+                           @Value("${app.ingest.templates.similarity:0.4}") double similarity,
+                           @Value("${app.ingest.templates.max-children:100}") int maxChildren,
+                           @Value("${app.ingest.templates.max-templates:5000}") int maxTemplates,
+                           @Value("${app.ingest.templates.chunk-refs:50}") int chunkRefs) {
+        this.jedis = jedis;
+        Mode m = Mode.valueOf(mode.trim().toUpperCase());
+        if (m == Mode.EMBED && !"redis".equalsIgnoreCase(vectorBackend)) {
+            log.warn("app.ingest.templates.mode=embed needs app.vector.backend=redis, using annotate");
+            m = Mode.ANNOTATE;
+        }
+        this.mode = m;
+        this.chunkRefs = chunkRefs;
+        this.miner = new DrainTemplateMiner(depth, similarity, maxChildren, maxTemplates);
+        this.embeddedVersions = Caffeine.newBuilder().maximumSize(maxTemplates).build();
+
+        this.lines = Counter.builder("incidentiq.templates.lines")
+                .description("Log lines assigned to a template")
+                .register(registry);
+        this.templatesEmbedded = Counter.builder("incidentiq.templates.embedded")
+                .description("Template embeddings written (new or generalized templates)")
+                .register(registry);
+        Gauge.builder("incidentiq.templates.active", this, TemplateService::activeTemplates)
+                .description("Templates held by the in-process miner")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return mode != Mode.OFF;
+    }
+
+    public boolean embedsTemplates() {
+        return mode == Mode.EMBED;
+    }
+
+    /**
+     * Assigns every line of every chunk to a template.
+     */
+    public MinedBatch mine(List<LogChunk> chunks) {
+        List<Map<String, Integer>> refs = new ArrayList<>(chunks.size());
+        Map<String, String> touched = new LinkedHashMap<>();
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        long n = 0;
+
+        for (LogChunk chunk : chunks) {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            String text = chunk.getText() == null ? "" : chunk.getText();
+            for (String line : text.split("\n")) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                DrainTemplateMiner.Match m = miner.add(line);
+                counts.merge(m.templateId(), 1, Integer::sum);
+                touched.put(m.templateId(), m.template());
+                versions.put(m.templateId(), m.version());
+                n++;
+            }
+            refs.add(counts);
+        }
+        lines.increment(n);
+
+        List<String> pendingIds = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : versions.entrySet()) {
+            if (!e.getValue().equals(embeddedVersions.getIfPresent(e.getKey()))) {
+                pendingIds.add(e.getKey());
+            }
+        }
+        return new MinedBatch(refs, touched, versions, pendingIds);
+    }
+
+    /**
+     * Marks templates as embedded at the version mined, once their vectors are stored.
+     */
+    public void markEmbedded(MinedBatch batch, List<String> ids) {
+        for (String id : ids) {
+            embeddedVersions.put(id, batch.versions().get(id));
+        }
+        templatesEmbedded.increment(ids.size());
+    }
+
+    /**
+     * Writes template texts, line counts and recent-chunk references for the stored chunks,
+     * in one pipeline.
+     */
+    public void record(MinedBatch batch, List<LogChunk> chunks, List<Boolean> stored) {
+        Map<String, Long> lineCounts = new LinkedHashMap<>();
+        Map<String, List<String>> chunkKeys = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            if (!stored.get(i)) {
+                continue;
+            }
+            String chunkKey = VectorStoreService.PREFIX + chunks.get(i).getId();
+            for (Map.Entry<String, Integer> e : batch.refs().get(i).entrySet()) {
+                lineCounts.merge(e.getKey(), (long) e.getValue(), Long::sum);
+                chunkKeys.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(chunkKey);
+            }
+        }
+        if (lineCounts.isEmpty()) {
+            return;
+        }
+
+        try (Pipeline p = jedis.pipelined()) {
+            for (Map.Entry<String, Long> e : lineCounts.entrySet()) {
+                String id = e.getKey();
+                p.hset(TEMPLATE_KEY_PREFIX + id, "template", batch.templates().get(id));
+                p.hincrBy(TEMPLATE_KEY_PREFIX + id, "count", e.getValue());
+                if (embedsTemplates()) {
+                    String refsKey = CHUNK_REFS_PREFIX + id;
+                    p.lpush(refsKey, chunkKeys.get(id).toArray(String[]::new));
+                    p.ltrim(refsKey, 0, chunkRefs - 1);
+                }
+            }
+            p.sync();
+        } catch (Exception e) {
+            log.warn("Failed to record template counts for {} templates", lineCounts.size(), e);
+        }
+    }
+
+    public List<SearchHit> expand(List<SearchHit> hits, int topK) {
+        return expand(hits, topK, null);
+    }
+
+    /**
+     * Replaces template hits with the latest chunks containing that template, keeping
+     * rank order and the template's score, until topK chunks are collected. Template
+     * documents carry no time range, so expanded chunks are checked against the filter here.
+     */
+    public List<SearchHit> expand(List<SearchHit> hits, int topK, SearchFilter filter) {
+        if (!embedsTemplates() || hits.stream().noneMatch(h -> isTemplateDoc(h.getId()))) {
+            return hits;
+        }
+
+        Set<String> seen = new LinkedHashSet<>();
+        List<SearchHit> out = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            if (out.size() >= topK) {
+                break;
+            }
+            if (!isTemplateDoc(hit.getId())) {
+                if (seen.add(hit.getId())) {
+                    out.add(hit);
+                }
+                continue;
+            }
+
+            String id = hit.getId().substring(TEMPLATE_DOC_PREFIX.length());
+            boolean filtered = filter != null && !filter.isEmpty();
+            // with a filter some referenced chunks are dropped, so look further back
+            List<String> keys = jedis.lrange(CHUNK_REFS_PREFIX + id, 0, (filtered ? chunkRefs : topK) - 1).stream()
+                    .filter(seen::add)
+                    .limit(filtered ? chunkRefs : topK - out.size())
+                    .collect(Collectors.toList());
+            if (keys.isEmpty()) {
+                continue;
+            }
+
+            List<Response<List<String>>> fields = new ArrayList<>(keys.size());
+            try (Pipeline p = jedis.pipelined()) {
+                for (String key : keys) {
+                    fields.add(p.hmget(key, "text", "fileName", "tsStart", "tsEnd", "severity", "service", "traceId"));
+                }
+                p.sync();
+            }
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < keys.size(); i++) {
+                List<String> f = fields.get(i).get();
+                if (f.get(0) == null) {
+                    continue; // chunk expired or deleted since it was referenced
+                }
+                if (filter != null && !filter.isEmpty() && !filter.matches(
+                        f.get(2) == null ? null : Long.valueOf(f.get(2)),
+                        f.get(3) == null ? null : Long.valueOf(f.get(3)),
+                        f.get(4) == null ? 0 : Integer.parseInt(f.get(4)),
+                        f.get(5) == null ? List.of() : List.of(f.get(5).split("\\|")),
+                        f.get(6) == null ? List.of() : List.of(f.get(6).split("\\|")),
+                        now)) {
+                    continue;
+                }
+                if (out.size() >= topK) {
+                    break;
+                }
+                out.add(new SearchHit(keys.get(i), f.get(0), hit.getScore(),
+                        f.get(1) == null ? "" : f.get(1)));
+            }
+        }
+        return out;
+    }
+
+    public static String templateRefs(Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .map(e -> e.getKey() + ":" + e.getValue())
+                .collect(Collectors.joining(","));
+    }
+
+    private static boolean isTemplateDoc(String id) {
+        return id != null && id.startsWith(TEMPLATE_DOC_PREFIX);
+    }
+
+    private int activeTemplates() {
+        return miner.size();
+    }
+
+    /**
+     * @param refs       per-chunk template counts, aligned with the mined chunks
+     * @param templates  current text of every template seen in the batch
+     * @param versions   current version of every template seen in the batch
+     * @param pendingIds templates whose current version has no stored vector yet
+     */
+    public record MinedBatch(List<Map<String, Integer>> refs,
+                             Map<String, String> templates,
+                             Map<String, Integer> versions,
+                             List<String> pendingIds) {
+    }
+}
@@ -0,0 +1,62 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.SearchFilter;
+import com.incidentiq.model.SearchHit;
+
+import java.util.List;
+
+/**
+ * Retrieval backend used by {@link SearchService}. Selected with app.vector.backend
+ * (redis = RediSearch, mmap = in-process memory-mapped index).
+ * <p>
+ * Scores follow RediSearch COSINE semantics: distance, lower is closer.
+ */
+public interface VectorIndex {
+
+    String name();
+
+    /**
+     * @param efRuntime HNSW candidate list size, ignored by backends without HNSW
+     */
+    default List<SearchHit> knnSearch(String query, int topK, Integer efRuntime) {
+        return knnSearch(query, topK, efRuntime, null);
+    }
+
+    /**
+     * @param filter structured pre-filter (time window, level, service, trace), or null
+     */
+    List<SearchHit> knnSearch(String query, int topK, Integer efRuntime, SearchFilter filter);
+
+    /**
+     * {@link #knnSearch} for many queries, results in query order. Backends override this to
+     * embed the queries in one provider call and overlap the searches.
+     */
+    default List<List<SearchHit>> knnSearchBatch(List<String> queries, int topK, Integer efRuntime,
+                                                 SearchFilter filter) {
+        return queries.stream().map(q -> knnSearch(q, topK, efRuntime, filter)).toList();
+    }
+
+    /**
+     * KNN restricted to chunks whose text contains at least one of the terms.
+     */
+    default List<SearchHit> hybridKnnSearch(String query, List<String> terms, int topK, Integer efRuntime) {
+        return hybridKnnSearch(query, terms, topK, efRuntime, null);
+    }
+
+    List<SearchHit> hybridKnnSearch(String query, List<String> terms, int topK, Integer efRuntime, SearchFilter filter);
+
+    /**
+     * Whether {@link #fullTextSearch} is available.
+     */
+    default boolean supportsFullText() {
+        return false;
+    }
+
+    /**
+     * Full-text search over chunk text ranked by BM25, best first. Unlike the KNN methods,
+     * scores are text relevance: higher is better.
+     */
+    default List<SearchHit> fullTextSearch(List<String> terms, int topK, SearchFilter filter) {
+        throw new UnsupportedOperationException(name() + " has no full-text index");
+    }
+}
@@ -1,10 +1,23 @@
 package com.incidentiq.service;
 
 import com.incidentiq.model.LogChunk;
+import com.incidentiq.util.LogFieldExtractor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -13,29 +26,208 @@ public class VectorStoreService {
 
     private final JedisPooled jedis;
     private final EmbeddingService embeddingService;
+    private final ObjectProvider<MmapVectorIndex> mmapIndex;
+    private final MeterRegistry meterRegistry;
+    private final TemplateService templateService;
+    private final LogFieldExtractor fieldExtractor;
 
-    private static final String PREFIX = "emb:";
+    static final String PREFIX = "emb:";
 
     public void storeEmbedding(LogChunk chunk) {
         byte[] vectorBytes = embeddingService.getEmbeddingAsBytes(chunk.getText());
         store(chunk, vectorBytes);
     }
 
+    /**
+     * Embeds the whole batch in one provider call, then writes it in one pipelined round trip,
+     * or into the in-process index when app.vector.backend=mmap. With template mining on,
+     * each chunk also records its template counts; in embed mode only templates are embedded.
+     *
+     * @return per-chunk success, aligned with {@code chunks}
+     */
+    public List<Boolean> storeEmbeddings(List<LogChunk> chunks) {
+        long now = System.currentTimeMillis();
+        for (LogChunk chunk : chunks) {
+            fieldExtractor.extract(chunk, now);
+        }
+
+        TemplateService.MinedBatch mined = templateService.isEnabled() ? templateService.mine(chunks) : null;
+        if (mined != null && templateService.embedsTemplates()) {
+            return storeTemplated(chunks, mined);
+        }
+
+        List<byte[]> vectors = embeddingService.getEmbeddingsAsBytes(
+                chunks.stream().map(LogChunk::getText).toList());
+
+        List<Boolean> stored;
+        MmapVectorIndex local = mmapIndex.getIfAvailable();
+        if (local != null) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            stored = local.add(chunks, vectors);
+            sample.stop(writeTimer("mmap", "batch"));
+        } else {
+            stored = storeBatch(chunks, vectors, mined == null ? null : mined.refs());
+        }
+
+        if (mined != null) {
+            templateService.record(mined, chunks, stored);
+        }
+        return stored;
+    }
+
+    /**
+     * Embeds only the templates whose current version has no vector yet, stores them as
+     * emb:tpl:&lt;id&gt;, then writes the chunks without a vector field.
+     */
+    private List<Boolean> storeTemplated(List<LogChunk> chunks, TemplateService.MinedBatch mined) {
+        List<String> ids = mined.pendingIds();
+        if (!ids.isEmpty()) {
+            List<String> texts = ids.stream().map(mined.templates()::get).toList();
+            List<byte[]> vectors = embeddingService.getEmbeddingsAsBytes(texts);
+
+            List<LogChunk> docs = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                LogChunk doc = new LogChunk("template", "template", 0, texts.get(i));
+                doc.setId(TemplateService.TEMPLATE_DOC_PREFIX.substring(PREFIX.length()) + ids.get(i));
+                // templates are timeless: they pass any time window, their chunks are filtered on expansion
+                fieldExtractor.extract(doc, 0);
+                doc.setTsStart(0L);
+                doc.setTsEnd(Long.MAX_VALUE / 2);
+                docs.add(doc);
+            }
+            List<Boolean> ok = storeBatch(docs, vectors, null);
+
+            List<String> embedded = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                if (ok.get(i)) {
+                    embedded.add(ids.get(i));
+                }
+            }
+            templateService.markEmbedded(mined, embedded);
+        }
+
+        List<Boolean> stored = storeBatch(chunks, null, mined.refs());
+        templateService.record(mined, chunks, stored);
+        return stored;
+    }
+
     public void store(LogChunk chunk, byte[] embeddingBytes) {
         String redisKey = PREFIX + chunk.getId();
 
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            jedis.hset(redisKey, "text", chunk.getText());
-            jedis.hset(redisKey, "source", chunk.getSource());
-            jedis.hset(redisKey, "fileName", chunk.getFileName());
-            jedis.hset(redisKey, "chunkNo", String.valueOf(chunk.getChunkNo()));
-
-            jedis.hset(redisKey.getBytes(), "vector".getBytes(), embeddingBytes);
+            // single multi-field HSET so the index never sees a half-written hash
+            jedis.hset(bytes(redisKey), toHash(chunk, embeddingBytes, null));
+            sample.stop(writeTimer("redis", "single"));
 
-            log.info("Stored embedding for key {}", redisKey);
+            log.debug("Stored embedding for key {}", redisKey);
         } catch (Exception e) {
             log.error("Failed to store embedding for key {}", redisKey, e);
             throw new IllegalStateException("Failed to store embedding", e);
         }
     }
+
+    /**
+     * Writes every chunk as one multi-field HSET, all sent through a single pipeline.
+     * A failure of one command does not affect the others.
+     *
+     * @return per-chunk success, aligned with {@code chunks}
+     */
+    public List<Boolean> storeBatch(List<LogChunk> chunks, List<byte[]> embeddings) {
+        return storeBatch(chunks, embeddings, null);
+    }
+
+    /**
+     * @param embeddings vectors aligned with {@code chunks}, or null to store text only
+     * @param templates  per-chunk template counts aligned with {@code chunks}, or null
+     */
+    public List<Boolean> storeBatch(List<LogChunk> chunks, List<byte[]> embeddings,
+                                    List<Map<String, Integer>> templates) {
+        if (chunks.isEmpty()) {
+            return List.of();
+        }
+
+        int expectedBytes = embeddingService.getVectorByteLength();
+        List<Response<Long>> responses = new ArrayList<>(chunks.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try (Pipeline pipeline = jedis.pipelined()) {
+            for (int i = 0; i < chunks.size(); i++) {
+                LogChunk chunk = chunks.get(i);
+                byte[] vector = embeddings == null ? null : embeddings.get(i);
+                if (vector != null && vector.length != expectedBytes) {
+                    // written anyway RediSearch would skip it without an error
+                    log.error("Vector for chunk {} has {} bytes, index profile expects {}",
+                            chunk.getId(), vector.length, expectedBytes);
+                    responses.add(null);
+                    continue;
+                }
+                responses.add(pipeline.hset(bytes(PREFIX + chunk.getId()),
+                        toHash(chunk, vector, templates == null ? null : templates.get(i))));
+            }
+            pipeline.sync();
+            sample.stop(writeTimer("redis", "batch"));
+        } catch (Exception e) {
+            log.error("Pipelined store of {} chunks failed", chunks.size(), e);
+            return new ArrayList<>(Collections.nCopies(chunks.size(), false));
+        }
+
+        List<Boolean> out = new ArrayList<>(chunks.size());
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i) == null) {
+                out.add(false);
+                continue;
+            }
+            try {
+                responses.get(i).get();
+                out.add(true);
+            } catch (Exception e) {
+                log.error("Failed to store embedding for key {}{}", PREFIX, chunks.get(i).getId(), e);
+                out.add(false);
+            }
+        }
+
+        log.debug("Stored {} embeddings in one pipeline", chunks.size());
+        return out;
+    }
+
+    /**
+     * Write latency of one store round trip (a pipeline for batches), excluding embedding.
+     */
+    private Timer writeTimer(String backend, String op) {
+        return Timer.builder("incidentiq.store.latency")
+                .description("Vector store write latency")
+                .tag("backend", backend)
+                .tag("op", op)
+                .register(meterRegistry);
+    }
+
+    private static Map<byte[], byte[]> toHash(LogChunk chunk, byte[] embeddingBytes, Map<String, Integer> templates) {
+        Map<byte[], byte[]> hash = new HashMap<>();
+        hash.put(bytes("text"), bytes(chunk.getText()));
+        hash.put(bytes("source"), bytes(chunk.getSource()));
+        hash.put(bytes("fileName"), bytes(chunk.getFileName()));
+        hash.put(bytes("chunkNo"), bytes(String.valueOf(chunk.getChunkNo())));
+        if (embeddingBytes != null) {
+            hash.put(bytes("vector"), embeddingBytes);
+        }
+        if (templates != null) {
+            hash.put(bytes("templates"), bytes(TemplateService.templateRefs(templates)));
+        }
+        if (chunk.getTsStart() != null) {
+            hash.put(bytes("tsStart"), bytes(String.valueOf(chunk.getTsStart())));
+            hash.put(bytes("tsEnd"), bytes(String.valueOf(chunk.getTsEnd())));
+            hash.put(bytes("severity"), bytes(String.valueOf(chunk.getSeverity())));
+        }
+        if (chunk.getServices() != null) {
+            hash.put(bytes("service"), bytes(chunk.getServices()));
+        }
+        if (chunk.getTraceIds() != null) {
+            hash.put(bytes("traceId"), bytes(chunk.getTraceIds()));
+        }
+        return hash;
+    }
+
+    private static byte[] bytes(String s) {
+        return (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+    }
 }
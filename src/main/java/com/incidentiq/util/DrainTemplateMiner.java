@@ -0,0 +1,246 @@
+package com.incidentiq.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Online log template miner after Drain (He et al., ICWS 2017).
+ * <p>
+ * A line is tokenized on whitespace and every token containing a digit is masked.
+ * The parse tree routes it by token count, then by its first {@code depth - 2} tokens,
+ * to a small leaf list of templates. The most similar template in that list absorbs the
+ * line when at least {@code similarity} of its positions match, turning the differing
+ * positions into {@code <*>}; otherwise the line starts a new template.
+ * <p>
+ * Memory is bounded: inner nodes have at most {@code maxChildren} children (overflow goes
+ * to a shared {@code <*>} child) and about {@code maxTemplates} templates are kept, the least
+ * recently matched of the line's token-count shard being evicted. Template ids stay fixed
+ * when a template is generalized.
+ * <p>
+ * Thread-safe. The first tree level (token count) is a shard with its own lock, so lines of
+ * different lengths are mined concurrently; tokenizing and masking happen outside any lock.
+ */
+public class DrainTemplateMiner {
+
+    public static final String WILDCARD = SimHash.WILDCARD;
+
+    /** Lines are cut to this many tokens; the tail rarely changes the template. */
+    private static final int MAX_TOKENS = 64;
+
+    private final int depth;
+    private final double similarity;
+    private final int maxChildren;
+
+    private final int maxTemplates;
+
+    private final Map<Integer, Shard> byLength = new ConcurrentHashMap<>();
+    /** Every live template by id, across shards. */
+    private final Map<String, Template> templates = new ConcurrentHashMap<>();
+
+    public DrainTemplateMiner(int depth, double similarity, int maxChildren, int maxTemplates) {
+        if (depth < 3) {
+            throw new IllegalArgumentException("depth must be at least 3");
+        }
+        this.depth = depth;
+        this.similarity = similarity;
+        this.maxChildren = maxChildren;
+        this.maxTemplates = maxTemplates;
+    }
+
+    /**
+     * Assigns the line to a template, creating or generalizing one as needed.
+     */
+    public Match add(String line) {
+        String[] raw = tokenize(line);
+        String[] masked = new String[raw.length];
+        for (int i = 0; i < raw.length; i++) {
+            masked[i] = SimHash.mask(raw[i]);
+        }
+
+        Shard shard = byLength.computeIfAbsent(masked.length, k -> new Shard());
+        synchronized (shard) {
+            return add(shard, raw, masked);
+        }
+    }
+
+    private Match add(Shard shard, String[] raw, String[] masked) {
+        List<Template> leaf = leafFor(shard.root, masked);
+        Template best = null;
+        double bestSim = -1;
+        int bestParams = -1;
+        for (Template t : leaf) {
+            int same = 0;
+            int params = 0;
+            for (int i = 0; i < masked.length; i++) {
+                if (t.tokens[i].equals(WILDCARD)) {
+                    params++;
+                } else if (t.tokens[i].equals(masked[i])) {
+                    same++;
+                }
+            }
+            double sim = (double) same / masked.length;
+            if (sim > bestSim || (sim == bestSim && params > bestParams)) {
+                best = t;
+                bestSim = sim;
+                bestParams = params;
+            }
+        }
+
+        boolean changed;
+        if (best != null && bestSim >= similarity) {
+            changed = false;
+            for (int i = 0; i < masked.length; i++) {
+                if (!best.tokens[i].equals(masked[i]) && !best.tokens[i].equals(WILDCARD)) {
+                    best.tokens[i] = WILDCARD;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                best.version++;
+                best.text = null;
+            }
+            shard.lru.get(best.id); // touch for LRU order
+        } else {
+            String id = templateId(masked);
+            best = new Template(id, masked.clone(), leaf, shard);
+            for (int n = 1; templates.putIfAbsent(best.id, best) != null; n++) {
+                // an evicted-and-recreated or colliding shape; keep ids unique
+                best = new Template(id + "-" + n, best.tokens, leaf, shard);
+            }
+            leaf.add(best);
+            shard.lru.put(best.id, best);
+            if (templates.size() > maxTemplates && shard.lru.size() > 1) {
+                evictEldest(shard);
+            }
+            changed = true;
+        }
+        best.count++;
+
+        List<String> params = new ArrayList<>();
+        for (int i = 0; i < raw.length; i++) {
+            if (best.tokens[i].equals(WILDCARD)) {
+                params.add(raw[i]);
+            }
+        }
+        return new Match(best.id, best.text(), best.version, params, changed);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public String template(String id) {
+        Template t = templates.get(id);
+        if (t == null) {
+            return null;
+        }
+        synchronized (t.shard) {
+            return t.text();
+        }
+    }
+
+    private void evictEldest(Shard shard) {
+        Map.Entry<String, Template> eldest = shard.lru.entrySet().iterator().next();
+        Template t = eldest.getValue();
+        shard.lru.remove(t.id);
+        t.leaf.remove(t);
+        templates.remove(t.id, t);
+    }
+
+    private List<Template> leafFor(Node root, String[] tokens) {
+        Node node = root;
+        int prefix = Math.min(depth - 2, tokens.length);
+        for (int i = 0; i < prefix; i++) {
+            String key = tokens[i];
+            Node child = node.children.get(key);
+            if (child == null) {
+                if (node.children.size() >= maxChildren) {
+                    key = WILDCARD;
+                }
+                child = node.children.computeIfAbsent(key, k -> new Node());
+            }
+            node = child;
+        }
+        if (node.leaf == null) {
+            node.leaf = new ArrayList<>();
+        }
+        return node.leaf;
+    }
+
+    private static String[] tokenize(String line) {
+        String s = line.strip();
+        if (s.isEmpty()) {
+            return new String[]{""};
+        }
+        String[] tokens = s.split("\\s+", MAX_TOKENS + 1);
+        if (tokens.length > MAX_TOKENS) {
+            String[] cut = new String[MAX_TOKENS];
+            System.arraycopy(tokens, 0, cut, 0, MAX_TOKENS);
+            return cut;
+        }
+        return tokens;
+    }
+
+    /**
+     * Derived from the first-seen masked shape, so a restarted miner that sees the same
+     * line first hands out the same id.
+     */
+    private static String templateId(String[] tokens) {
+        long h = 0xcbf29ce484222325L;
+        for (String t : tokens) {
+            for (int i = 0; i < t.length(); i++) {
+                h ^= t.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            h ^= ' ';
+            h *= 0x100000001b3L;
+        }
+        return Long.toHexString(h);
+    }
+
+    /**
+     * @param version bumped each time the template text is generalized
+     * @param changed the template is new or its text changed with this line
+     */
+    public record Match(String templateId, String template, int version, List<String> params, boolean changed) {
+    }
+
+    /** One token count: its subtree and its templates in LRU order, guarded by the shard's lock. */
+    private static final class Shard {
+        final Node root = new Node();
+        final LinkedHashMap<String, Template> lru = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>();
+        List<Template> leaf;
+    }
+
+    private static final class Template {
+        final String id;
+        final String[] tokens;
+        final List<Template> leaf;
+        final Shard shard;
+        int version;
+        long count;
+        String text;
+
+        Template(String id, String[] tokens, List<Template> leaf, Shard shard) {
+            this.id = id;
+            this.tokens = tokens;
+            this.leaf = leaf;
+            this.shard = shard;
+        }
+
+        String text() {
+            if (text == null) {
+                text = String.join(" ", tokens);
+            }
+            return text;
+        }
+    }
+}
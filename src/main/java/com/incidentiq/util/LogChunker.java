@@ -0,0 +1,187 @@
+package com.incidentiq.util;
+
+import com.incidentiq.model.LogChunk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+
+/**
+ * Lazily cuts a log stream into {@link LogChunk}s on line boundaries.
+ * <p>
+ * Lines are first grouped into records so that a message and its stack trace
+ * ("\tat ...", "Caused by: ...", "... 12 more") always land in the same chunk.
+ * Records are then packed until the character budget is reached, and the
+ * trailing records of each chunk are repeated at the head of the next one.
+ * Only the chunk being built is held in memory.
+ */
+public class LogChunker implements Iterator<LogChunk>, Closeable {
+
+    private static final Pattern CONTINUATION = Pattern.compile(
+            "^(\\s+\\S.*|\\s*$|Caused by:.*|Suppressed:.*)");
+
+    /** A single record (e.g. a stack trace) may grow to this many budgets before it is cut. */
+    private static final int RECORD_LIMIT_FACTOR = 2;
+
+    private final BufferedReader reader;
+    private final String source;
+    private final String fileName;
+    private final int maxChars;
+    private final int overlapChars;
+    private final int maxRecordChars;
+
+    private final Deque<String> overlap = new ArrayDeque<>();
+    private int overlapSize;
+
+    private String pendingLine;
+    private String pendingRecord;
+    private LogChunk next;
+    private int chunkNo;
+    private int peakBufferedChars;
+
+    public LogChunker(Reader reader, String source, String fileName, int maxChars, int overlapChars) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive");
+        }
+        this.reader = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        this.source = source;
+        this.fileName = fileName;
+        this.maxChars = maxChars;
+        this.overlapChars = Math.max(0, Math.min(overlapChars, maxChars / 2));
+        this.maxRecordChars = maxChars * RECORD_LIMIT_FACTOR;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public LogChunk next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        LogChunk c = next;
+        next = null;
+        return c;
+    }
+
+    /**
+     * Number of chunks emitted so far.
+     */
+    public int getChunkCount() {
+        return chunkNo;
+    }
+
+    /**
+     * Largest chunk buffer (in chars) held while chunking this stream.
+     */
+    public int getPeakBufferedChars() {
+        return peakBufferedChars;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private LogChunk advance() {
+        try {
+            StringBuilder buf = new StringBuilder();
+            for (String r : overlap) {
+                append(buf, r);
+            }
+            boolean carried = buf.length() > 0;
+            boolean fresh = false;
+            overlap.clear();
+            overlapSize = 0;
+
+            while (true) {
+                String record = pendingRecord != null ? pendingRecord : readRecord();
+                pendingRecord = null;
+                if (record == null) {
+                    break;
+                }
+
+                boolean fits = buf.length() + record.length() + 1 <= maxChars;
+                if (!fits && fresh) {
+                    pendingRecord = record;
+                    break;
+                }
+                if (!fits && carried) {
+                    // the overlap alone would push the first new record over budget
+                    buf.setLength(0);
+                    carried = false;
+                }
+
+                append(buf, record);
+                rememberForOverlap(record);
+                fresh = true;
+            }
+
+            if (!fresh) {
+                return null;
+            }
+            peakBufferedChars = Math.max(peakBufferedChars, buf.length());
+            return new LogChunk(source, fileName, chunkNo++, buf.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read log stream", e);
+        }
+    }
+
+    /**
+     * Reads one line plus all of its continuation lines (stack frames, "Caused by", indented text).
+     */
+    private String readRecord() throws IOException {
+        String first = pendingLine != null ? pendingLine : reader.readLine();
+        pendingLine = null;
+        if (first == null) {
+            return null;
+        }
+        if (first.length() > maxChars) {
+            // a single oversized line is cut on the budget, the rest becomes the next record
+            pendingLine = first.substring(maxChars);
+            return first.substring(0, maxChars);
+        }
+
+        StringBuilder sb = new StringBuilder(first);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!CONTINUATION.matcher(line).matches()
+                    || sb.length() + line.length() + 1 > maxRecordChars) {
+                pendingLine = line;
+                break;
+            }
+            sb.append('\n').append(line);
+        }
+        return sb.toString();
+    }
+
+    private void rememberForOverlap(String record) {
+        if (overlapChars == 0) {
+            return;
+        }
+        overlap.addLast(record);
+        overlapSize += record.length() + 1;
+        while (overlapSize > overlapChars && !overlap.isEmpty()) {
+            overlapSize -= overlap.removeFirst().length() + 1;
+        }
+    }
+
+    private static void append(StringBuilder buf, String record) {
+        if (buf.length() > 0) {
+            buf.append('\n');
+        }
+        buf.append(record);
+    }
+}
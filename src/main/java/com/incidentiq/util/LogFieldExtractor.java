@@ -0,0 +1,237 @@
+package com.incidentiq.util;
+
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.model.SearchFilter;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Pulls filterable fields out of a chunk's log lines: the time range covered, the highest
+ * level, and the services/hosts and trace ids mentioned.
+ * <p>
+ * Services and trace ids come from key=value pairs, the Sleuth/Micrometer Tracing
+ * {@code [app,traceId,spanId]} prefix, W3C traceparent values and the syslog host.
+ * Recognized timestamps are ISO-8601 (with T or space, optional fraction and offset) and
+ * epoch seconds or millis at the start of a line, syslog {@code MMM d HH:mm:ss host}, and
+ * the bracketed Apache/nginx access-log form anywhere in a line. Times without an offset
+ * are read in {@code zone}. A stack-trace frame counts as an ERROR line. Chunks without any
+ * timestamp are given the ingest time, so live tails still fall into "last hour" windows.
+ */
+public class LogFieldExtractor {
+
+    /** Per chunk, more distinct values than this are dropped. */
+    private static final int MAX_VALUES = 16;
+
+    /** Only the head of a line is searched for the level. */
+    private static final int LEVEL_WINDOW = 96;
+
+    private static final Pattern ISO = Pattern.compile(
+            "^\\[?(\\d{4}-\\d{2}-\\d{2})[T ](\\d{2}:\\d{2}:\\d{2})(?:[.,](\\d{1,9}))?\\s?(Z|[+-]\\d{2}:?\\d{2})?");
+    private static final Pattern EPOCH = Pattern.compile("^(1\\d{9})(\\d{3})?(?:\\.\\d+)?\\b");
+    private static final Pattern SYSLOG = Pattern.compile(
+            "^([A-Z][a-z]{2}) {1,2}(\\d{1,2}) (\\d{2}:\\d{2}:\\d{2}) (\\S+) ");
+    private static final Pattern CLF = Pattern.compile(
+            "\\[(\\d{2})/([A-Z][a-z]{2})/(\\d{4}):(\\d{2}:\\d{2}:\\d{2}) ([+-]\\d{4})]");
+    private static final Pattern LEVEL = Pattern.compile(
+            "\\b(TRACE|DEBUG|INFO|NOTICE|WARN|WARNING|ERROR|ERR|SEVERE|FATAL|CRITICAL|CRIT|PANIC|EMERG|ALERT)\\b");
+    private static final Pattern LEVEL_KV = Pattern.compile("\\blevel[=:]\"?([A-Za-z]+)");
+    private static final Pattern STACK_FRAME = Pattern.compile("^\\s+at [\\w$.<>]+\\(|^Caused by: ");
+    private static final Pattern SERVICE_KV = Pattern.compile(
+            "\\b(?:service|service\\.name|svc|app|application|host|hostname)=\"?([\\w.\\-:/]+)");
+    private static final Pattern TRACE_KV = Pattern.compile(
+            "\\b(?:trace|traceId|trace_id|trace\\.id|traceid|X-B3-TraceId)[=:]\"?([0-9a-fA-F\\-]{8,64})");
+    /** Spring Cloud Sleuth / Micrometer Tracing: [app,traceId,spanId(,export)] */
+    private static final Pattern SLEUTH = Pattern.compile(
+            "\\[([A-Za-z][\\w.\\-]*),([0-9a-f]{16,32})(?:,[0-9a-f]{16})?(?:,(?:true|false))?]");
+    private static final Pattern TRACEPARENT = Pattern.compile("\\b00-([0-9a-f]{32})-[0-9a-f]{16}-[0-9a-f]{2}\\b");
+
+    private static final DateTimeFormatter OFFSET_NO_COLON = DateTimeFormatter.ofPattern("xx");
+
+    private final ZoneId zone;
+
+    public LogFieldExtractor(ZoneId zone) {
+        this.zone = zone;
+    }
+
+    /**
+     * Sets tsStart, tsEnd, severity, services and traceIds on the chunk.
+     */
+    public void extract(LogChunk chunk, long ingestMillis) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        int severity = 0;
+        Set<String> services = new LinkedHashSet<>();
+        Set<String> traces = new LinkedHashSet<>();
+
+        String text = chunk.getText() == null ? "" : chunk.getText();
+        int start = 0;
+        while (start <= text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            String line = text.substring(start, end);
+            start = end + 1;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            LineTime t = timestamp(line, ingestMillis);
+            if (t != null) {
+                min = Math.min(min, t.millis);
+                max = Math.max(max, t.millis);
+                if (t.host != null) {
+                    add(services, t.host);
+                }
+            }
+            severity = Math.max(severity, level(line));
+            // cheap substring checks first; most lines have neither
+            if (line.indexOf('=') >= 0) {
+                collect(SERVICE_KV.matcher(line), services);
+            }
+            if (line.contains("race")) {
+                collect(TRACE_KV.matcher(line), traces);
+            }
+            if (line.indexOf(',') >= 0) {
+                Matcher m = SLEUTH.matcher(line.length() > LEVEL_WINDOW * 2 ? line.substring(0, LEVEL_WINDOW * 2) : line);
+                if (m.find()) {
+                    add(services, m.group(1));
+                    add(traces, m.group(2));
+                }
+            }
+            if (line.indexOf("00-") >= 0) {
+                collect(TRACEPARENT.matcher(line), traces);
+            }
+        }
+
+        if (min == Long.MAX_VALUE) {
+            min = max = ingestMillis;
+        }
+        chunk.setTsStart(min);
+        chunk.setTsEnd(max);
+        chunk.setSeverity(severity);
+        chunk.setServices(services.isEmpty() ? null : String.join("|", services));
+        chunk.setTraceIds(traces.isEmpty() ? null : String.join("|", traces));
+    }
+
+    private static int level(String line) {
+        if (STACK_FRAME.matcher(line).find()) {
+            return SearchFilter.LEVELS.indexOf("ERROR");
+        }
+        String head = line.length() > LEVEL_WINDOW ? line.substring(0, LEVEL_WINDOW) : line;
+        Matcher m = LEVEL.matcher(head);
+        if (m.find()) {
+            return SearchFilter.severityOf(m.group(1));
+        }
+        m = LEVEL_KV.matcher(head);
+        return m.find() ? SearchFilter.severityOf(m.group(1)) : 0;
+    }
+
+    private static void add(Set<String> out, String value) {
+        if (out.size() < MAX_VALUES) {
+            out.add(value);
+        }
+    }
+
+    private static void collect(Matcher m, Set<String> out) {
+        while (m.find() && out.size() < MAX_VALUES) {
+            out.add(m.group(1));
+        }
+    }
+
+    private LineTime timestamp(String line, long ingestMillis) {
+        char c = line.charAt(0);
+        try {
+            if (c == '[' || Character.isDigit(c)) {
+                Matcher m = ISO.matcher(line);
+                if (m.find()) {
+                    LocalDateTime ldt = LocalDateTime.of(LocalDate.parse(m.group(1)), LocalTime.parse(m.group(2)))
+                            .withNano(m.group(3) == null ? 0 : nanos(m.group(3)));
+                    return new LineTime(toMillis(ldt, m.group(4)), null);
+                }
+                m = EPOCH.matcher(line);
+                if (m.find()) {
+                    long secs = Long.parseLong(m.group(1));
+                    return new LineTime(m.group(2) == null ? secs * 1000 : secs * 1000 + Integer.parseInt(m.group(2)), null);
+                }
+            } else if (Character.isUpperCase(c)) {
+                Matcher m = SYSLOG.matcher(line);
+                if (m.find()) {
+                    return new LineTime(syslogMillis(m, ingestMillis), m.group(4));
+                }
+            }
+            if (line.indexOf('/') >= 0) {
+                Matcher m = CLF.matcher(line);
+                if (m.find()) {
+                    LocalDateTime ldt = LocalDateTime.of(
+                            LocalDate.of(Integer.parseInt(m.group(3)), month(m.group(2)), Integer.parseInt(m.group(1))),
+                            LocalTime.parse(m.group(4)));
+                    return new LineTime(ldt.atOffset(ZoneOffset.from(OFFSET_NO_COLON.parse(m.group(5))))
+                            .toInstant().toEpochMilli(), null);
+                }
+            }
+        } catch (DateTimeException | IllegalArgumentException e) {
+            return null; // looked like a timestamp but is not a valid date
+        }
+        return null;
+    }
+
+    private long toMillis(LocalDateTime ldt, String offset) {
+        if (offset == null) {
+            return ldt.atZone(zone).toInstant().toEpochMilli();
+        }
+        ZoneOffset off = "Z".equals(offset) ? ZoneOffset.UTC : ZoneOffset.of(
+                offset.length() == 5 ? offset.substring(0, 3) + ":" + offset.substring(3) : offset);
+        return OffsetDateTime.of(ldt, off).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Syslog has no year: take the ingest year, or the previous one if that lands in the future.
+     */
+    private long syslogMillis(Matcher m, long ingestMillis) {
+        Instant ingest = Instant.ofEpochMilli(ingestMillis);
+        int year = ingest.atZone(zone).getYear();
+        LocalTime time = LocalTime.parse(m.group(3));
+        Month month = month(m.group(1));
+        int day = Integer.parseInt(m.group(2));
+        long millis = LocalDateTime.of(LocalDate.of(year, month, day), time).atZone(zone).toInstant().toEpochMilli();
+        if (millis > ingestMillis + 86_400_000L) {
+            millis = LocalDateTime.of(LocalDate.of(year - 1, month, day), time).atZone(zone).toInstant().toEpochMilli();
+        }
+        return millis;
+    }
+
+    private static Month month(String abbrev) {
+        for (Month m : Month.values()) {
+            if (m.name().substring(0, 3).equalsIgnoreCase(abbrev)) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException("Not a month: " + abbrev.toLowerCase(Locale.ROOT));
+    }
+
+    private static int nanos(String fraction) {
+        StringBuilder s = new StringBuilder(fraction);
+        while (s.length() < 9) {
+            s.append('0');
+        }
+        return Integer.parseInt(s.toString());
+    }
+
+    private record LineTime(long millis, String host) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.incidentiq.util;
+
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.List;
+
+/**
+ * A Lua script run with EVALSHA, so the source crosses the wire only when the script is
+ * loaded. It is loaded with SCRIPT LOAD on first use and again whenever the server answers
+ * NOSCRIPT (restart, failover, SCRIPT FLUSH). A NOSCRIPT reply means the script did not
+ * run, so retrying it is safe.
+ */
+public final class LuaScript {
+
+    private final String source;
+    private volatile String sha;
+
+    public LuaScript(String source) {
+        this.source = source;
+    }
+
+    public Object eval(JedisPooled jedis, List<String> keys, List<String> args) {
+        try {
+            return jedis.evalsha(sha(jedis), keys, args);
+        } catch (JedisDataException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            return jedis.evalsha(reload(jedis), keys, args);
+        }
+    }
+
+    /**
+     * Queues the script on a pipeline. Responses failing with {@link #isNoScript} should be
+     * re-run with {@link #eval(JedisPooled, List, List)}, which reloads the script.
+     */
+    public Response<Object> eval(Pipeline pipeline, JedisPooled jedis, List<String> keys, List<String> args) {
+        return pipeline.evalsha(sha(jedis), keys, args);
+    }
+
+    public static boolean isNoScript(RuntimeException e) {
+        return e instanceof JedisDataException && e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT");
+    }
+
+    private String sha(JedisPooled jedis) {
+        String s = sha;
+        return s != null ? s : reload(jedis);
+    }
+
+    private String reload(JedisPooled jedis) {
+        sha = jedis.scriptLoad(source);
+        return sha;
+    }
+}
@@ -0,0 +1,113 @@
+package com.incidentiq.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Turns NDJSON log records into plain log lines as they are read:
+ * {@code <timestamp> <LEVEL> service=<name> <message> trace=<id>}, followed by the stack trace
+ * if the record has one. Common field names of Logstash, ECS, Bunyan and pino style
+ * records are recognized, dotted or nested. Lines that are not JSON objects pass through.
+ */
+public class NdjsonLogReader extends Reader {
+
+    private static final String[] TIMESTAMP = {"@timestamp", "timestamp", "time", "ts"};
+    private static final String[] LEVEL = {"level", "log.level", "severity", "levelname"};
+    private static final String[] SERVICE = {"service", "service.name", "app", "application", "logger", "logger_name"};
+    private static final String[] TRACE = {"trace_id", "traceId", "trace.id", "trace"};
+    private static final String[] MESSAGE = {"message", "msg", "@message", "log"};
+    private static final String[] STACK = {"stack_trace", "error.stack_trace", "exception", "stack", "err.stack"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BufferedReader in;
+
+    private String current = "";
+    private int pos;
+
+    public NdjsonLogReader(Reader in) {
+        this.in = in instanceof BufferedReader b ? b : new BufferedReader(in);
+    }
+
+    @Override
+    public int read(char[] buf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos >= current.length()) {
+            String line = in.readLine();
+            if (line == null) {
+                return -1;
+            }
+            current = render(line) + "\n";
+            pos = 0;
+        }
+        int n = Math.min(len, current.length() - pos);
+        current.getChars(pos, pos + n, buf, off);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    String render(String line) {
+        String trimmed = line.strip();
+        if (!trimmed.startsWith("{")) {
+            return line;
+        }
+        JsonNode n;
+        try {
+            n = objectMapper.readTree(trimmed);
+        } catch (IOException e) {
+            return line;
+        }
+
+        StringBuilder out = new StringBuilder(trimmed.length());
+        appendField(out, field(n, TIMESTAMP), "");
+        String level = field(n, LEVEL);
+        appendField(out, level == null ? null : level.toUpperCase(), "");
+        String service = field(n, SERVICE);
+        appendField(out, service, "service=");
+        String message = field(n, MESSAGE);
+        appendField(out, message == null ? trimmed : message, "");
+        appendField(out, field(n, TRACE), "trace=");
+
+        String stack = field(n, STACK);
+        if (stack != null) {
+            out.append('\n').append(stack.stripTrailing());
+        }
+        return out.toString();
+    }
+
+    private static void appendField(StringBuilder out, String value, String prefix) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (!out.isEmpty()) {
+            out.append(' ');
+        }
+        out.append(prefix).append(value);
+    }
+
+    /**
+     * First present field among the names; a dotted name also matches the nested path.
+     */
+    private static String field(JsonNode n, String[] names) {
+        for (String name : names) {
+            JsonNode v = n.get(name);
+            if ((v == null || v.isMissingNode()) && name.indexOf('.') > 0) {
+                v = n.at("/" + name.replace('.', '/'));
+            }
+            if (v != null && !v.isMissingNode() && !v.isNull() && !v.isContainerNode()) {
+                return v.asText();
+            }
+        }
+        return null;
+    }
+}
@@ -8,6 +8,7 @@ public enum RedisSearchCommand implements ProtocolCommand {
     FT_CREATE("FT.CREATE"),
     FT_SEARCH("FT.SEARCH"),
     FT_INFO("FT.INFO"),
+    FT_ALTER("FT.ALTER"),
     FT_DROPINDEX("FT.DROPINDEX");
 
     private final byte[] raw;
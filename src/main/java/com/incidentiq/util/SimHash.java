@@ -0,0 +1,102 @@
+package com.incidentiq.util;
+
+/**
+ * 64-bit SimHash over the word tokens of a log text.
+ * <p>
+ * Variable tokens (any alphanumeric run containing a digit: numbers, hex ids, UUID parts,
+ * "30000ms") are masked first, so two occurrences of the same stack trace or message that
+ * differ only in timestamps, ids and line numbers get fingerprints a few bits apart.
+ */
+public final class SimHash {
+
+    public static final String WILDCARD = "<*>";
+
+    private SimHash() {
+    }
+
+    /**
+     * Replaces every alphanumeric run that contains a digit with {@value #WILDCARD}.
+     */
+    public static String mask(String line) {
+        StringBuilder out = null;
+        int n = line.length();
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(line.charAt(i))) {
+                if (out != null) out.append(line.charAt(i));
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean digit = false;
+            while (i < n && Character.isLetterOrDigit(line.charAt(i))) {
+                digit |= Character.isDigit(line.charAt(i));
+                i++;
+            }
+            if (digit) {
+                if (out == null) {
+                    out = new StringBuilder(n).append(line, 0, start);
+                }
+                out.append(WILDCARD);
+            } else if (out != null) {
+                out.append(line, start, i);
+            }
+        }
+        return out == null ? line : out.toString();
+    }
+
+    /**
+     * Fingerprint of the masked word tokens; variable tokens are skipped entirely.
+     */
+    public static long fingerprint(String text) {
+        int[] weights = new int[64];
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            long h = 0xcbf29ce484222325L;
+            boolean digit = false;
+            while (i < n && Character.isLetterOrDigit(text.charAt(i))) {
+                char c = text.charAt(i);
+                digit |= Character.isDigit(c);
+                h ^= c;
+                h *= 0x100000001b3L;
+                i++;
+            }
+            if (digit) {
+                continue;
+            }
+            h = mix(h);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((h >>> bit) & 1) != 0 ? 1 : -1;
+            }
+        }
+
+        long fp = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fp |= 1L << bit;
+            }
+        }
+        return fp;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * murmur3 finalizer, so FNV hashes of short tokens spread over all 64 bits.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
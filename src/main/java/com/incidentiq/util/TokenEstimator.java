@@ -0,0 +1,19 @@
+package com.incidentiq.util;
+
+/**
+ * Token counts estimated from text length, for prompt budgets and provider quotas.
+ * <p>
+ * {@value #CHARS_PER_TOKEN} characters per token is close enough for English log text;
+ * the real count depends on the model's tokenizer.
+ */
+public final class TokenEstimator {
+
+    public static final int CHARS_PER_TOKEN = 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(int chars) {
+        return (chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,147 @@
+package com.incidentiq.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Little-endian vector encodings understood by RediSearch (FLOAT32, FLOAT16), plus the
+ * truncation and re-normalization needed for reduced-dimension embeddings.
+ */
+public final class VectorCodec {
+
+    public static final String FLOAT32 = "FLOAT32";
+    public static final String FLOAT16 = "FLOAT16";
+
+    private VectorCodec() {
+    }
+
+    public static int bytesPerElement(String type) {
+        return switch (type.toUpperCase()) {
+            case FLOAT32 -> 4;
+            case FLOAT16 -> 2;
+            default -> throw new IllegalArgumentException("Unsupported vector type: " + type);
+        };
+    }
+
+    public static byte[] encode(float[] vector, String type) {
+        return bytesPerElement(type) == 2 ? toFloat16Bytes(vector) : toFloat32Bytes(vector);
+    }
+
+    public static float[] decode(byte[] bytes, String type) {
+        return bytesPerElement(type) == 2 ? fromFloat16Bytes(bytes) : fromFloat32Bytes(bytes);
+    }
+
+    public static byte[] toFloat32Bytes(float[] vector) {
+        ByteBuffer buf = ByteBuffer.allocate(vector.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buf.asFloatBuffer().put(vector);
+        return buf.array();
+    }
+
+    public static float[] fromFloat32Bytes(byte[] bytes) {
+        float[] out = new float[bytes.length / 4];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(out);
+        return out;
+    }
+
+    public static byte[] toFloat16Bytes(float[] vector) {
+        byte[] out = new byte[vector.length * 2];
+        for (int i = 0; i < vector.length; i++) {
+            short h = floatToHalf(vector[i]);
+            out[2 * i] = (byte) h;
+            out[2 * i + 1] = (byte) (h >> 8);
+        }
+        return out;
+    }
+
+    public static float[] fromFloat16Bytes(byte[] bytes) {
+        float[] out = new float[bytes.length / 2];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = halfToFloat((short) ((bytes[2 * i] & 0xff) | (bytes[2 * i + 1] << 8)));
+        }
+        return out;
+    }
+
+    /**
+     * Keeps the first {@code dim} components and rescales to unit length. Matryoshka-style
+     * embeddings stay meaningful when truncated but are no longer normalized.
+     */
+    public static float[] truncateAndNormalize(float[] vector, int dim) {
+        int n = Math.min(dim, vector.length);
+        float[] out = new float[n];
+        double sumSq = 0;
+        for (int i = 0; i < n; i++) {
+            out[i] = vector[i];
+            sumSq += (double) vector[i] * vector[i];
+        }
+        if (sumSq > 0) {
+            float inv = (float) (1.0 / Math.sqrt(sumSq));
+            for (int i = 0; i < n; i++) {
+                out[i] *= inv;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * IEEE 754 binary16 conversion with round-to-nearest-even (Float.floatToFloat16 is Java 20+).
+     */
+    static short floatToHalf(float f) {
+        int bits = Float.floatToIntBits(f);
+        int sign = (bits >>> 16) & 0x8000;
+        int exp = (bits >>> 23) & 0xff;
+        int mant = bits & 0x7fffff;
+
+        if (exp == 0xff) {
+            // Inf / NaN
+            return (short) (sign | 0x7c00 | (mant != 0 ? 0x200 : 0));
+        }
+        int e = exp - 127 + 15;
+        if (e >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (e <= 0) {
+            if (e < -10) {
+                return (short) sign;
+            }
+            // subnormal half
+            mant |= 0x800000;
+            int shift = 14 - e;
+            int half = mant >> shift;
+            int rem = mant & ((1 << shift) - 1);
+            int mid = 1 << (shift - 1);
+            if (rem > mid || (rem == mid && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (e << 10) | (mant >> 13);
+        int rem = mant & 0x1fff;
+        if (rem > 0x1000 || (rem == 0x1000 && (half & 1) != 0)) {
+            half++; // may carry into the exponent, which is still correct
+        }
+        return (short) (sign | half);
+    }
+
+    static float halfToFloat(short h) {
+        int sign = (h & 0x8000) << 16;
+        int exp = (h >>> 10) & 0x1f;
+        int mant = h & 0x3ff;
+
+        if (exp == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+        }
+        if (exp == 0) {
+            if (mant == 0) {
+                return Float.intBitsToFloat(sign);
+            }
+            // normalize the subnormal
+            exp = 1;
+            while ((mant & 0x400) == 0) {
+                mant <<= 1;
+                exp--;
+            }
+            mant &= 0x3ff;
+        }
+        return Float.intBitsToFloat(sign | ((exp - 15 + 127) << 23) | (mant << 13));
+    }
+}
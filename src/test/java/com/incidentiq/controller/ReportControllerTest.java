@@ -0,0 +1,57 @@
+package com.incidentiq.controller;
+
+import com.incidentiq.service.IndexReportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ReportControllerTest {
+
+    private final IndexReportService service = mock(IndexReportService.class);
+    private final ReportController controller = new ReportController(service);
+
+    @Test
+    void hybridReportRejectsMissingOrEmptyCases() {
+        ReportController.HybridReportRequest request = new ReportController.HybridReportRequest();
+
+        assertBadRequest(() -> controller.hybridReport(request));
+        request.setCases(List.of());
+        assertBadRequest(() -> controller.hybridReport(request));
+
+        ReportController.HybridCase noQuery = new ReportController.HybridCase();
+        request.setCases(List.of(noQuery));
+        assertBadRequest(() -> controller.hybridReport(request));
+        List<ReportController.HybridCase> withNull = new ArrayList<>();
+        withNull.add(null);
+        request.setCases(withNull);
+        assertBadRequest(() -> controller.hybridReport(request));
+
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    void indexReportRejectsMissingOrBlankQueries() {
+        ReportController.IndexReportRequest request = new ReportController.IndexReportRequest();
+
+        assertBadRequest(() -> controller.indexReport(request));
+        request.setQueries(List.of());
+        assertBadRequest(() -> controller.indexReport(request));
+        request.setQueries(List.of("timeouts", " "));
+        assertBadRequest(() -> controller.indexReport(request));
+
+        verifyNoInteractions(service);
+    }
+
+    private static void assertBadRequest(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode().value()).isEqualTo(400));
+    }
+}
@@ -0,0 +1,108 @@
+package com.incidentiq.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchFilterTest {
+
+    private static final long NOW = Instant.parse("2024-05-01T12:00:00Z").toEpochMilli();
+
+    @Test
+    void parsesEveryParameter() {
+        SearchFilter f = SearchFilter.parse("2024-05-01T00:00:00Z", "1714560000000", "15m", "warning",
+                " checkout, ,pay ", " abc123 ");
+
+        assertThat(f.getFrom()).isEqualTo(Instant.parse("2024-05-01T00:00:00Z"));
+        assertThat(f.getTo()).isEqualTo(Instant.ofEpochMilli(1714560000000L));
+        assertThat(f.getSince()).isEqualTo(Duration.ofMinutes(15));
+        assertThat(f.getMinSeverity()).isEqualTo(SearchFilter.LEVELS.indexOf("WARN"));
+        assertThat(f.getServices()).containsExactly("checkout", "pay");
+        assertThat(f.getTraceId()).isEqualTo("abc123");
+    }
+
+    @Test
+    void blankParametersGiveAnEmptyFilter() {
+        SearchFilter f = SearchFilter.parse(null, "", " ", null, "", null);
+
+        assertThat(f.isEmpty()).isTrue();
+        assertThat(f.hasTimeWindow()).isFalse();
+    }
+
+    @Test
+    void parsesRelativeAndIsoDurations() {
+        assertThat(SearchFilter.parse(null, null, "30s", null, null, null).getSince()).isEqualTo(Duration.ofSeconds(30));
+        assertThat(SearchFilter.parse(null, null, "2H", null, null, null).getSince()).isEqualTo(Duration.ofHours(2));
+        assertThat(SearchFilter.parse(null, null, "1d", null, null, null).getSince()).isEqualTo(Duration.ofDays(1));
+        assertThat(SearchFilter.parse(null, null, "pt90m", null, null, null).getSince()).isEqualTo(Duration.ofMinutes(90));
+    }
+
+    @Test
+    void rejectsValuesThatCannotBeParsed() {
+        assertThatThrownBy(() -> SearchFilter.parse("yesterday", null, null, null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SearchFilter.parse(null, null, "15w", null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SearchFilter.parse(null, null, "m", null, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SearchFilter.parse(null, null, null, "LOUD", null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mapsLevelAliases() {
+        assertThat(SearchFilter.severityOf(" warn ")).isEqualTo(SearchFilter.LEVELS.indexOf("WARN"));
+        assertThat(SearchFilter.severityOf("severe")).isEqualTo(SearchFilter.LEVELS.indexOf("ERROR"));
+        assertThat(SearchFilter.severityOf("ERR")).isEqualTo(SearchFilter.LEVELS.indexOf("ERROR"));
+        assertThat(SearchFilter.severityOf("panic")).isEqualTo(SearchFilter.LEVELS.indexOf("FATAL"));
+        assertThat(SearchFilter.severityOf("notice")).isEqualTo(SearchFilter.LEVELS.indexOf("INFO"));
+        assertThat(SearchFilter.severityOf("")).isZero();
+        assertThat(SearchFilter.severityOf("verbose")).isZero();
+    }
+
+    @Test
+    void sinceIsResolvedAgainstNowAndTheLaterBoundWins() {
+        SearchFilter sinceOnly = SearchFilter.builder().since(Duration.ofHours(1)).build();
+        SearchFilter both = SearchFilter.builder()
+                .from(Instant.ofEpochMilli(NOW - 60_000)).since(Duration.ofHours(1)).build();
+
+        assertThat(sinceOnly.fromMillis(NOW)).isEqualTo(NOW - 3_600_000);
+        assertThat(both.fromMillis(NOW)).isEqualTo(NOW - 60_000);
+        assertThat(SearchFilter.builder().build().fromMillis(NOW)).isNull();
+    }
+
+    @Test
+    void matchesOverlappingTimeRanges() {
+        SearchFilter f = SearchFilter.builder()
+                .from(Instant.ofEpochMilli(1_000)).to(Instant.ofEpochMilli(2_000)).build();
+
+        assertThat(f.matches(500L, 1_000L, 0, null, null, NOW)).isTrue();
+        assertThat(f.matches(2_000L, 3_000L, 0, null, null, NOW)).isTrue();
+        assertThat(f.matches(500L, 999L, 0, null, null, NOW)).isFalse();
+        assertThat(f.matches(2_001L, 3_000L, 0, null, null, NOW)).isFalse();
+        assertThat(f.matches(null, null, 0, null, null, NOW)).isFalse();
+    }
+
+    @Test
+    void matchesLevelServicesAndTrace() {
+        SearchFilter f = SearchFilter.builder()
+                .minSeverity(SearchFilter.LEVELS.indexOf("WARN"))
+                .services(List.of("checkout", "pay"))
+                .traceId("abc")
+                .build();
+        int error = SearchFilter.LEVELS.indexOf("ERROR");
+
+        assertThat(f.matches(null, null, error, Set.of("pay"), Set.of("abc"), NOW)).isTrue();
+        assertThat(f.matches(null, null, SearchFilter.LEVELS.indexOf("INFO"), Set.of("pay"), Set.of("abc"), NOW))
+                .isFalse();
+        assertThat(f.matches(null, null, error, Set.of("search"), Set.of("abc"), NOW)).isFalse();
+        assertThat(f.matches(null, null, error, null, Set.of("abc"), NOW)).isFalse();
+        assertThat(f.matches(null, null, error, Set.of("pay"), Set.of("def"), NOW)).isFalse();
+    }
+}
@@ -0,0 +1,55 @@
+package com.incidentiq.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.Pipeline;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmbeddingCacheTest {
+
+    @Test
+    void putAllWritesRedisInOnePipeline() {
+        JedisPooled jedis = mock(JedisPooled.class);
+        Pipeline pipeline = mock(Pipeline.class);
+        when(jedis.pipelined()).thenReturn(pipeline);
+        EmbeddingCache cache = new EmbeddingCache(jedis, new SimpleMeterRegistry(), true, 1 << 20, 60);
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < 32; i++) {
+            entries.put("k" + i, new byte[]{(byte) i});
+        }
+
+        cache.putAll(entries);
+
+        verify(jedis, times(1)).pipelined();
+        verify(pipeline, times(32)).setex(any(byte[].class), anyLong(), any(byte[].class));
+        verify(pipeline).setex("embcache:k7".getBytes(StandardCharsets.UTF_8), 60, new byte[]{7});
+        verify(pipeline).sync();
+        verify(jedis, never()).setex(any(byte[].class), anyLong(), any(byte[].class));
+        assertThat(cache.getAll(List.of("k0", "k31"))).containsExactly(new byte[]{0}, new byte[]{31});
+    }
+
+    @Test
+    void putAllKeepsTheLocalTierWhenRedisFails() {
+        JedisPooled jedis = mock(JedisPooled.class);
+        when(jedis.pipelined()).thenThrow(new IllegalStateException("pool exhausted"));
+        EmbeddingCache cache = new EmbeddingCache(jedis, new SimpleMeterRegistry(), true, 1 << 20, 60);
+
+        cache.putAll(Map.of("k", new byte[]{1}));
+
+        assertThat(cache.get("k")).containsExactly(1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.PackedContext;
+import com.incidentiq.model.RootCauseInsight.EvidenceHit;
+import com.incidentiq.util.TokenEstimator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EvidencePackerTest {
+
+    @Test
+    void foldsNearDuplicatesIntoTheHigherRankedHit() {
+        List<EvidenceHit> hits = List.of(
+                hit("a", 0.10, "2024-05-01 10:00:01 ERROR order 1001 failed: connection reset by peer"),
+                hit("b", 0.12, "2024-05-01 10:00:07 ERROR order 2002 failed: connection reset by peer"),
+                hit("c", 0.30, "2024-05-01 10:01:00 WARN disk usage above threshold on volume data"));
+
+        PackedContext packed = new EvidencePacker(4000, 3).pack(hits);
+
+        assertThat(packed.getEvidenceIn()).isEqualTo(3);
+        assertThat(packed.getNearDuplicates()).isEqualTo(1);
+        assertThat(packed.getEvidenceKept()).isEqualTo(2);
+        assertThat(packed.getText()).contains("score=0.1, +1 similar").contains("disk usage");
+        assertThat(packed.getText()).doesNotContain("order 2002");
+        assertThat(packed.isTruncated()).isFalse();
+    }
+
+    @Test
+    void repeatedLinesAreShownOnceWithACount() {
+        String text = String.join("\n",
+                "ERROR retry 1 of 5 for payment 7781",
+                "ERROR retry 2 of 5 for payment 7781",
+                "ERROR retry 3 of 5 for payment 7781",
+                "FATAL giving up");
+
+        PackedContext packed = new EvidencePacker(4000, 0).pack(List.of(hit("a", 0.1, text)));
+
+        assertThat(packed.getLinesCollapsed()).isEqualTo(2);
+        assertThat(packed.getText()).contains("[x3] ERROR retry 1 of 5 for payment 7781", "FATAL giving up");
+        assertThat(packed.getText()).doesNotContain("retry 2 of 5");
+    }
+
+    @Test
+    void staysWithinTheTokenBudget() {
+        List<EvidenceHit> hits = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            hits.add(hit("h" + i, i / 100.0, ("distinct message about subsystem " + (char) ('a' + i) + " ").repeat(20)));
+        }
+
+        PackedContext packed = new EvidencePacker(300, 0).pack(hits);
+
+        assertThat(packed.isTruncated()).isTrue();
+        assertThat(packed.getText().length()).isLessThanOrEqualTo(300 * TokenEstimator.CHARS_PER_TOKEN);
+        assertThat(packed.getPackedTokens()).isLessThanOrEqualTo(300);
+        assertThat(packed.getEvidenceKept()).isBetween(1, 19);
+        assertThat(packed.getInputTokens()).isGreaterThan(packed.getPackedTokens());
+    }
+
+    @Test
+    void cutsAnOverlongTopLineRatherThanSendingNothing() {
+        PackedContext packed = new EvidencePacker(50, 0).pack(List.of(hit("a", 0.1, "x".repeat(1000))));
+
+        assertThat(packed.getEvidenceKept()).isEqualTo(1);
+        assertThat(packed.isTruncated()).isTrue();
+        assertThat(packed.getText()).contains("xxxx");
+        assertThat(packed.getText().length()).isLessThanOrEqualTo(50 * TokenEstimator.CHARS_PER_TOKEN);
+    }
+
+    private static EvidenceHit hit(String id, double score, String text) {
+        return EvidenceHit.builder().id(id).score(score).text(text).meta("app.log").build();
+    }
+}
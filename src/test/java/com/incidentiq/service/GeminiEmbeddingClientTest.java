@@ -0,0 +1,149 @@
+package com.incidentiq.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiEmbeddingClientTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private GeminiEmbeddingClient client;
+
+    /**
+     * Answers batchEmbedContents with one vector per request whose first value is the
+     * number in the request text, so the test can check the order of the results.
+     */
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 16);
+        server.createContext("/", exchange -> {
+            JsonNode body = MAPPER.readTree(exchange.getRequestBody());
+            String path = exchange.getRequestURI().getPath();
+            byte[] response;
+            int status = 200;
+            if (path.endsWith(":batchEmbedContents")) {
+                batchSizes.add(body.path("requests").size());
+                StringBuilder sb = new StringBuilder("{\"embeddings\":[");
+                for (int i = 0; i < body.path("requests").size(); i++) {
+                    String text = body.path("requests").get(i).path("content").path("parts").get(0).path("text").asText();
+                    sb.append(i > 0 ? "," : "").append(vector(Integer.parseInt(text)));
+                }
+                response = sb.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+            } else if (body.path("content").path("parts").get(0).path("text").asText().equals("bad")) {
+                status = 400;
+                response = "{\"error\":{\"code\":400}}".getBytes(StandardCharsets.UTF_8);
+            } else {
+                response = ("{\"embedding\":" + vector(7) + "}").getBytes(StandardCharsets.UTF_8);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+
+        client = new GeminiEmbeddingClient(new OkHttpClient(), new SimpleMeterRegistry(), 0, 0, 8, 1, 1, 1);
+        ReflectionTestUtils.setField(client, "apiKey", "test");
+        ReflectionTestUtils.setField(client, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta");
+        ReflectionTestUtils.setField(client, "dimension", GeminiEmbeddingClient.FULL_DIM);
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void embedBatchSplitsIntoProviderSizedCallsAndKeepsInputOrder() {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            texts.add(String.valueOf(i));
+        }
+
+        List<float[]> vectors = client.embedBatch(texts);
+
+        assertThat(batchSizes).containsExactlyInAnyOrder(100, 100, 50);
+        assertThat(vectors).hasSize(250);
+        for (int i = 0; i < vectors.size(); i++) {
+            assertThat(vectors.get(i)[0]).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void embedDecodesASingleVector() {
+        assertThat(client.embed("hello")).containsExactly(7f, 0.5f, -0.25f, 1e-3f);
+    }
+
+    @Test
+    void clientErrorsSurfaceAsHttpClientErrorException() {
+        assertThatThrownBy(() -> client.embed("bad"))
+                .isInstanceOf(HttpClientErrorException.class)
+                .satisfies(e -> assertThat(((HttpClientErrorException) e).getStatusCode().value()).isEqualTo(400));
+    }
+
+    @Test
+    void decodeValuesReadsEveryValuesArrayInOrder() throws IOException {
+        String json = "{\"embeddings\":[{\"values\":[1,2.5,-3]},{\"other\":{\"x\":1},\"values\":[4E-2,5]}]}";
+
+        List<float[]> out = GeminiEmbeddingClient.decodeValues(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), 3);
+
+        assertThat(out).hasSize(2);
+        assertThat(out.get(0)).containsExactly(1f, 2.5f, -3f);
+        assertThat(out.get(1)).containsExactly(0.04f, 5f);
+    }
+
+    @Test
+    void parseFloatMatchesDoubleParsing() throws IOException {
+        Random random = new Random(42);
+        List<String> literals = new ArrayList<>(List.of("0", "-0.0", "1e-5", "1.5E+3", "-0.000000000000000012",
+                "3.4028235E38", "1.4E-45", "0.12345678901234567890", "123456789012345678"));
+        for (int i = 0; i < 10_000; i++) {
+            literals.add(random.nextBoolean()
+                    ? Float.toString((float) random.nextGaussian() * 0.02f)
+                    : Double.toString(random.nextGaussian()));
+        }
+
+        try (JsonParser p = new JsonFactory().createParser("[" + String.join(",", literals) + "]")) {
+            p.nextToken();
+            int i = 0;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                String literal = literals.get(i++);
+                assertThat(GeminiEmbeddingClient.parseFloat(p))
+                        .as(literal)
+                        .isEqualTo((float) Double.parseDouble(literal));
+            }
+        }
+    }
+
+    private static String vector(int first) {
+        return "{\"values\":[" + first + ",0.5,-0.25,1e-3]}";
+    }
+}
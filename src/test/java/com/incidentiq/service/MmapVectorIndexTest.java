@@ -0,0 +1,100 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.util.VectorCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MmapVectorIndexTest {
+
+    private static final int DIM = 4096;
+
+    @TempDir
+    Path dir;
+
+    private EmbeddingService embeddings;
+    private MmapVectorIndex index;
+
+    @BeforeEach
+    void open() throws IOException {
+        embeddings = mock(EmbeddingService.class);
+        when(embeddings.getEmbeddingDim()).thenReturn(DIM);
+        when(embeddings.decode(any())).thenAnswer(inv -> VectorCodec.decode(inv.getArgument(0), VectorCodec.FLOAT32));
+        index = new MmapVectorIndex(embeddings, dir.toString(), "emb:");
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void reAddingAnIdReplacesItsVector() throws IOException {
+        index.add(List.of(chunk("a"), chunk("b")), List.of(unit(0), unit(1)));
+
+        index.add(List.of(chunk("a")), List.of(unit(2)));
+
+        assertThat(index.size()).isEqualTo(2);
+        MmapVectorIndex.TopK top = index.scan(VectorCodec.decode(unit(2), VectorCodec.FLOAT32), 1);
+        assertThat(top.rows[0]).isZero();
+        assertThat(top.scores[0]).isEqualTo(1f);
+
+        index.close();
+        index = new MmapVectorIndex(embeddings, dir.toString(), "emb:");
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void scansNeverSeeAHalfWrittenVector() throws Exception {
+        index.add(List.of(chunk("a")), List.of(spread(1)));
+        float[] q = VectorCodec.decode(spread(1), VectorCodec.FLOAT32);
+        AtomicBoolean done = new AtomicBoolean();
+
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                index.add(List.of(chunk("a")), List.of(i % 2 == 0 ? spread(1) : spread(-1)));
+            }
+            done.set(true);
+        });
+        while (!done.get()) {
+            float score = index.scan(q, 1).scores[0];
+            assertThat(Math.abs(score)).isCloseTo(1f, within(1e-4f));
+        }
+        writer.get(30, TimeUnit.SECONDS);
+    }
+
+    private static LogChunk chunk(String id) {
+        LogChunk c = new LogChunk("test", "app.log", 0, "text " + id);
+        c.setId(id);
+        return c;
+    }
+
+    private static byte[] unit(int axis) {
+        float[] v = new float[DIM];
+        v[axis] = 1f;
+        return VectorCodec.encode(v, VectorCodec.FLOAT32);
+    }
+
+    /** Unit vector with the same sign in every component; a mix of two signs scores below 1. */
+    private static byte[] spread(int sign) {
+        float[] v = new float[DIM];
+        Arrays.fill(v, sign / (float) Math.sqrt(DIM));
+        return VectorCodec.encode(v, VectorCodec.FLOAT32);
+    }
+}
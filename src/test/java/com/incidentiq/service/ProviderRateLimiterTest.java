@@ -0,0 +1,253 @@
+package com.incidentiq.service;
+
+import com.incidentiq.service.ProviderRateLimiter.FailureKind;
+import com.incidentiq.service.ProviderRateLimiter.Permit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class ProviderRateLimiterTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void requestBucketRefillsOverTime() throws Exception {
+        ProviderRateLimiter limiter = limiter(60, 0, 1);
+        for (int i = 0; i < 60; i++) {
+            limiter.acquire(0).success();
+        }
+
+        CompletableFuture<Permit> next = limiter.acquireAsync(0);
+
+        assertThat(next.isDone()).isFalse();
+        next.get(2, TimeUnit.SECONDS).success();
+    }
+
+    @Test
+    void tokenBucketPacesLargeRequestsAndClampsToItsCapacity() throws Exception {
+        ProviderRateLimiter limiter = limiter(0, 60_000, 4);
+        limiter.acquire(1_000_000).success(); // more than a minute's quota still gets through once
+
+        CompletableFuture<Permit> next = limiter.acquireAsync(500);
+
+        assertThat(next.isDone()).isFalse();
+        next.get(2, TimeUnit.SECONDS).success();
+    }
+
+    @Test
+    void concurrencyLimitHoldsCallersUntilAPermitIsReturned() throws Exception {
+        ProviderRateLimiter limiter = limiter(0, 0, 2);
+        Permit first = limiter.acquire(0);
+        limiter.acquire(0);
+
+        CompletableFuture<Permit> third = limiter.acquireAsync(0);
+
+        assertThat(third.isDone()).isFalse();
+        assertThat(limiter.inFlight()).isEqualTo(2);
+        first.success();
+        third.get(2, TimeUnit.SECONDS);
+        assertThat(limiter.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void throttlingHalvesTheLimitOncePerSecondAndSuccessesGrowItBack() {
+        ProviderRateLimiter limiter = limiter(0, 0, 8);
+
+        limiter.acquire(0).failure(tooManyRequests(null, ""), 1);
+        limiter.acquire(0).failure(tooManyRequests(null, ""), 1);
+
+        assertThat(limiter.currentLimit()).isEqualTo(4);
+        assertThat(registry.get("incidentiq.provider.throttled").counter().count()).isEqualTo(2);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire(0).success();
+        }
+        assertThat(limiter.currentLimit()).isGreaterThan(4.9).isLessThan(5);
+
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire(0).success();
+        }
+        assertThat(limiter.currentLimit()).isEqualTo(8);
+        assertThat(registry.get("incidentiq.provider.concurrency.limit").tag("provider", "test").gauge().value())
+                .isEqualTo(8);
+    }
+
+    @Test
+    void retryAfterPausesEveryCaller() throws Exception {
+        ProviderRateLimiter limiter = limiter(0, 0, 8);
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+
+        Duration backoff = limiter.acquire(0).failure(tooManyRequests(headers, ""), 1);
+        CompletableFuture<Permit> next = limiter.acquireAsync(0);
+
+        assertThat(backoff).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+        assertThat(next.isDone()).isFalse();
+        next.get(3, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void permitFailureDecidesWhetherToRetry() {
+        ProviderRateLimiter limiter = limiter(0, 0, 8);
+
+        assertThat(limiter.acquire(0).failure(serverError(), 1)).isNotNull();
+        assertThat(limiter.acquire(0).failure(serverError(), 3)).isNull();
+        assertThat(limiter.acquire(0).failure(new IllegalArgumentException("bad"), 1)).isNull();
+        assertThat(registry.get("incidentiq.provider.exhausted").counter().count()).isEqualTo(1);
+        assertThat(registry.get("incidentiq.provider.retries").tag("reason", "transient").counter().count())
+                .isEqualTo(1);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void aPermitEndsOnlyOnce() {
+        ProviderRateLimiter limiter = limiter(0, 0, 2);
+        Permit permit = limiter.acquire(0);
+
+        permit.success();
+        permit.release();
+        permit.failure(serverError(), 1);
+
+        assertThat(limiter.inFlight()).isZero();
+        assertThat(limiter.currentLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void callRetriesTransientFailuresAndNotPermanentOnes() {
+        ProviderRateLimiter limiter = limiter(0, 0, 4);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = limiter.call(10, () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw serverError();
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> limiter.call(10, () -> {
+            attempts.incrementAndGet();
+            throw HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "", null, null, null);
+        })).isInstanceOf(HttpClientErrorException.class);
+        assertThat(attempts).hasValue(1);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void callAsyncRetriesAndFailsWithTheLastError() {
+        ProviderRateLimiter limiter = limiter(0, 0, 4);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> failed = limiter.callAsync(10, () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(serverError());
+        });
+
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(HttpServerErrorException.class);
+        assertThat(attempts).hasValue(3);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    @Test
+    void classifiesHttpAndTransportErrors() {
+        assertThat(ProviderRateLimiter.classify(serverError()).kind()).isEqualTo(FailureKind.TRANSIENT);
+        assertThat(ProviderRateLimiter.classify(
+                HttpClientErrorException.create(HttpStatus.REQUEST_TIMEOUT, "", null, null, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(ProviderRateLimiter.classify(
+                HttpClientErrorException.create(HttpStatus.FORBIDDEN, "", null, null, null)).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+        assertThat(ProviderRateLimiter.classify(
+                WebClientResponseException.create(503, "", null, null, null)).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(ProviderRateLimiter.classify(new RuntimeException(new ResourceAccessException("reset"))).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+        assertThat(ProviderRateLimiter.classify(new IllegalStateException("bug")).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+    }
+
+    @Test
+    void readsTheRetryDelayFromHeaderOrBody() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "7");
+        String body = "{\"error\":{\"details\":[{\"retryDelay\": \"2.5s\"}]}}";
+
+        assertThat(ProviderRateLimiter.classify(tooManyRequests(headers, body)).retryAfter())
+                .isEqualTo(Duration.ofSeconds(7));
+        assertThat(ProviderRateLimiter.classify(tooManyRequests(null, body)).retryAfter())
+                .isEqualTo(Duration.ofMillis(2_500));
+        assertThat(ProviderRateLimiter.classify(tooManyRequests(null, "{}")).retryAfter()).isNull();
+    }
+
+    @Test
+    void readsTheStatusFromSpringAiMessages() {
+        ProviderRateLimiter.Failure throttled = ProviderRateLimiter.classify(
+                new TransientAiException("429 - {\"retryDelay\":\"3s\"}"));
+
+        assertThat(throttled.kind()).isEqualTo(FailureKind.THROTTLED);
+        assertThat(throttled.retryAfter()).isEqualTo(Duration.ofSeconds(3));
+        assertThat(ProviderRateLimiter.classify(new NonTransientAiException("400 - bad request")).kind())
+                .isEqualTo(FailureKind.PERMANENT);
+        assertThat(ProviderRateLimiter.classify(new TransientAiException("connection closed")).kind())
+                .isEqualTo(FailureKind.TRANSIENT);
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndDates() {
+        String inAMinute = ZonedDateTime.now().plusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        String past = ZonedDateTime.now().minusSeconds(60).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+
+        assertThat(ProviderRateLimiter.retryAfter(" 120 ")).isEqualTo(Duration.ofSeconds(120));
+        assertThat(ProviderRateLimiter.retryAfter(inAMinute).toSeconds()).isCloseTo(60, within(2L));
+        assertThat(ProviderRateLimiter.retryAfter(past)).isEqualTo(Duration.ZERO);
+        assertThat(ProviderRateLimiter.retryAfter("soon")).isNull();
+        assertThat(ProviderRateLimiter.retryAfter("")).isNull();
+    }
+
+    @Test
+    void backoffIsCappedJitterButNeverShorterThanTheServerDelay() {
+        ProviderRateLimiter limiter = new ProviderRateLimiter("test", 0, 0, 1, 3, 100, 1_000, registry);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.backoff(1, null)).isBetween(Duration.ZERO, Duration.ofMillis(100));
+            assertThat(limiter.backoff(30, null)).isBetween(Duration.ZERO, Duration.ofMillis(1_000));
+        }
+        assertThat(limiter.backoff(1, Duration.ofSeconds(5))).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    private ProviderRateLimiter limiter(int rpm, long tpm, int maxConcurrency) {
+        return new ProviderRateLimiter("test", rpm, tpm, maxConcurrency, 3, 1, 5, registry);
+    }
+
+    private static HttpClientErrorException tooManyRequests(HttpHeaders headers, String body) {
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "", headers,
+                body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+    }
+
+    private static HttpServerErrorException serverError() {
+        return (HttpServerErrorException) HttpServerErrorException.create(
+                HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null);
+    }
+}
@@ -0,0 +1,48 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.SearchFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RediSearchKnnServiceTest {
+
+    private static final long NOW = 1_714_564_800_000L;
+
+    @Test
+    void emptyFilterHasNoExpression() {
+        assertThat(RediSearchKnnService.filterExpr(null, NOW)).isNull();
+        assertThat(RediSearchKnnService.filterExpr(SearchFilter.builder().build(), NOW)).isNull();
+    }
+
+    @Test
+    void intersectsEveryClause() {
+        SearchFilter f = SearchFilter.builder()
+                .since(Duration.ofMinutes(15))
+                .to(Instant.ofEpochMilli(NOW))
+                .minSeverity(SearchFilter.LEVELS.indexOf("WARN"))
+                .services(List.of("checkout", "pay-7"))
+                .traceId("4bf92f35-77b3")
+                .build();
+
+        assertThat(RediSearchKnnService.filterExpr(f, NOW)).isEqualTo(
+                "@tsEnd:[" + (NOW - 900_000) + " +inf] "
+                        + "@tsStart:[-inf " + NOW + "] "
+                        + "@severity:[4 +inf] "
+                        + "@service:{checkout | pay\\-7} "
+                        + "@traceId:{4bf92f35\\-77b3}");
+    }
+
+    @Test
+    void escapesEverythingButWordCharactersInTags() {
+        assertThat(RediSearchKnnService.escapeTag("web_01")).isEqualTo("web_01");
+        assertThat(RediSearchKnnService.escapeTag("api.example.com:8080"))
+                .isEqualTo("api\\.example\\.com\\:8080");
+        assertThat(RediSearchKnnService.escapeTag("a b|c{}"))
+                .isEqualTo("a\\ b\\|c\\{\\}");
+    }
+}
@@ -0,0 +1,83 @@
+package com.incidentiq.service;
+
+import com.incidentiq.model.SearchHit;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SearchServiceTest {
+
+    private static final int K = 60;
+
+    @Test
+    void hitsInBothRankingsComeFirst() {
+        List<SearchHit> out = SearchService.fuse(hits("a", "b", "c"), hits("b", "d"), 1, 1, K, 10);
+
+        assertThat(out).extracting(SearchHit::getId).containsExactly("b", "a", "d", "c");
+    }
+
+    @Test
+    void scoresAreDistancesFromTheBestPossibleFusion() {
+        List<SearchHit> out = SearchService.fuse(hits("a", "b"), hits("a", "c"), 1, 1, K, 10);
+
+        double max = 2.0 / (K + 1);
+        assertThat(out.get(0).getId()).isEqualTo("a");
+        assertThat(out.get(0).getScore()).isCloseTo(0, within(1e-12));
+        assertThat(out.get(1).getScore()).isCloseTo(1 - (1.0 / (K + 2)) / max, within(1e-12));
+        assertThat(out).extracting(SearchHit::getScore).isSorted();
+    }
+
+    @Test
+    void weightsDecideBetweenTheLegs() {
+        assertThat(SearchService.fuse(hits("a"), hits("b"), 1, 2, K, 10))
+                .extracting(SearchHit::getId).containsExactly("b", "a");
+        assertThat(SearchService.fuse(hits("a"), hits("b"), 2, 1, K, 10))
+                .extracting(SearchHit::getId).containsExactly("a", "b");
+    }
+
+    @Test
+    void tiesKeepTheKnnOrder() {
+        assertThat(SearchService.fuse(hits("a", "c"), hits("b", "d"), 1, 1, K, 10))
+                .extracting(SearchHit::getId).containsExactly("a", "b", "c", "d");
+    }
+
+    @Test
+    void truncatesToTopKAndKeepsTheKnnHit() {
+        List<SearchHit> knn = hits("a", "b", "c");
+        knn.get(1).setMeta("{\"source\":\"knn\"}");
+
+        List<SearchHit> out = SearchService.fuse(knn, hits("b"), 1, 1, K, 2);
+
+        assertThat(out).extracting(SearchHit::getId).containsExactly("b", "a");
+        assertThat(out.get(0).getText()).isEqualTo("text b");
+        assertThat(out.get(0).getMeta()).isEqualTo("{\"source\":\"knn\"}");
+    }
+
+    @Test
+    void anEmptyLegLeavesTheOtherRanking() {
+        assertThat(SearchService.fuse(hits("a", "b"), List.of(), 1, 1, K, 10))
+                .extracting(SearchHit::getId).containsExactly("a", "b");
+        assertThat(SearchService.fuse(List.of(), List.of(), 1, 1, K, 10)).isEmpty();
+    }
+
+    @Test
+    void queryTermsDropStopwordsAndSingleCharacters() {
+        assertThat(SearchService.queryTerms("Why is the checkout-service throwing 500s at 10:15?"))
+                .containsExactly("checkout", "service", "throwing", "500s", "10", "15");
+        assertThat(SearchService.queryTerms("Timeout timeout db_pool TIMEOUT"))
+                .containsExactly("timeout", "db_pool");
+        assertThat(SearchService.queryTerms("what is a x")).isEmpty();
+    }
+
+    private static List<SearchHit> hits(String... ids) {
+        List<SearchHit> out = new ArrayList<>();
+        for (String id : ids) {
+            out.add(new SearchHit(id, "text " + id, 0.5, null));
+        }
+        return out;
+    }
+}
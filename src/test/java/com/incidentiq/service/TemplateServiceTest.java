@@ -0,0 +1,38 @@
+package com.incidentiq.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.ClassPathResource;
+import redis.clients.jedis.JedisPooled;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TemplateServiceTest {
+
+    @Test
+    void startsFromTheShippedConfiguration() throws IOException {
+        StandardEnvironment env = new StandardEnvironment();
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader()
+                .load("application", new ClassPathResource("application.yaml"));
+        sources.forEach(env.getPropertySources()::addLast);
+
+        TemplateService service = new TemplateService(mock(JedisPooled.class), new SimpleMeterRegistry(),
+                env.resolvePlaceholders("${app.ingest.templates.mode:off}"),
+                env.resolvePlaceholders("${app.vector.backend:redis}"),
+                Integer.parseInt(env.resolvePlaceholders("${app.ingest.templates.depth:4}")),
+                Double.parseDouble(env.resolvePlaceholders("${app.ingest.templates.similarity:0.4}")),
+                Integer.parseInt(env.resolvePlaceholders("${app.ingest.templates.max-children:100}")),
+                Integer.parseInt(env.resolvePlaceholders("${app.ingest.templates.max-templates:5000}")),
+                Integer.parseInt(env.resolvePlaceholders("${app.ingest.templates.chunk-refs:50}")));
+
+        assertThat(service.isEnabled()).isFalse();
+        assertThat(service.embedsTemplates()).isFalse();
+    }
+}
@@ -0,0 +1,148 @@
+package com.incidentiq.util;
+
+import com.incidentiq.util.DrainTemplateMiner.Match;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrainTemplateMinerTest {
+
+    @Test
+    void generalizesDifferingPositionsAndKeepsTheId() {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 1000);
+
+        Match first = miner.add("session opened for user alice port 22");
+        Match second = miner.add("session opened for user bob port 2222");
+        Match third = miner.add("session opened for user carol port 23");
+
+        assertThat(first.template()).isEqualTo("session opened for user alice port <*>");
+        assertThat(first.params()).containsExactly("22");
+        assertThat(first.version()).isZero();
+        assertThat(first.changed()).isTrue();
+
+        assertThat(second.templateId()).isEqualTo(first.templateId());
+        assertThat(second.template()).isEqualTo("session opened for user <*> port <*>");
+        assertThat(second.params()).containsExactly("bob", "2222");
+        assertThat(second.version()).isEqualTo(1);
+        assertThat(second.changed()).isTrue();
+
+        assertThat(third.templateId()).isEqualTo(first.templateId());
+        assertThat(third.params()).containsExactly("carol", "23");
+        assertThat(third.version()).isEqualTo(1);
+        assertThat(third.changed()).isFalse();
+
+        assertThat(miner.size()).isEqualTo(1);
+        assertThat(miner.template(first.templateId())).isEqualTo("session opened for user <*> port <*>");
+    }
+
+    @Test
+    void masksTokensContainingDigits() {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 1000);
+
+        Match m = miner.add("GET /api/v1/items took 35ms id=9f2c");
+
+        assertThat(m.template()).isEqualTo("GET /api/<*>/items took <*> id=<*>");
+        assertThat(m.params()).containsExactly("35ms");
+    }
+
+    @Test
+    void dissimilarLinesStartNewTemplates() {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 1000);
+
+        Match a = miner.add("cache hit ratio is fine today");
+        Match b = miner.add("cache hit rate dropped below threshold");
+        Match c = miner.add("cache hit");
+
+        assertThat(b.templateId()).isNotEqualTo(a.templateId());
+        assertThat(c.templateId()).isNotEqualTo(a.templateId());
+        assertThat(b.template()).isEqualTo("cache hit rate dropped below threshold");
+        assertThat(miner.size()).isEqualTo(3);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyMatchedTemplateOfTheShard() {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 2);
+
+        String a = miner.add("alpha one x").templateId();
+        String b = miner.add("beta two y").templateId();
+        miner.add("alpha one x");
+        String c = miner.add("gamma three z").templateId();
+
+        assertThat(miner.size()).isEqualTo(2);
+        assertThat(miner.template(b)).isNull();
+        assertThat(miner.template(a)).isEqualTo("alpha one x");
+        assertThat(miner.template(c)).isEqualTo("gamma three z");
+    }
+
+    @Test
+    void neverEvictsTheOnlyTemplateOfAShard() {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 1);
+
+        String three = miner.add("alpha one x").templateId();
+        String two = miner.add("beta two").templateId();
+
+        assertThat(miner.size()).isEqualTo(2);
+
+        miner.add("gamma three z");
+
+        assertThat(miner.size()).isEqualTo(2);
+        assertThat(miner.template(three)).isNull();
+        assertThat(miner.template(two)).isEqualTo("beta two");
+    }
+
+    @Test
+    void idsDependOnlyOnTheFirstSeenShape() {
+        String line = "worker 3 finished batch 17";
+
+        String id = new DrainTemplateMiner(4, 0.5, 100, 1000).add(line).templateId();
+
+        assertThat(new DrainTemplateMiner(4, 0.5, 100, 1000).add(line).templateId()).isEqualTo(id);
+        assertThat(new DrainTemplateMiner(4, 0.5, 100, 1000).add("worker 4 finished batch 99").templateId())
+                .isEqualTo(id);
+    }
+
+    @Test
+    void concurrentAddsShareOneTemplatePerShape() throws Exception {
+        DrainTemplateMiner miner = new DrainTemplateMiner(4, 0.5, 100, 1000);
+        Set<String> shortIds = ConcurrentHashMap.newKeySet();
+        Set<String> longIds = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 2_000; i++) {
+                        shortIds.add(miner.add("request " + i + " took " + thread + "ms").templateId());
+                        longIds.add(miner.add("job " + i + " on node " + thread + " exited with " + i).templateId());
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(shortIds).hasSize(1);
+        assertThat(longIds).hasSize(1);
+        assertThat(miner.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectsAShallowTree() {
+        assertThatThrownBy(() -> new DrainTemplateMiner(2, 0.5, 100, 1000))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,129 @@
+package com.incidentiq.util;
+
+import com.incidentiq.model.LogChunk;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LogChunkerTest {
+
+    @Test
+    void cutsOnLineBoundariesAndRepeatsTrailingLinesAsOverlap() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lines.add("2024-05-01 INFO line %02d".formatted(i)); // 24 chars
+        }
+
+        List<LogChunk> chunks = chunk(String.join("\n", lines), 100, 30);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        for (LogChunk c : chunks) {
+            assertThat(c.getText().length()).isLessThanOrEqualTo(100);
+            assertThat(c.getText().split("\n")).allMatch(lines::contains);
+        }
+        for (int i = 1; i < chunks.size(); i++) {
+            String[] previous = chunks.get(i - 1).getText().split("\n");
+            String lastOfPrevious = previous[previous.length - 1];
+            assertThat(chunks.get(i).getText()).startsWith(lastOfPrevious);
+        }
+        assertThat(chunks.get(chunks.size() - 1).getText()).endsWith(lines.get(lines.size() - 1));
+        assertThat(chunks).extracting(LogChunk::getChunkNo)
+                .containsExactlyElementsOf(range(chunks.size()));
+    }
+
+    @Test
+    void everyLineAppearsWithoutOverlap() {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            in.append("event ").append(i).append('\n');
+        }
+
+        List<LogChunk> chunks = chunk(in.toString(), 64, 0);
+
+        List<String> seen = new ArrayList<>();
+        chunks.forEach(c -> seen.addAll(List.of(c.getText().split("\n"))));
+        assertThat(seen).hasSize(50).startsWith("event 0").endsWith("event 49");
+    }
+
+    @Test
+    void keepsAStackTraceWithItsMessage() {
+        String trace = String.join("\n",
+                "2024-05-01 ERROR Request failed",
+                "java.lang.IllegalStateException: pool exhausted",
+                "\tat com.example.Pool.borrow(Pool.java:42)",
+                "\tat com.example.Service.handle(Service.java:17)",
+                "Caused by: java.net.SocketTimeoutException: connect timed out",
+                "\tat java.base/java.net.Socket.connect(Socket.java:633)",
+                "\t... 12 more");
+        String input = "2024-05-01 INFO starting up\n"
+                + "2024-05-01 INFO listening on 8080\n"
+                + trace + "\n"
+                + "2024-05-01 INFO recovered\n";
+
+        List<LogChunk> chunks = chunk(input, 160, 0);
+
+        LogChunk withTrace = chunks.stream()
+                .filter(c -> c.getText().contains("pool exhausted"))
+                .findFirst().orElseThrow();
+        assertThat(withTrace.getText()).contains("Caused by:", "... 12 more", "Socket.connect");
+        assertThat(chunks.stream().filter(c -> c.getText().contains("Pool.borrow"))).hasSize(1);
+    }
+
+    @Test
+    void cutsARecordLongerThanTwiceTheBudget() {
+        StringBuilder in = new StringBuilder("2024-05-01 ERROR boom\n");
+        for (int i = 0; i < 40; i++) {
+            in.append("\tat com.example.Frame").append(i).append(".run(Frame.java:1)\n");
+        }
+
+        List<LogChunk> chunks = chunk(in.toString(), 200, 0);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks.get(0).getText().length()).isGreaterThan(200).isLessThanOrEqualTo(400);
+        chunks.forEach(c -> assertThat(c.getText().length()).isLessThanOrEqualTo(400));
+        assertThat(chunks.get(chunks.size() - 1).getText()).contains("Frame39");
+    }
+
+    @Test
+    void cutsAnOversizedLineOnTheBudget() {
+        String line = "x".repeat(250);
+
+        List<LogChunk> chunks = chunk(line, 100, 0);
+
+        assertThat(chunks).extracting(c -> c.getText().length()).containsExactly(100, 100, 50);
+    }
+
+    @Test
+    void emptyInputHasNoChunks() {
+        LogChunker chunker = new LogChunker(new StringReader(""), "test", "empty.log", 100, 10);
+
+        assertThat(chunker.hasNext()).isFalse();
+        assertThat(chunker.getChunkCount()).isZero();
+    }
+
+    @Test
+    void rejectsNonPositiveBudget() {
+        assertThatThrownBy(() -> new LogChunker(new StringReader("x"), "test", "x.log", 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<LogChunk> chunk(String input, int maxChars, int overlapChars) {
+        List<LogChunk> out = new ArrayList<>();
+        new LogChunker(new StringReader(input), "test", "app.log", maxChars, overlapChars)
+                .forEachRemaining(out::add);
+        return out;
+    }
+
+    private static List<Integer> range(int n) {
+        List<Integer> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            out.add(i);
+        }
+        return out;
+    }
+}
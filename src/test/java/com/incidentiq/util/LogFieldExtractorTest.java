@@ -0,0 +1,149 @@
+package com.incidentiq.util;
+
+import com.incidentiq.model.LogChunk;
+import com.incidentiq.model.SearchFilter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LogFieldExtractorTest {
+
+    private static final long INGEST = Instant.parse("2024-05-01T12:00:00Z").toEpochMilli();
+
+    private final LogFieldExtractor extractor = new LogFieldExtractor(ZoneOffset.UTC);
+
+    @Test
+    void readsIsoTimestampsWithAndWithoutOffset() {
+        LogChunk c = extract("""
+                2024-05-01T10:00:00.250+02:00 INFO started
+                2024-05-01 09:30:00,5 INFO ready
+                2024-05-01T09:45:00Z INFO serving""");
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2024-05-01T08:00:00.250Z"));
+        assertThat(c.getTsEnd()).isEqualTo(millis("2024-05-01T09:45:00Z"));
+    }
+
+    @Test
+    void readsLocalTimesInTheConfiguredZone() {
+        LogChunk c = new LogChunk("test", "app.log", 0, "2024-05-01 10:00:00 INFO started");
+
+        new LogFieldExtractor(ZoneId.of("Europe/Berlin")).extract(c, INGEST);
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2024-05-01T08:00:00Z"));
+    }
+
+    @Test
+    void readsEpochSecondsAndMillis() {
+        LogChunk c = extract("""
+                1714550400 INFO seconds
+                1714550401500 INFO millis""");
+
+        assertThat(c.getTsStart()).isEqualTo(1714550400_000L);
+        assertThat(c.getTsEnd()).isEqualTo(1714550401_500L);
+    }
+
+    @Test
+    void readsSyslogTimeAndHost() {
+        LogChunk c = extract("May  1 11:59:00 web-01 sshd[42]: Accepted publickey");
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2024-05-01T11:59:00Z"));
+        assertThat(c.getServices()).isEqualTo("web-01");
+    }
+
+    @Test
+    void syslogDatesAfterTheIngestTimeBelongToTheYearBefore() {
+        LogChunk c = extract("Dec 31 23:59:59 db-02 kernel: oom-killer");
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2023-12-31T23:59:59Z"));
+    }
+
+    @Test
+    void readsAccessLogTimestamps() {
+        LogChunk c = extract("10.0.0.1 - - [01/May/2024:13:15:00 +0200] \"GET /health HTTP/1.1\" 200 2");
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2024-05-01T11:15:00Z"));
+    }
+
+    @Test
+    void chunksWithoutTimestampsGetTheIngestTime() {
+        LogChunk c = extract("no time here\nnor here");
+
+        assertThat(c.getTsStart()).isEqualTo(INGEST);
+        assertThat(c.getTsEnd()).isEqualTo(INGEST);
+        assertThat(c.getSeverity()).isZero();
+        assertThat(c.getServices()).isNull();
+        assertThat(c.getTraceIds()).isNull();
+    }
+
+    @Test
+    void keepsTheHighestLevel() {
+        assertThat(extract("2024-05-01 INFO a\n2024-05-01 WARNING b").getSeverity()).isEqualTo(level("WARN"));
+        assertThat(extract("ts=1 level=warn msg=slow").getSeverity()).isEqualTo(level("WARN"));
+        assertThat(extract("ts=1 level=\"error\" msg=down").getSeverity()).isEqualTo(level("ERROR"));
+        assertThat(extract("INFO x\nCRITICAL y").getSeverity()).isEqualTo(level("FATAL"));
+    }
+
+    @Test
+    void aStackFrameCountsAsError() {
+        LogChunk c = extract("""
+                2024-05-01 INFO handling request
+                java.lang.IllegalStateException: closed
+                \tat com.example.Pool.borrow(Pool.java:42)""");
+
+        assertThat(c.getSeverity()).isEqualTo(level("ERROR"));
+    }
+
+    @Test
+    void ignoresLevelWordsPastTheHeadOfTheLine() {
+        LogChunk c = extract("2024-05-01 INFO " + "x".repeat(120) + " ERROR in payload");
+
+        assertThat(c.getSeverity()).isEqualTo(level("INFO"));
+    }
+
+    @Test
+    void collectsServicesAndTraceIdsFromKeyValuePairs() {
+        LogChunk c = extract("""
+                service=checkout traceId=4bf92f3577b34da6a3ce929d0e0e4736 msg=ok
+                host="pay-7" trace_id=0af7651916cd43dd8448eb211c80319c msg=ok
+                service=checkout msg=again""");
+
+        assertThat(c.getServices()).isEqualTo("checkout|pay-7");
+        assertThat(c.getTraceIds()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736|0af7651916cd43dd8448eb211c80319c");
+    }
+
+    @Test
+    void readsSleuthPrefixAndTraceparent() {
+        LogChunk c = extract("""
+                2024-05-01 10:00:00 INFO [orders,5f1c2a9b8e7d6c4a,5f1c2a9b8e7d6c4a,true] placed
+                2024-05-01 10:00:01 INFO traceparent: 00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01""");
+
+        assertThat(c.getServices()).isEqualTo("orders");
+        assertThat(c.getTraceIds()).isEqualTo("5f1c2a9b8e7d6c4a|4bf92f3577b34da6a3ce929d0e0e4736");
+    }
+
+    @Test
+    void invalidDatesAreSkipped() {
+        LogChunk c = extract("2024-13-45 10:00:00 INFO bad month\n2024-05-01T10:00:00Z INFO fine");
+
+        assertThat(c.getTsStart()).isEqualTo(millis("2024-05-01T10:00:00Z"));
+        assertThat(c.getTsEnd()).isEqualTo(millis("2024-05-01T10:00:00Z"));
+    }
+
+    private LogChunk extract(String text) {
+        LogChunk c = new LogChunk("test", "app.log", 0, text);
+        extractor.extract(c, INGEST);
+        return c;
+    }
+
+    private static long millis(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+
+    private static int level(String name) {
+        return SearchFilter.LEVELS.indexOf(name);
+    }
+}
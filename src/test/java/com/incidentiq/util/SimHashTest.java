@@ -0,0 +1,46 @@
+package com.incidentiq.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimHashTest {
+
+    @Test
+    void masksTokensContainingDigits() {
+        assertThat(SimHash.mask("Timeout after 3000ms calling payment-gateway attempt=2 id=9f3a"))
+                .isEqualTo("Timeout after <*> calling payment-gateway attempt=<*> id=<*>");
+        assertThat(SimHash.mask("no variables here")).isEqualTo("no variables here");
+    }
+
+    @Test
+    void sameMessageWithDifferentIdsHasTheSameFingerprint() {
+        long a = SimHash.fingerprint("2024-05-01 12:00:01 ERROR order 1234 failed: connection reset by peer");
+        long b = SimHash.fingerprint("2024-05-02 08:13:44 ERROR order 98765 failed: connection reset by peer");
+
+        assertThat(SimHash.distance(a, b)).isZero();
+    }
+
+    @Test
+    void aSmallWordingChangeStaysCloseAndADifferentMessageDoesNot() {
+        String trace = """
+                ERROR Request failed
+                java.lang.IllegalStateException: connection pool exhausted
+                \tat com.example.db.Pool.borrow(Pool.java:42)
+                \tat com.example.db.Repository.find(Repository.java:88)
+                \tat com.example.api.OrderController.get(OrderController.java:31)
+                """;
+        long base = SimHash.fingerprint(trace);
+        long variant = SimHash.fingerprint(trace.replace("Request failed", "Request aborted"));
+        long other = SimHash.fingerprint("INFO cache warmed with user profiles and feature flags in the background");
+
+        assertThat(SimHash.distance(base, variant)).isLessThan(SimHash.distance(base, other));
+        assertThat(SimHash.distance(base, other)).isGreaterThan(10);
+    }
+
+    @Test
+    void distanceCountsDifferingBits() {
+        assertThat(SimHash.distance(0b1011L, 0b0001L)).isEqualTo(2);
+        assertThat(SimHash.distance(-1L, 0L)).isEqualTo(64);
+    }
+}
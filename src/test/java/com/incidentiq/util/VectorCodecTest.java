@@ -0,0 +1,96 @@
+package com.incidentiq.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorCodecTest {
+
+    @Test
+    void everyHalfValueSurvivesARoundTrip() {
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            short h = (short) bits;
+            float f = VectorCodec.halfToFloat(h);
+            if (Float.isNaN(f)) {
+                assertThat(VectorCodec.halfToFloat(VectorCodec.floatToHalf(f))).isNaN();
+            } else {
+                assertThat(VectorCodec.floatToHalf(f)).as("0x%04x", bits).isEqualTo(h);
+            }
+        }
+    }
+
+    @Test
+    void roundsToNearestEven() {
+        float ulp = (float) Math.pow(2, -10); // spacing of halves in [1, 2)
+
+        assertThat(half(1f + ulp / 2)).isEqualTo(1f);                // tie, 1.0 is even
+        assertThat(half(1f + 3 * ulp / 2)).isEqualTo(1f + 2 * ulp); // tie, rounds up to even
+        assertThat(half(1f + ulp * 0.51f)).isEqualTo(1f + ulp);
+        assertThat(half(65504f)).isEqualTo(65504f);                  // largest half
+        assertThat(half(65519f)).isEqualTo(65504f);
+        assertThat(half(65520f)).isEqualTo(Float.POSITIVE_INFINITY); // rounds past the largest
+    }
+
+    @Test
+    void handlesSubnormalsAndUnderflow() {
+        float smallest = (float) Math.pow(2, -24);
+
+        assertThat(VectorCodec.floatToHalf(smallest)).isEqualTo((short) 0x0001);
+        assertThat(half(smallest * 3)).isEqualTo(smallest * 3);
+        assertThat(half((float) Math.pow(2, -15))).isEqualTo((float) Math.pow(2, -15));
+        assertThat(half(smallest / 2)).isEqualTo(0f);                // tie, 0 is even
+        assertThat(half(smallest * 0.51f)).isEqualTo(smallest);
+        assertThat(half(1e-10f)).isEqualTo(0f);
+        assertThat(Float.floatToIntBits(half(-1e-10f))).isEqualTo(Float.floatToIntBits(-0f));
+    }
+
+    @Test
+    void keepsInfinityNanAndSignedZero() {
+        assertThat(half(Float.POSITIVE_INFINITY)).isEqualTo(Float.POSITIVE_INFINITY);
+        assertThat(half(Float.NEGATIVE_INFINITY)).isEqualTo(Float.NEGATIVE_INFINITY);
+        assertThat(half(Float.MAX_VALUE)).isEqualTo(Float.POSITIVE_INFINITY);
+        assertThat(half(Float.NaN)).isNaN();
+        assertThat(Float.floatToIntBits(half(-0f))).isEqualTo(Float.floatToIntBits(-0f));
+    }
+
+    @Test
+    void float16BytesAreLittleEndian() {
+        byte[] bytes = VectorCodec.encode(new float[]{1f, -2f}, "float16");
+
+        assertThat(bytes).containsExactly(0x00, 0x3c, 0x00, 0xc0 - 256);
+        assertThat(VectorCodec.decode(bytes, VectorCodec.FLOAT16)).containsExactly(1f, -2f);
+    }
+
+    @Test
+    void float32RoundTripIsExact() {
+        float[] v = {0.1f, -3.5e-8f, Float.MIN_VALUE, 123456.78f};
+
+        byte[] bytes = VectorCodec.encode(v, VectorCodec.FLOAT32);
+
+        assertThat(bytes).hasSize(16);
+        assertThat(VectorCodec.decode(bytes, VectorCodec.FLOAT32)).containsExactly(v);
+    }
+
+    @Test
+    void truncateAndNormalizeReturnsAUnitVector() {
+        float[] out = VectorCodec.truncateAndNormalize(new float[]{3f, 4f, 12f}, 2);
+
+        assertThat(out).hasSize(2);
+        assertThat(out[0]).isCloseTo(0.6f, within(1e-6f));
+        assertThat(out[1]).isCloseTo(0.8f, within(1e-6f));
+        assertThat(VectorCodec.truncateAndNormalize(new float[]{0f, 0f}, 2)).containsExactly(0f, 0f);
+    }
+
+    @Test
+    void rejectsUnknownTypes() {
+        assertThat(VectorCodec.bytesPerElement("float32")).isEqualTo(4);
+        assertThatThrownBy(() -> VectorCodec.bytesPerElement("BFLOAT16"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static float half(float f) {
+        return VectorCodec.halfToFloat(VectorCodec.floatToHalf(f));
+    }
+}